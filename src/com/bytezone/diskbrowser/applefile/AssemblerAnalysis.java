@@ -0,0 +1,197 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.bytezone.diskbrowser.utilities.Opcode;
+
+// Finds the code in a buffer by following the flow of control from the entry points,
+// instead of disassembling every byte in turn. Anything that is never reached is
+// treated as data. The result is a list of lines in address order, kept in parallel
+// arrays, so the listing can be formatted again without repeating the analysis.
+// -----------------------------------------------------------------------------------//
+class AssemblerAnalysis
+// -----------------------------------------------------------------------------------//
+{
+  static final int FLAG_DATA = 0x01;          // a run of data bytes, operand is length
+  static final int FLAG_TARGET = 0x02;        // something jumps or branches here
+
+  // what each byte in the buffer was found to be
+  private static final byte UNKNOWN = 0;
+  private static final byte CODE = 1;
+  private static final byte OPERAND = 2;
+
+  private final byte[] buffer;
+  private final int loadAddress;
+  private final byte[] byteTypes;
+  private final boolean[] targets;
+
+  // one entry per line
+  int totalLines;
+  int[] offsets;
+  byte[] opcodes;
+  byte[] lineModes;
+  int[] operands;             // operand value, branch target, or length of a data run
+  byte[] flags;
+
+  // ---------------------------------------------------------------------------------//
+  AssemblerAnalysis (byte[] buffer, int loadAddress, int start,
+      Collection<Integer> entryPoints)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.buffer = buffer;
+    this.loadAddress = loadAddress;
+
+    byteTypes = new byte[buffer.length];
+    targets = new boolean[buffer.length];
+
+    int[] stack = new int[16];
+    int stackSize = 0;
+
+    stack[stackSize++] = start;
+    for (int address : entryPoints)
+    {
+      int offset = address - loadAddress;
+      if (offset >= start && offset < buffer.length)
+      {
+        if (stackSize == stack.length)
+          stack = Arrays.copyOf (stack, stackSize * 2);
+        stack[stackSize++] = offset;
+      }
+    }
+
+    while (stackSize > 0)
+    {
+      int ptr = stack[--stackSize];
+
+      while (ptr >= start && ptr < buffer.length && byteTypes[ptr] == UNKNOWN)
+      {
+        Opcode opcode = Opcode.get (buffer[ptr]);
+        int size = opcode.size;
+
+        if (size == 0 || !isFree (ptr + 1, size - 1))     // not an instruction
+          break;
+
+        byteTypes[ptr] = CODE;
+        for (int i = 1; i < size; i++)
+          byteTypes[ptr + i] = OPERAND;
+
+        int target = -1;
+
+        if (opcode.mode == Opcode.RELATIVE)                   // includes BRA
+          target = ptr + 2 + buffer[ptr + 1];
+        else if (opcode.flow == Opcode.FLOW_CALL || opcode.flow == Opcode.FLOW_JUMP)
+          target = getAbsolute (ptr) - loadAddress;
+
+        if (target >= 0 && target < buffer.length)
+        {
+          targets[target] = true;
+          if (stackSize == stack.length)
+            stack = Arrays.copyOf (stack, stackSize * 2);
+          stack[stackSize++] = target;
+        }
+
+        if (opcode.endsBlock ())
+          break;
+
+        ptr += size;
+      }
+    }
+
+    createLines (start);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean isFree (int ptr, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (ptr + length > buffer.length)
+      return false;
+
+    for (int i = 0; i < length; i++)
+      if (byteTypes[ptr + i] != UNKNOWN)
+        return false;
+
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int getAbsolute (int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    return (buffer[ptr + 1] & 0xFF) | (buffer[ptr + 2] & 0xFF) << 8;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void createLines (int start)
+  // ---------------------------------------------------------------------------------//
+  {
+    int max = buffer.length - start;
+    offsets = new int[max];
+    opcodes = new byte[max];
+    lineModes = new byte[max];
+    operands = new int[max];
+    flags = new byte[max];
+
+    int ptr = start;
+    while (ptr < buffer.length)
+    {
+      int line = totalLines++;
+      offsets[line] = ptr;
+
+      if (targets[ptr])
+        flags[line] |= FLAG_TARGET;
+
+      if (byteTypes[ptr] != CODE)
+      {
+        int end = ptr + 1;
+        while (end < buffer.length && byteTypes[end] != CODE)
+          end++;
+
+        flags[line] |= FLAG_DATA;
+        operands[line] = end - ptr;
+        ptr = end;
+        continue;
+      }
+
+      Opcode opcode = Opcode.get (buffer[ptr]);
+      int size = opcode.size;
+
+      opcodes[line] = buffer[ptr];
+      lineModes[line] = (byte) opcode.mode;
+
+      if (opcode.mode == Opcode.RELATIVE)
+        operands[line] = (loadAddress + ptr + 2 + buffer[ptr + 1]) & 0xFFFF;
+      else if (size == 2)
+        operands[line] = buffer[ptr + 1] & 0xFF;
+      else if (size == 3)
+        operands[line] = getAbsolute (ptr);
+
+      ptr += size;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int getSize (int line)
+  // ---------------------------------------------------------------------------------//
+  {
+    if ((flags[line] & FLAG_DATA) != 0)
+      return operands[line];
+
+    return Opcode.get (opcodes[line]).size;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean isData (int line)
+  // ---------------------------------------------------------------------------------//
+  {
+    return (flags[line] & FLAG_DATA) != 0;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean isTarget (int line)
+  // ---------------------------------------------------------------------------------//
+  {
+    return (flags[line] & FLAG_TARGET) != 0;
+  }
+}
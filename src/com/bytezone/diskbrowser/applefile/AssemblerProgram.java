@@ -12,6 +12,7 @@ import java.util.Map;
 import com.bytezone.diskbrowser.gui.AssemblerPreferences;
 import com.bytezone.diskbrowser.gui.DiskBrowser;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
+import com.bytezone.diskbrowser.utilities.Opcode;
 
 // -----------------------------------------------------------------------------------//
 public class AssemblerProgram extends AbstractFile
@@ -25,6 +26,18 @@ public class AssemblerProgram extends AbstractFile
   private int executeOffset;
 
   private byte[] extraBuffer = new byte[0];
+  private AssemblerProgram extraAssembler;
+
+  // the code is only traced once, only the text changes with the preferences
+  private AssemblerAnalysis analysis;
+
+  // operand text for each addressing mode, either side of the hex value
+  private static final String[] operandPrefix =
+      { "", "", "#$", "$", "$", "$", "($", "($", "$", "$", "$", "($", "($", "($", "$" };
+  private static final String[] operandSuffix =
+      { "", "", "", "", ",X", ",Y", ",X)", ")", "", ",X", ",Y", ",X)", "),Y", ")", "" };
+  private static final int[] operandDigits =
+      { 0, 0, 2, 4, 4, 4, 4, 4, 2, 2, 2, 2, 2, 2, 4 };
 
   private List<Integer> entryPoints;
   private List<StringLocation> stringLocations;
@@ -65,6 +78,7 @@ public class AssemblerProgram extends AbstractFile
     {
       this.extraBuffer = new byte[length];
       System.arraycopy (fullBuffer, offset, extraBuffer, 0, length);
+      extraAssembler = null;
     }
     else
       System.out.println ("Invalid length in setExtraBuffer() : " + length);
@@ -101,11 +115,14 @@ public class AssemblerProgram extends AbstractFile
     if (extraBuffer.length == 0)
       return assembler.getText ();
 
-    String extraName = String.format ("%s (extra)", name);
-    AssemblerProgram assemblerProgram =
-        new AssemblerProgram (extraName, extraBuffer, loadAddress + buffer.length);
+    if (extraAssembler == null)
+    {
+      String extraName = String.format ("%s (extra)", name);
+      extraAssembler =
+          new AssemblerProgram (extraName, extraBuffer, loadAddress + buffer.length);
+    }
 
-    return assembler.getText () + "\n\n" + assemblerProgram.getText ();
+    return assembler.getText () + "\n\n" + extraAssembler.getText ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -143,9 +160,11 @@ public class AssemblerProgram extends AbstractFile
   private String getListing ()
   // ---------------------------------------------------------------------------------//
   {
-    StringBuilder pgm = new StringBuilder ();
+    if (analysis == null)
+      analysis = new AssemblerAnalysis (buffer, loadAddress, executeOffset,
+          getRoutineAddresses ());
 
-    List<AssemblerStatement> lines = getLines ();
+    StringBuilder pgm = new StringBuilder (analysis.totalLines * 50);
 
     if (stringLocations == null)
       getStrings ();
@@ -155,48 +174,71 @@ public class AssemblerProgram extends AbstractFile
     for (int i = 0; i < executeOffset; i++)
       pgm.append (String.format ("    %04X: %02X%n", (loadAddress + i), buffer[i]));
 
-    for (AssemblerStatement cmd : lines)
+    StringBuilder line = new StringBuilder ();
+
+    for (int i = 0; i < analysis.totalLines; i++)
     {
-      StringBuilder line = new StringBuilder ();
+      if (analysis.isData (i))
+      {
+        addData (pgm, i);
+        continue;
+      }
 
-      String arrowText = assemblerPreferences.showTargets ? getArrow (cmd) : "";
-      line.append (
-          String.format ("%3.3s %04X: %02X ", arrowText, cmd.address, cmd.value));
+      int ptr = analysis.offsets[i];
+      int opcode = analysis.opcodes[i] & 0xFF;
+      int mode = analysis.lineModes[i];
+      int operand = analysis.operands[i];
+      int size = analysis.getSize (i);
 
-      if (cmd.size > 1)
-        line.append (String.format ("%02X ", cmd.operand1));
-      if (cmd.size > 2)
-        line.append (String.format ("%02X ", cmd.operand2));
+      line.setLength (0);
 
-      while (line.length () < 23)
+      String arrowText = assemblerPreferences.showTargets ? getArrow (i) : "";
+      line.append (arrowText);
+      while (line.length () < 4)
         line.append (" ");
 
-      line.append (cmd.mnemonic + " " + cmd.operand);
+      // String.format() is too slow for every line of a large listing
+      line.append (HexFormatter.format4 (loadAddress + ptr));
+      line.append (": ");
+      for (int j = 0; j < size; j++)
+      {
+        line.append (HexFormatter.format2 (buffer[ptr + j]));
+        line.append (" ");
+      }
 
-      if (cmd.offset != 0)
+      while (line.length () < 23)
+        line.append (" ");
+
+      line.append (Opcode.get (opcode).mnemonic);
+      line.append (" ");
+      if (operandDigits[mode] > 0)
       {
-        int branch = cmd.address + cmd.offset + 2;
-        line.append (String.format ("$%04X", branch < 0 ? branch += 0xFFFF : branch));
+        line.append (operandPrefix[mode]);
+        line.append (operandDigits[mode] == 2 ? HexFormatter.format2 (operand)
+            : HexFormatter.format4 (operand));
+        line.append (operandSuffix[mode]);
       }
-      else if (cmd.target > 0
-          && (cmd.target < loadAddress - 1 || cmd.target > (loadAddress + buffer.length)))
+
+      if ((mode == Opcode.ABSOLUTE || mode == Opcode.ZERO_PAGE) && operand > 0
+          && (operand < loadAddress - 1 || operand > (loadAddress + buffer.length)))
       {
         while (line.length () < 40)
           line.append (" ");
 
-        String text = equates.get (cmd.target);
+        String text = equates.get (operand);
         if (text != null)
           line.append ("; " + text);
         else
-          for (int i = 0, max = ApplesoftConstants.tokenAddresses.length; i < max; i++)
-            if (cmd.target == ApplesoftConstants.tokenAddresses[i])
+          for (int j = 0, max = ApplesoftConstants.tokenAddresses.length; j < max; j++)
+            if (operand == ApplesoftConstants.tokenAddresses[j])
             {
-              line.append ("; Applesoft - " + ApplesoftConstants.tokens[i]);
+              line.append ("; Applesoft - " + ApplesoftConstants.tokens[j]);
               break;
             }
       }
 
-      pgm.append (line.toString () + "\n");
+      pgm.append (line);
+      pgm.append ("\n");
     }
 
     if (pgm.length () > 0)
@@ -205,6 +247,55 @@ public class AssemblerProgram extends AbstractFile
     return pgm.toString ();
   }
 
+  // bytes that were never reached as code, eight to a line
+  // ---------------------------------------------------------------------------------//
+  private void addData (StringBuilder pgm, int lineNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    int ptr = analysis.offsets[lineNo];
+    int max = ptr + analysis.getSize (lineNo);
+    boolean showTarget = assemblerPreferences.showTargets && analysis.isTarget (lineNo);
+
+    while (ptr < max)
+    {
+      int length = Math.min (8, max - ptr);
+      StringBuilder line = new StringBuilder ();
+
+      line.append (String.format ("%3.3s %04X: ", showTarget ? "-->" : "",
+          loadAddress + ptr));
+      showTarget = false;
+
+      for (int i = 0; i < length; i++)
+        line.append (String.format ("%02X ", buffer[ptr + i]));
+
+      while (line.length () < 40)
+        line.append (" ");
+
+      for (int i = 0; i < length; i++)
+        line.append (HexFormatter.byteValue (buffer[ptr + i]));
+
+      pgm.append (line);
+      pgm.append ("\n");
+      ptr += length;
+    }
+  }
+
+  // routines in equates.txt that fall inside the buffer, ignoring the zero page, the
+  // input buffer and the I/O page, which are never code
+  // ---------------------------------------------------------------------------------//
+  private List<Integer> getRoutineAddresses ()
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Integer> entries = new ArrayList<> ();
+
+    for (int address : equates.keySet ())
+      if (address >= 0x0300 && (address & 0xFF00) != 0xC000 && address >= loadAddress
+          && address < loadAddress + buffer.length)
+        entries.add (address);
+
+    return entries;
+  }
+
   //  private int showString (AssemblerStatement cmd, StringBuilder line)
   //  {
   //    int key = cmd.address - loadAddress;
@@ -219,54 +310,6 @@ public class AssemblerProgram extends AbstractFile
   //    return 0;
   //  }
 
-  // ---------------------------------------------------------------------------------//
-  private List<AssemblerStatement> getLines ()
-  // ---------------------------------------------------------------------------------//
-  {
-    List<AssemblerStatement> lines = new ArrayList<> ();
-    Map<Integer, AssemblerStatement> linesMap = new HashMap<> ();
-    List<Integer> targets = new ArrayList<> ();
-
-    int ptr = executeOffset;
-    int address = loadAddress + executeOffset;
-
-    while (ptr < buffer.length)
-    {
-      AssemblerStatement cmd = new AssemblerStatement (buffer[ptr]);
-      lines.add (cmd);
-      linesMap.put (address, cmd);
-      cmd.address = address;
-
-      if (cmd.size == 2 && ptr < buffer.length - 1)
-        cmd.addData (buffer[ptr + 1]);
-      else if (cmd.size == 3 && ptr < buffer.length - 2)
-        cmd.addData (buffer[ptr + 1], buffer[ptr + 2]);
-      else
-        cmd.size = 1;
-
-      // JMP, JMP, JSR
-      if (cmd.target >= loadAddress && cmd.target < (loadAddress + buffer.length)
-          && (cmd.value == 0x4C || cmd.value == 0x6C || cmd.value == 0x20))
-        targets.add (cmd.target);
-
-      // branch relative
-      if (cmd.offset != 0)
-        targets.add (cmd.address + cmd.offset + 2);
-
-      address += cmd.size;
-      ptr += cmd.size;
-    }
-
-    for (Integer target : targets)
-    {
-      AssemblerStatement cmd = linesMap.get (target);
-      if (cmd != null)
-        cmd.isTarget = true;
-    }
-
-    return lines;
-  }
-
   // ---------------------------------------------------------------------------------//
   private String getStringsText ()
   // ---------------------------------------------------------------------------------//
@@ -325,18 +368,20 @@ public class AssemblerProgram extends AbstractFile
   }
 
   // ---------------------------------------------------------------------------------//
-  private String getArrow (AssemblerStatement cmd)
+  private String getArrow (int lineNo)
   // ---------------------------------------------------------------------------------//
   {
     String arrow = "";
+    int opcode = analysis.opcodes[lineNo] & 0xFF;
 
-    if (cmd.value == 0x4C || cmd.value == 0x6C || cmd.value == 0x60 || cmd.offset != 0)
+    if (opcode == 0x4C || opcode == 0x6C || opcode == 0x60
+        || analysis.lineModes[lineNo] == Opcode.RELATIVE)
       arrow = "<--";
 
-    if (cmd.value == 0x20 && isLocal (cmd.target))    // JSR
+    if (opcode == 0x20 && isLocal (analysis.operands[lineNo]))    // JSR
       arrow = "<--";
 
-    if (cmd.isTarget)
+    if (analysis.isTarget (lineNo))
       if (arrow.isEmpty ())
         arrow = "-->";
       else
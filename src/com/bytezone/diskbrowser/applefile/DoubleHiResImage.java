@@ -1,7 +1,7 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
 
@@ -9,10 +9,18 @@ import com.bytezone.diskbrowser.utilities.HexFormatter;
 public class DoubleHiResImage extends HiResImage
 // -----------------------------------------------------------------------------------//
 {
-  private static int[] swap = { 0, 8, 4, 12, 2, 10, 6, 14, 1, 9, 5, 13, 3, 11, 7, 15 };
+  private static final byte[] swap =
+      { 0, 8, 4, 12, 2, 10, 6, 14, 1, 9, 5, 13, 3, 11, 7, 15 };
+  private static final byte[] monochromeRuns = new byte[128 * 7];
+
+  static
+  {
+    for (int value = 0; value < 128; value++)
+      for (int px = 0; px < 7; px++)
+        monochromeRuns[value * 7 + px] = ((value >> px) & 0x01) == 0 ? 0 : (byte) 255;
+  }
 
   private final byte[] auxBuffer;
-  private DoubleScrunch doubleScrunch;
   byte[] packedBuffer;
 
   // ---------------------------------------------------------------------------------//
@@ -34,9 +42,18 @@ public class DoubleHiResImage extends HiResImage
     if (name.endsWith (".PAC"))
     {
       packedBuffer = buffer;
-      doubleScrunch = new DoubleScrunch (buffer);
-      auxBuffer = doubleScrunch.memory[0];
-      this.buffer = doubleScrunch.memory[1];
+      DoubleScrunch scrunch = new DoubleScrunch (buffer);
+      byte[][] banks = scrunch.memory;
+      if (!scrunch.isComplete ())
+      {
+        // truncated, so run the original routine to see what it makes of it
+        DoubleScrunchCPU cpu = new DoubleScrunchCPU ();
+        if (!cpu.unscrunch (buffer))
+          System.out.printf ("%s: packed data is incomplete%n", name);
+        banks = cpu.banks;
+      }
+      auxBuffer = banks[0];
+      this.buffer = banks[1];
     }
     else
     {
@@ -59,30 +76,33 @@ public class DoubleHiResImage extends HiResImage
     int HEIGHT = 192 * 2;
 
     image = new BufferedImage (WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
     int ndx = 0;
 
-    for (int i = 0; i < 3; i++)
-      for (int j = 0; j < 8; j++)
-        for (int k = 0; k < 8; k++)
-        {
-          int base = i * 0x28 + j * 0x80 + k * 0x400;
-          int max = Math.min (base + 40, buffer.length);
-          for (int ptr = base; ptr < max; ptr += 2)
-          {
-            int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
-                | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
-            for (int px = 0; px < 28; px++)
-            {
-              int val = (value >> px) & 0x01;
-              int pixel = val == 0 ? 0 : 255;
-              dataBuffer.setElem (ndx, pixel);
-              dataBuffer.setElem (ndx + WIDTH, pixel);  // repeat pixel one line on
-              ++ndx;
-            }
-          }
-          ndx += WIDTH;                                 // skip past repeated line
-        }
+    for (int row = 0; row < 192; row++)
+    {
+      int base = lineOffsets[row];
+      int max = Math.min (base + 40, buffer.length);
+      for (int ptr = base; ptr < max; ptr += 2)
+      {
+        // aux and main bytes alternate, seven pixels each
+        ndx = drawMonochrome (auxBuffer[ptr], pixels, ndx, WIDTH);
+        ndx = drawMonochrome (buffer[ptr], pixels, ndx, WIDTH);
+        ndx = drawMonochrome (auxBuffer[ptr + 1], pixels, ndx, WIDTH);
+        ndx = drawMonochrome (buffer[ptr + 1], pixels, ndx, WIDTH);
+      }
+      ndx += WIDTH;                                 // skip past repeated line
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int drawMonochrome (byte value, byte[] pixels, int ndx, int width)
+  // ---------------------------------------------------------------------------------//
+  {
+    int offset = (value & 0x7F) * 7;
+    System.arraycopy (monochromeRuns, offset, pixels, ndx, 7);
+    System.arraycopy (monochromeRuns, offset, pixels, ndx + width, 7);  // repeat line
+    return ndx + 7;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -90,35 +110,37 @@ public class DoubleHiResImage extends HiResImage
   protected void createColourImage ()
   // ---------------------------------------------------------------------------------//
   {
-    paletteIndex = paletteFactory.getCurrentPaletteIndex ();
-    Palette palette = paletteFactory.getCurrentPalette ();
-    int[] colours = palette.getColours ();
-
-    // image will be doubled horizontally
-    image = new BufferedImage (140 * 2, 192, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
+    // image will be doubled horizontally, pixels are palette indices
+    image = new BufferedImage (140 * 2, 192, BufferedImage.TYPE_BYTE_INDEXED,
+        paletteFactory.getCurrentPalette ().getColourModel ());
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
     int ndx = 0;
 
-    for (int i = 0; i < 3; i++)
-      for (int j = 0; j < 8; j++)
-        for (int k = 0; k < 8; k++)
+    for (int row = 0; row < 192; row++)
+    {
+      int base = lineOffsets[row];
+      int max = Math.min (base + 40, buffer.length);
+
+      for (int ptr = base; ptr < max; ptr += 2)
+      {
+        int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
+            | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
+        for (int px = 0; px < 28; px += 4)
         {
-          int base = i * 0x28 + j * 0x80 + k * 0x400;
-          int max = Math.min (base + 40, buffer.length);
-
-          for (int ptr = base; ptr < max; ptr += 2)
-          {
-            int value = auxBuffer[ptr] & 0x7F | ((buffer[ptr] & 0x7F) << 7)
-                | ((auxBuffer[ptr + 1] & 0x7F) << 14) | ((buffer[ptr + 1] & 0x7F) << 21);
-            for (int px = 0; px < 28; px += 4)
-            {
-              int val = (value >>> px) & 0x0F;
-              int val2 = swap[val];
-              dataBuffer.setElem (ndx++, colours[val2]);
-              dataBuffer.setElem (ndx++, colours[val2]);  // repeat pixel
-            }
-          }
+          byte colour = swap[(value >>> px) & 0x0F];
+          pixels[ndx++] = colour;
+          pixels[ndx++] = colour;                   // repeat pixel
         }
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  boolean usesPalette ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return true;
   }
 
   // ---------------------------------------------------------------------------------//
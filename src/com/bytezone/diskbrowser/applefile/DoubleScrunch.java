@@ -6,6 +6,7 @@ public class DoubleScrunch
 {
   final byte[][] memory = new byte[2][0x2000];
   private byte[] packedBuffer;
+  private final boolean complete;
 
   private final int[] rows = new int[192];
   private int ptr;
@@ -26,26 +27,47 @@ public class DoubleScrunch
             rows[row++] = a + b + c + d;
 
     packedBuffer = buffer;
+    complete = unpack ();
+  }
 
-    while (true)
+  // returns false if the packed data ends before the screen is filled
+  // ---------------------------------------------------------------------------------//
+  private boolean unpack ()
+  // ---------------------------------------------------------------------------------//
+  {
+    while (ptr < packedBuffer.length)
     {
       int repeat = packedBuffer[ptr++] & 0xFF;
 
       if ((repeat & 0x80) == 0)            // repeat same byte
       {
+        if (ptr >= packedBuffer.length)
+          return false;
         byte val = packedBuffer[ptr++];
         while (repeat-- > 0)
           if (move (val))
-            return;
+            return true;
       }
       else                              // copy bytes
       {
         repeat &= 0x7F;
         while (repeat-- > 0)
+        {
+          if (ptr >= packedBuffer.length)
+            return false;
           if (move (packedBuffer[ptr++]))
-            return;
+            return true;
+        }
       }
     }
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean isComplete ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return complete;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -2,245 +2,194 @@ package com.bytezone.diskbrowser.applefile;
 
 import com.bytezone.diskbrowser.utilities.CPU;
 
+// Unpacks a DoubleScrunch picture by running the unpacking routine on the emulated
+// 6502. The packed data is loaded at $4000. Each byte is stored down a screen column,
+// first on the odd lines and then on the even ones, alternating between the aux and
+// main banks. The original routine switches banks with the soft switches. This one
+// writes the aux bank at $A000 instead, so the 64K memory doesn't need banking.
+//
+//   LOOP    get the repetition counter (RC), the hi-bit selects copy or repeat
+//   REPEAT  store the same byte RC times
+//   COPY    store the next RC bytes
+//   STORE   store A in the current column, decrement RC
+//   COLUMN  move to the next screen line, set carry when the screen is finished
+//   NEXT    set $26-27 to the address of screen line X
+//
+// The routine has no idea how long the packed data is, so the three instructions that
+// read it are hooked, and the routine is stopped before it reads past the end.
 // -----------------------------------------------------------------------------------//
 public class DoubleScrunchCPU extends CPU
 // -----------------------------------------------------------------------------------//
 {
-  private byte mem_71D0;        // varies 1/0/1/0 ...
-  private byte mem_71D2;        // column index * 2 (00-4F) increments every C0 bytes
-  private byte mem_71D3;        // byte to repeat
-  private byte mem_71D4;        // repetition counter
-
-  private int src;              // base address of packed buffer
-  private int dst;              // base address of main/aux memory
-
-  private byte zp_00;           // input buffer offset
-  private byte zp_01;
-
-  private byte zp_26;           // output buffer offset
-  private byte zp_27;
-
-  private byte zp_E6;           // hi-res page ($20 or $40)
-
-  final byte[][] memory = new byte[2][0x2000];
-  private byte[] packedBuffer;
-
-  private int count;
+  private static final int ENTRY = 0x7100;
+  private static final int PACKED = 0x4000;
+  private static final int MAIN = 0x2000;
+  private static final int AUX = 0xA000;
+  private static final long MAX_CYCLES = 50_000_000;       // only if the routine loops
+  private static final int[] READS = { 0x7112, 0x7123, 0x713F };   // LDA ($00),Y
+
+  private static final byte[] code = {
+        (byte) 0xA5, (byte) 0xE6,         // 7100          LDA $E6
+        0x09, 0x04,                       // 7102          ORA #$04
+        (byte) 0x85, 0x27,                // 7104          STA $27
+        (byte) 0xA2, 0x01,                // 7106          LDX #$01
+        (byte) 0x8E, (byte) 0xD0, 0x71,   // 7108          STX $71D0
+        (byte) 0xA0, 0x00,                // 710B          LDY #$00
+        (byte) 0x8C, (byte) 0xD2, 0x71,   // 710D          STY $71D2
+        (byte) 0x84, 0x26,                // 7110          STY $26
+        (byte) 0xB1, 0x00,                // 7112  LOOP    LDA ($00),Y
+        0x08,                             // 7114          PHP
+        (byte) 0xE6, 0x00,                // 7115          INC $00
+        (byte) 0xD0, 0x02,                // 7117          BNE L1
+        (byte) 0xE6, 0x01,                // 7119          INC $01
+        0x29, 0x7F,                       // 711B  L1      AND #$7F
+        (byte) 0x8D, (byte) 0xD4, 0x71,   // 711D          STA $71D4
+        0x28,                             // 7120          PLP
+        0x30, 0x1A,                       // 7121          BMI COPY
+        (byte) 0xB1, 0x00,                // 7123          LDA ($00),Y
+        (byte) 0x8D, (byte) 0xD3, 0x71,   // 7125          STA $71D3
+        (byte) 0xAD, (byte) 0xD3, 0x71,   // 7128  REPEAT  LDA $71D3
+        0x20, 0x62, 0x71,                 // 712B          JSR STORE
+        0x20, (byte) 0x84, 0x71,          // 712E          JSR COLUMN
+        (byte) 0xB0, 0x2E,                // 7131          BCS DONE
+        0x20, (byte) 0xA4, 0x71,          // 7133          JSR NEXT
+        (byte) 0xAC, (byte) 0xD4, 0x71,   // 7136          LDY $71D4
+        (byte) 0xD0, (byte) 0xED,         // 7139          BNE REPEAT
+        (byte) 0xF0, 0x1C,                // 713B          BEQ NEWRC
+        (byte) 0xA0, 0x00,                // 713D  COPY    LDY #$00
+        (byte) 0xB1, 0x00,                // 713F          LDA ($00),Y
+        0x20, 0x62, 0x71,                 // 7141          JSR STORE
+        0x20, (byte) 0x84, 0x71,          // 7144          JSR COLUMN
+        (byte) 0xB0, 0x18,                // 7147          BCS DONE
+        0x20, (byte) 0xA4, 0x71,          // 7149          JSR NEXT
+        (byte) 0xAC, (byte) 0xD4, 0x71,   // 714C          LDY $71D4
+        (byte) 0xF0, 0x08,                // 714F          BEQ NEWRC
+        (byte) 0xE6, 0x00,                // 7151          INC $00
+        (byte) 0xD0, (byte) 0xE8,         // 7153          BNE COPY
+        (byte) 0xE6, 0x01,                // 7155          INC $01
+        (byte) 0xD0, (byte) 0xE4,         // 7157          BNE COPY
+        (byte) 0xE6, 0x00,                // 7159  NEWRC   INC $00
+        (byte) 0xD0, (byte) 0xB5,         // 715B          BNE LOOP
+        (byte) 0xE6, 0x01,                // 715D          INC $01
+        (byte) 0xD0, (byte) 0xB1,         // 715F          BNE LOOP
+        0x60,                             // 7161  DONE    RTS
+        (byte) 0xCE, (byte) 0xD4, 0x71,   // 7162  STORE   DEC $71D4
+        (byte) 0xAC, (byte) 0xD2, 0x71,   // 7165          LDY $71D2
+        0x08,                             // 7168          PHP
+        0x48,                             // 7169          PHA
+        (byte) 0x98,                      // 716A          TYA
+        0x4A,                             // 716B          LSR A
+        (byte) 0xA8,                      // 716C          TAY
+        0x68,                             // 716D          PLA
+        (byte) 0xB0, 0x10,                // 716E          BCS MAIN
+        0x48,                             // 7170          PHA
+        (byte) 0xA5, 0x26,                // 7171          LDA $26
+        (byte) 0x85, 0x28,                // 7173          STA $28
+        (byte) 0xA5, 0x27,                // 7175          LDA $27
+        0x69, (byte) 0x80,                // 7177          ADC #$80
+        (byte) 0x85, 0x29,                // 7179          STA $29
+        0x68,                             // 717B          PLA
+        (byte) 0x91, 0x28,                // 717C          STA ($28),Y
+        0x28,                             // 717E          PLP
+        0x60,                             // 717F          RTS
+        (byte) 0x91, 0x26,                // 7180  MAIN    STA ($26),Y
+        0x28,                             // 7182          PLP
+        0x60,                             // 7183          RTS
+        (byte) 0xE8,                      // 7184  COLUMN  INX
+        (byte) 0xE8,                      // 7185          INX
+        (byte) 0xE0, (byte) 0xC0,         // 7186          CPX #$C0
+        (byte) 0x90, 0x08,                // 7188          BCC C1
+        (byte) 0xCE, (byte) 0xD0, 0x71,   // 718A          DEC $71D0
+        0x30, 0x04,                       // 718D          BMI C2
+        (byte) 0xA2, 0x00,                // 718F          LDX #$00
+        0x18,                             // 7191          CLC
+        0x60,                             // 7192  C1      RTS
+        (byte) 0xEE, (byte) 0xD2, 0x71,   // 7193  C2      INC $71D2
+        (byte) 0xAC, (byte) 0xD2, 0x71,   // 7196          LDY $71D2
+        (byte) 0xC0, 0x50,                // 7199          CPY #$50
+        (byte) 0xB0, 0x06,                // 719B          BCS C3
+        (byte) 0xA2, 0x01,                // 719D          LDX #$01
+        (byte) 0x8E, (byte) 0xD0, 0x71,   // 719F          STX $71D0
+        0x18,                             // 71A2          CLC
+        0x60,                             // 71A3  C3      RTS
+        (byte) 0x8A,                      // 71A4  NEXT    TXA
+        0x29, (byte) 0xC0,                // 71A5          AND #$C0
+        (byte) 0x85, 0x26,                // 71A7          STA $26
+        0x4A,                             // 71A9          LSR A
+        0x4A,                             // 71AA          LSR A
+        0x05, 0x26,                       // 71AB          ORA $26
+        (byte) 0x85, 0x26,                // 71AD          STA $26
+        (byte) 0x8A,                      // 71AF          TXA
+        (byte) 0x85, 0x27,                // 71B0          STA $27
+        0x0A,                             // 71B2          ASL A
+        0x0A,                             // 71B3          ASL A
+        0x0A,                             // 71B4          ASL A
+        0x26, 0x27,                       // 71B5          ROL $27
+        0x0A,                             // 71B7          ASL A
+        0x26, 0x27,                       // 71B8          ROL $27
+        0x0A,                             // 71BA          ASL A
+        0x66, 0x26,                       // 71BB          ROR $26
+        (byte) 0xA5, 0x27,                // 71BD          LDA $27
+        0x29, 0x1F,                       // 71BF          AND #$1F
+        0x05, (byte) 0xE6,                // 71C1          ORA $E6
+        (byte) 0x85, 0x27,                // 71C3          STA $27
+        0x60,                             // 71C5          RTS
+  };
+
+  final byte[][] banks = new byte[2][0x2000];     // aux and main hi-res pages
+
+  private int end;                                // first address after the data
+  private boolean truncated;
 
   // ---------------------------------------------------------------------------------//
-  void unscrunch (byte[] buffer)
+  boolean unscrunch (byte[] buffer)
   // ---------------------------------------------------------------------------------//
   {
-    packedBuffer = buffer;
-
-    src = 0x4000;           // packed picture data
-    dst = 0x2000;           // main/aux picture data
-
-    zp_00 = 0x00;           // load address of packed buffer
-    zp_01 = 0x40;
-
-    zp_E6 = 0x20;           // hi-res page 1
-
-    lda (zp_E6);
-    ora ((byte) 0x04);
-    zp_27 = sta ();
-
-    ldx ((byte) 0x01);
-    mem_71D0 = stx ();      // X and 71D0 are both set to 1
-
-    ldy ((byte) 0x00);
-    mem_71D2 = sty ();      // column index = 0
-    zp_26 = sty ();         // output index = 0
-
-    while (true)
+    if (buffer.length > ENTRY - PACKED)     // it mustn't overwrite the routine
     {
-      // get the repetition counter (hi-bit is a flag to indicate copy/repeat)
-      lda (packedBuffer, indirectY (src, zp_00, zp_01));        // LDA ($00),Y)
-
-      php ();
-
-      // increment address to get next transfer byte (done in copy/repeat routine)
-      zp_00 = inc (zp_00);
-      if (zero)
-        zp_01 = inc (zp_01);
-
-      and ((byte) 0x7F);            // remove copy/repeat flag
-      mem_71D4 = sta ();            // save repetition counter (RC)
-      plp ();
-
-      // copy or repeat RC bytes
-      if (negative ? copyBytes () : repeatBytes ())
-        break;
-
-      // increment address to get next repetition counter
-      zp_00 = inc (zp_00);
-      if (zero)
-        zp_01 = inc (zp_01);
+      System.out.printf ("Packed buffer too large: %,d%n", buffer.length);
+      return false;
     }
-  }
 
-  // copy a single byte RC times
-  // ---------------------------------------------------------------------------------//
-  private boolean repeatBytes ()
-  // ---------------------------------------------------------------------------------//
-  {
-    // get the byte to store
-    lda (packedBuffer, indirectY (src, zp_00, zp_01));        // LDA ($00),Y)
-    mem_71D3 = sta ();
+    load (code, ENTRY);
+    load (buffer, PACKED);
 
-    while (true)
-    {
-      lda (mem_71D3);               // get the byte to store
+    end = PACKED + buffer.length;
+    for (int address : READS)
+      setHook (address, cpu -> checkEnd ());
 
-      storeByte ();                 // store it and decrement repetition counter
+    write (0x00, PACKED & 0xFF);            // packed buffer
+    write (0x01, PACKED >>> 8);
+    write (0xE6, 0x20);                     // hi-res page 1
 
-      calculateScreenColumn ();
-      if (carry)
-        return true;                // completely finished
+    boolean finished = call (ENTRY, MAX_CYCLES);
 
-      calculateNextScreenAddress ();
+    banks[0] = getMemory (AUX, 0x2000);
+    banks[1] = getMemory (MAIN, 0x2000);
 
-      ldy (mem_71D4);               // check the repetition counter
-      if (zero)
-        return false;               // not finished
-    }
+    return finished && !truncated;
   }
 
-  // copy the next RC bytes
+  // the reads are all in the outermost routine, so rts () returns from call ()
   // ---------------------------------------------------------------------------------//
-  private boolean copyBytes ()
+  private void checkEnd ()
   // ---------------------------------------------------------------------------------//
   {
-    while (true)
+    int address = (read (0x00) | read (0x01) << 8) + yReg;
+    if (address >= end)
     {
-      // get the byte to store
-      ldy ((byte) 0x00);
-      lda (packedBuffer, indirectY (src, zp_00, zp_01));        // LDA ($00),Y)
-
-      storeByte ();                 // store it and decrement repetition counter
-
-      calculateScreenColumn ();
-      if (carry)
-        return true;                // completely finished
-
-      calculateNextScreenAddress ();
-
-      ldy (mem_71D4);               // check the repetition counter
-      if (zero)
-        return false;               // not finished
-
-      // prepare address for next read
-      zp_00 = inc (zp_00);
-      if (zero)
-        zp_01 = inc (zp_01);
+      truncated = true;
+      rts ();
     }
   }
 
-  // store the byte currently in Acc
-  // ---------------------------------------------------------------------------------//
-  private void storeByte ()
-  // ---------------------------------------------------------------------------------//
-  {
-    mem_71D4 = dec (mem_71D4);      // decrement repetition counter (RC)
-    ldy (mem_71D2);                 // column index (times 2)
-
-    php ();
-    //    sei ();
-    pha ();
-    tya ();
-    lsr ();                         // divide by 2, put odd/even value in carry (bank)
-    tay ();
-    pla ();
-
-    if (false)
-      System.out.printf (
-          "%04X  D0: %02X  D2: %02X  xReg: %02X  bank: %d  %02X -> %02X %02X + %02X%n",
-          count++, mem_71D0, mem_71D2, stx (), carry ? 0 : 1, sta (), zp_27, zp_26,
-          sty ());
-
-    // store byte
-    sta (memory[carry ? 1 : 0], indirectY (dst, zp_26, zp_27));
-    plp ();
-  }
-
-  // $71B1
-  // ---------------------------------------------------------------------------------//
-  private void calculateScreenColumn ()
-  // ---------------------------------------------------------------------------------//
-  {
-    // increment X by 2 - X varies 01, 03, 05 -> BF, then 00, 02, 04 -> BE
-    inx ();
-    inx ();
-    cpx ((byte) 0xC0);              // # screen lines
-    if (!carry)                     // X < $C0
-      return;                       // continue current phase
-
-    // carry is now set, current phase is finished
-
-    // change phase
-    mem_71D0 = dec (mem_71D0);      // either 1 -> 0, or 0 -> -1
-    if (!negative)                  //          
-    {
-      assert mem_71D0 == 0;
-      // start second phase of screen column
-      ldx ((byte) 0x00);            // start X at 0
-      //      mem_71D0 = stx ();            // phase 2 (not necessary, was already 0)
-      clc ();
-      return;                       // start phase 2
-    }
-
-    // start a new screen column (and start phase 1)
-    mem_71D2 = inc (mem_71D2);      // increment column index
-    ldy (mem_71D2);
-    cpy ((byte) 0x50);              // test for end of line (2 x 0x28)
-    if (carry)                      // Y >= $50
-      return;                       // program finished
-
-    ldx ((byte) 0x01);              // start X at 1
-    mem_71D0 = stx ();              // start phase 1
-    clc ();
-  }
-
-  // set locations $26-27 (address of first location in screen line)
-  // ---------------------------------------------------------------------------------//
-  private void calculateNextScreenAddress ()
-  // ---------------------------------------------------------------------------------//
-  {
-    txa ();
-    and ((byte) 0xC0);              // get 2 hi bits - 00/40/80
-    zp_26 = sta ();
-
-    lsr ();
-    lsr ();
-    ora (zp_26);                    // graphics page ($20 or $40)
-    zp_26 = sta ();
-
-    txa ();
-    zp_27 = sta ();
-
-    asl ();
-    asl ();
-    asl ();
-    zp_27 = rol (zp_27);
-
-    asl ();
-    zp_27 = rol (zp_27);
-
-    asl ();
-    zp_26 = ror (zp_26);
-
-    lda (zp_27);
-    and ((byte) 0x1F);              // clear bits 7-5
-    ora (zp_E6);                    // graphics page ($20 or $40)
-    zp_27 = sta ();
-  }
-
   // ---------------------------------------------------------------------------------//
   @Override
   protected String debugString ()
   // ---------------------------------------------------------------------------------//
   {
-    return String.format ("0: %02X %02X  26: %02X %02X  %02X %02X %02X %02X", zp_00,
-        zp_01, zp_26, zp_27, mem_71D0, mem_71D2, mem_71D3, mem_71D4);
+    return String.format ("0: %02X %02X  26: %02X %02X  %02X %02X %02X %02X",
+        read (0x00), read (0x01), read (0x26), read (0x27), read (0x71D0),
+        read (0x71D2), read (0x71D3), read (0x71D4));
   }
 }
@@ -1,35 +1,52 @@
 package com.bytezone.diskbrowser.applefile;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
 import com.bytezone.diskbrowser.utilities.Utility;
 
 // pack::: ~/exomizer-3.0.2/src/exomizer mem -q -P23 -lnone LODE148@0x4000 -o LODE148c
 // unpack: ~/exomizer-3.0.2/src/exomizer raw -d -b -P23 LODE148c,0,-2 -o LODE148x
 
+// Decrunches files packed with exomizer's -P23 protocol (big-endian bits, bit counts
+// over 7 copied as whole bytes, implicit first literal, four offset tables). The file
+// is crunched backwards and ends with the address of the end of the unpacked data, so
+// it is read from the end and the output is written from the end.
 // -----------------------------------------------------------------------------------//
 public class ExoBuffer
 // -----------------------------------------------------------------------------------//
 {
-  private static final int PFLAG_BITS_ORDER_BE = 1;
-  private static final int PFLAG_BITS_COPY_GT_7 = 2;
-  private static final int PFLAG_IMPL_1LITERAL = 4;
-  private static final int PFLAG_BITS_ALIGN_START = 8;
-  private static final int PFLAG_4_OFFSET_TABLES = 16;
+  // the offset tables are always in the same place in the decode table
+  private static final int[] TABLE_BITS = { 2, 4, 4, 4 };
+  private static final int[] TABLE_OFFSETS = { 64, 48, 32, 16 };
+  private static final int TABLE_SIZE = 68;
+  private static final int MAX_OUTPUT = 0x10000;
+
+  // unpacked buffers, most recently used last
+  private static final int MAX_CACHED_BUFFERS = 16;
+  private static final Map<Long, byte[]> bufferCache =
+      Collections.synchronizedMap (new LinkedHashMap<> (32, 0.75f, true)
+      {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<Long, byte[]> eldest)
+        {
+          return size () > MAX_CACHED_BUFFERS;
+        }
+      });
 
-  private byte[] inBuffer;
+  private final byte[] inBuffer;
   private byte[] outBuffer;
 
-  private int inPos;
-  private int outPos;
-  private int srcPtr;
+  private int inPos;              // counts down
+  private int outPos;             // counts down
 
-  private int bitBuffer;
-  private int flags;
+  private int bits;               // unread bits, right-aligned
+  private int bitCount;
 
-  private int tableBit[] = new int[8];
-  private int tableOff[] = new int[8];
-  private int tableBi[] = new int[100];
-  private int tableLo[] = new int[100];
-  private int tableHi[] = new int[100];
+  private final int[] tableBase = new int[TABLE_SIZE];
+  private final int[] tableBits = new int[TABLE_SIZE];
 
   private static boolean debug = false;
 
@@ -38,32 +55,20 @@ public class ExoBuffer
   // ---------------------------------------------------------------------------------//
   {
     this.inBuffer = inBuffer;
-    Utility.reverse (inBuffer);
-
-    switch (Utility.getShortBigEndian (inBuffer, 0))
-    {
-      case 0x6000:
-        outBuffer = new byte[0x2000];     // HGR
-        break;
-
-      case 0x8000:
-        outBuffer = new byte[0x4000];     // DHGR
-        break;
-
-      case 0xA000:
-        outBuffer = new byte[0x8000];     // SHR
-        break;
 
-      case 0x5FF8:        // this is not working correctly - see CLODE019
-        return;
+    CRC32 crc = new CRC32 ();
+    crc.update (inBuffer);
+    Long key = ((long) inBuffer.length << 32) | crc.getValue ();
 
-      default:
-        System.out.printf ("Invalid buffer size: %04X%n",
-            Utility.getShortBigEndian (inBuffer, 0));
+    byte[] cachedBuffer = bufferCache.get (key);
+    if (cachedBuffer != null)
+    {
+      outBuffer = cachedBuffer.clone ();
+      return;
     }
 
     decrunch ();
-    Utility.reverse (outBuffer);
+    bufferCache.put (key, outBuffer.clone ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -97,211 +102,157 @@ public class ExoBuffer
   }
 
   // ---------------------------------------------------------------------------------//
-  private int bitBufRotate (int carryIn)
+  private static int getOutputSize (int address)
   // ---------------------------------------------------------------------------------//
   {
-    int carryOut;
-
-    if ((flags & PFLAG_BITS_ORDER_BE) != 0)
+    switch (address)
     {
-      carryOut = (bitBuffer & 0x80) >>> 7;
-      bitBuffer = (bitBuffer << 1) & 0xFF;
-
-      if (carryIn != 0)
-        bitBuffer |= 0x01;
-    }
-    else
-    {
-      carryOut = bitBuffer & 0x01;
-      bitBuffer = (bitBuffer >>> 1) & 0xFF;
-
-      if (carryIn != 0)
-        bitBuffer |= 0x80;
+      case 0x6000:
+        return 0x2000;          // HGR
+      case 0x8000:
+        return 0x4000;          // DHGR
+      case 0xA000:
+        return 0x8000;          // SHR
+      default:
+        return -1;
     }
-
-    return carryOut;
   }
 
   // ---------------------------------------------------------------------------------//
-  private int getByte ()
+  private void decrunch ()
   // ---------------------------------------------------------------------------------//
   {
-    return inBuffer[inPos++] & 0xFF;
-  }
+    int address = Utility.getShort (inBuffer, inBuffer.length - 2);
+    int size = getOutputSize (address);
 
-  // ---------------------------------------------------------------------------------//
-  private int getBits (int count)
-  // ---------------------------------------------------------------------------------//
-  {
-    int byteCopy = 0;
-    int value = 0;
+    // any other size is unpacked into the top of a 64K buffer and trimmed afterwards
+    outBuffer = new byte[size < 0 ? MAX_OUTPUT : size];
+    outPos = outBuffer.length;
+    inPos = inBuffer.length - 2;          // skip address
+
+    // the first byte holds the first few bits, followed by a marker bit
+    int firstByte = getByte ();
+    if (firstByte != 0)
+    {
+      int markerBit = Integer.numberOfTrailingZeros (firstByte);
+      bits = firstByte >>> (markerBit + 1);
+      bitCount = 7 - markerBit;
+    }
+
+    tableInit ();
+    literal (1);
 
-    if ((flags & PFLAG_BITS_COPY_GT_7) != 0)
-      while (count > 7)
+    while (true)
+    {
+      if (getBit () == 1)
       {
-        byteCopy = count >>> 3;
-        count &= 0x07;
+        literal (1);
+        continue;
       }
 
-    while (count-- > 0)
-    {
-      int carry = bitBufRotate (0);
+      int val = getGammaCode ();
+      if (val == 16)
+        break;
 
-      if (bitBuffer == 0)
+      if (val == 17)
       {
-        bitBuffer = getByte ();
-        carry = bitBufRotate (1);
+        literal (getBits (16));
+        continue;
       }
-      value = (value << 1) | carry;
-    }
 
-    while (byteCopy-- > 0)
-      value = (value << 8) | getByte ();
+      int len = getCooked (val);
+      int i = Math.min (len, 4) - 1;
+      int offset = getCooked (TABLE_OFFSETS[i] + getBits (TABLE_BITS[i]));
+      match (len, offset);
+    }
 
-    return value;
+    if (size < 0)
+    {
+      if (debug)
+        System.out.printf ("Invalid buffer size: %04X%n", address);
+      byte[] buffer = new byte[outBuffer.length - outPos];
+      System.arraycopy (outBuffer, outPos, buffer, 0, buffer.length);
+      outBuffer = buffer;
+    }
+    else
+      assert outPos == 0;
   }
 
   // ---------------------------------------------------------------------------------//
   private void tableInit ()
   // ---------------------------------------------------------------------------------//
   {
-    int end;
-    int a = 0;
-    int b = 0;
+    int base = 0;
 
-    tableBit[0] = 2;
-    tableBit[1] = 4;
-    tableBit[2] = 4;
-
-    if ((flags & PFLAG_4_OFFSET_TABLES) != 0)
+    for (int i = 0; i < TABLE_SIZE; i++)
     {
-      end = 68;
-
-      tableBit[3] = 4;
-
-      tableOff[0] = 64;
-      tableOff[1] = 48;
-      tableOff[2] = 32;
-      tableOff[3] = 16;
-    }
-    else
-    {
-      end = 52;
-
-      tableOff[0] = 48;
-      tableOff[1] = 32;
-      tableOff[2] = 16;
-    }
-
-    for (int i = 0; i < end; i++)
-    {
-      if ((i & 0x0F) != 0)
-        a += (1 << b);
-      else
-        a = 1;
-
-      tableLo[i] = a & 0xFF;
-      tableHi[i] = a >>> 8;
-
-      if ((flags & PFLAG_BITS_COPY_GT_7) != 0)
-      {
-        b = getBits (3);
-        b |= getBits (1) << 3;
-      }
-      else
-        b = getBits (4);
+      base = (i & 0x0F) == 0 ? 1 : base + (1 << tableBits[i - 1]);
+      tableBase[i] = base;
 
-      tableBi[i] = b;
+      int b = getBits (3);
+      tableBits[i] = b | getBits (1) << 3;
     }
-
-    if (false)
-      tableDump ();
   }
 
   // ---------------------------------------------------------------------------------//
-  private void tableDump ()
+  private int getByte ()
   // ---------------------------------------------------------------------------------//
   {
-    for (int i = 0; i < 16; i++)
-      System.out.printf ("%X", tableBi[i]);
+    return inBuffer[--inPos] & 0xFF;
+  }
 
-    for (int j = 0; j < 3; j++)
+  // ---------------------------------------------------------------------------------//
+  private int getBit ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (bitCount == 0)
     {
-      System.out.printf (",");
-      int start = tableOff[j];
-      int end = start + (1 << tableBit[j]);
-      for (int i = start; i < end; i++)
-        System.out.printf ("%X", tableBi[i]);
+      bits = getByte ();
+      bitCount = 8;
     }
-    System.out.println ();
+
+    return (bits >>> --bitCount) & 0x01;
   }
 
+  // Counts over 7 take the top bits from the bit buffer and the rest as whole bytes.
+  // The bit buffer is only refilled when it is empty, so the bytes come from the same
+  // place in the stream as they would if each bit was read separately.
   // ---------------------------------------------------------------------------------//
-  private void decrunch ()
+  private int getBits (int count)
   // ---------------------------------------------------------------------------------//
   {
-    inPos = 2;        // skip address
-    outPos = 0;
-    flags = 23;       // hard-coded for Total Replay
+    int byteCopy = count >>> 3;
+    count &= 0x07;
 
-    if ((flags & PFLAG_BITS_ALIGN_START) != 0)
-      bitBuffer = 0;
-    else
-      bitBuffer = getByte ();
-
-    tableInit ();
-
-    int len;
-    boolean literal;
-    int threshold = (flags & PFLAG_4_OFFSET_TABLES) != 0 ? 4 : 3;
-
-    if ((flags & PFLAG_IMPL_1LITERAL) != 0)
+    int value;
+    if (count <= bitCount)
     {
-      len = 1;
-      literal = true;
-      copy (len, literal);
+      bitCount -= count;
+      value = (bits >>> bitCount) & ((1 << count) - 1);
     }
-
-    while (true)
+    else
     {
-      if (getBits (1) == 1)
-      {
-        len = 1;
-        literal = true;
-      }
-      else
-      {
-        int val = getGammaCode ();      // count zero bits
-
-        if (val == 16)
-          break;
+      int high = bits & ((1 << bitCount) - 1);
+      count -= bitCount;
+      bits = getByte ();
+      bitCount = 8 - count;
+      value = (high << count) | (bits >>> bitCount);
+    }
 
-        if (val == 17)
-        {
-          len = getBits (16);
-          literal = true;
-        }
-        else
-        {
-          len = getCooked (val);
-          literal = false;
+    while (byteCopy-- > 0)
+      value = (value << 8) | getByte ();
 
-          int i = (len > threshold ? threshold : len) - 1;
-          srcPtr = outPos - getCooked (tableOff[i] + getBits (tableBit[i]));
-        }
-      }
-      copy (len, literal);
-    }
-    assert outPos == outBuffer.length;
+    return value;
   }
 
+  // count zero bits
   // ---------------------------------------------------------------------------------//
   private int getGammaCode ()
   // ---------------------------------------------------------------------------------//
   {
     int gammaCode = 0;
 
-    while (getBits (1) == 0)
+    while (getBit () == 0)
       ++gammaCode;
 
     return gammaCode;
@@ -311,18 +262,36 @@ public class ExoBuffer
   private int getCooked (int index)
   // ---------------------------------------------------------------------------------//
   {
-    return ((tableHi[index] << 8) | tableLo[index]) + getBits (tableBi[index]);
+    return tableBase[index] + getBits (tableBits[index]);
   }
 
+  // the input and output both run backwards, so a run of literals is in the same order
   // ---------------------------------------------------------------------------------//
-  private void copy (int len, boolean literal)
+  private void literal (int len)
   // ---------------------------------------------------------------------------------//
   {
-    assert len > 0;
-    while (len-- > 0)
+    inPos -= len;
+    outPos -= len;
+    System.arraycopy (inBuffer, inPos, outBuffer, outPos, len);
+  }
+
+  // When the offset is less than the length the source overlaps the bytes being
+  // written, and the first offset bytes repeat. Each copy doubles the repeated part.
+  // ---------------------------------------------------------------------------------//
+  private void match (int len, int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    int end = outPos + offset;                  // end of the source
+    int dest = outPos;
+    outPos -= len;
+
+    while (len > 0)
     {
-      int val = literal ? getByte () : outBuffer[srcPtr++];
-      outBuffer[outPos++] = (byte) (val & 0xFF);
+      int shift = end - dest;                   // always a multiple of offset
+      int transfer = Math.min (len, shift);
+      dest -= transfer;
+      System.arraycopy (outBuffer, dest + shift, outBuffer, dest, transfer);
+      len -= transfer;
     }
   }
 }
@@ -1,10 +1,17 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.imageio.ImageIO;
 
@@ -24,7 +31,6 @@ public abstract class HiResImage extends AbstractFile
   static final int COLOR_TABLE_OFFSET_AUX_0 = 32_256;
   static final int COLOR_TABLE_OFFSET_AUX_2 = 32_000;
   public static final int FADDEN_AUX = 0x8066;
-  private byte[] fourBuf = new byte[4];
   private ColorTable defaultColorTable320 = new ColorTable (0, 0x00);
   private ColorTable defaultColorTable640 = new ColorTable (0, 0x80);
 
@@ -113,17 +119,46 @@ public abstract class HiResImage extends AbstractFile
 
   static PaletteFactory paletteFactory = new PaletteFactory ();
 
+  // https://github.com/Michaelangel007/apple2_hgr_font_tutorial
+  // hgr[ y ] = 0x2000 + (y/64)*0x28 + (y%8)*0x400 + ((y/8)&7)*0x80;
+  // or... Y = aabbbccc
+  //    address = BASE + aa * 0x28 + bb * 0x80 + ccc * 0x0400 + X
+  static final int[] lineOffsets = new int[192];
+
+  static
+  {
+    for (int y = 0; y < lineOffsets.length; y++)
+      lineOffsets[y] = (y / 64) * 0x28 + ((y / 8) & 0x07) * 0x80 + (y % 8) * 0x400;
+  }
+
   static final byte[] pngHeader =
       { (byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A };
 
   static boolean colourQuirks;
   static boolean monochrome;
 
+  // rendered images, most recently used last
+  private static final int MAX_CACHED_IMAGES = 32;
+  private static final Map<ImageKey, BufferedImage> imageCache =
+      Collections.synchronizedMap (new LinkedHashMap<> (64, 0.75f, true)
+      {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<ImageKey, BufferedImage> eldest)
+        {
+          return size () > MAX_CACHED_IMAGES;
+        }
+      });
+
+  static final int MODE_COLOUR = 0;
+  static final int MODE_COLOUR_QUIRKS = 1;
+  static final int MODE_MONOCHROME = 2;
+
   int fileType;
   int auxType;
   int eof;
 
   int paletteIndex;
+  int renderMode = -1;
   String failureReason = "";
 
   // ---------------------------------------------------------------------------------//
@@ -178,11 +213,74 @@ public abstract class HiResImage extends AbstractFile
       return;
 
     if (isGif (buffer) || isPng (buffer) || isBmp (buffer) || isTiff (buffer))
-      makeImage ();
-    else if (monochrome)
-      createMonochromeImage ();
+    {
+      if (image == null)
+        makeImage ();
+      return;
+    }
+
+    renderMode = getRenderMode ();
+
+    // animation frames change the buffer, so they can't be cached
+    ImageKey key = isAnimation () ? null : new ImageKey (this, renderMode);
+    BufferedImage cachedImage = key == null ? null : imageCache.get (key);
+
+    if (cachedImage != null)
+      image = cachedImage;
     else
-      createColourImage ();
+    {
+      if (renderMode == MODE_MONOCHROME)
+        createMonochromeImage ();
+      else
+        createColourImage ();
+
+      if (key != null && image != null)
+        imageCache.put (key, image);
+    }
+
+    if (renderMode != MODE_MONOCHROME && usesPalette ())
+      applyPalette ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int getRenderMode ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (monochrome)
+      return MODE_MONOCHROME;
+
+    return colourQuirks && usesColourQuirks () ? MODE_COLOUR_QUIRKS : MODE_COLOUR;
+  }
+
+  // Images that store palette indices only need a new colour model when the palette
+  // changes. The raster (and therefore the cached image) is shared.
+  // ---------------------------------------------------------------------------------//
+  private void applyPalette ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (image == null)
+      return;
+
+    paletteIndex = paletteFactory.getCurrentPaletteIndex ();
+    IndexColorModel colourModel = paletteFactory.getCurrentPalette ().getColourModel ();
+
+    if (image.getColorModel () != colourModel)
+      image = new BufferedImage (colourModel, image.getRaster (), false, null);
+  }
+
+  // true if the image is drawn with palette indices (see Palette.getColourModel())
+  // ---------------------------------------------------------------------------------//
+  boolean usesPalette ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean usesColourQuirks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return false;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -197,16 +295,20 @@ public abstract class HiResImage extends AbstractFile
   public void checkPalette ()
   // ---------------------------------------------------------------------------------//
   {
-    if (!monochrome && paletteIndex != paletteFactory.getCurrentPaletteIndex ())
+    // the options may have been changed while another image was displayed
+    if (renderMode >= 0 && renderMode != getRenderMode ())
       createImage ();
+    else
+      setPalette ();
   }
 
   // ---------------------------------------------------------------------------------//
   public void setPalette ()
   // ---------------------------------------------------------------------------------//
   {
-    if (!monochrome)
-      createImage ();
+    if (!monochrome && usesPalette ()
+        && paletteIndex != paletteFactory.getCurrentPaletteIndex ())
+      applyPalette ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -218,7 +320,7 @@ public abstract class HiResImage extends AbstractFile
 
     colourQuirks = value;
 
-    if (!monochrome)
+    if (!monochrome && usesColourQuirks ())
       createImage ();
   }
 
@@ -322,128 +424,108 @@ public abstract class HiResImage extends AbstractFile
     return text.toString ();
   }
 
+  // Each byte is two pixels, and each pixel is drawn twice on two lines. Bytes that
+  // would be drawn past the end of the image are skipped.
   // ---------------------------------------------------------------------------------//
-  int mode320Line (int ptr, int element, int dataWidth, ColorTable colorTable,
-      DataBuffer dataBuffer, int imageWidth)
+  int mode320Line (byte[] buffer, int ptr, int element, int dataWidth,
+      ColorTable colorTable, DataBuffer dataBuffer, int imageWidth)
   // ---------------------------------------------------------------------------------//
   {
-    if (colorTable == null)
-      colorTable = defaultColorTable320;
+    int[] rgb = (colorTable == null ? defaultColorTable320 : colorTable).rgb;
+    int[] pixels = ((DataBufferInt) dataBuffer).getData ();
 
-    for (int i = 0; i < dataWidth; i++)
+    if (ptr + dataWidth > buffer.length)
     {
-      if (ptr >= buffer.length)
-      {
-        System.out.printf ("too big: %d  %d%n", ptr, buffer.length);
-        return ptr;
-      }
-      // get two pixels from this byte
-      int left = (buffer[ptr] & 0xF0) >>> 4;
-      int right = buffer[ptr++] & 0x0F;
+      System.out.printf ("too big: %d  %d%n", ptr + dataWidth, buffer.length);
+      dataWidth = Math.max (buffer.length - ptr, 0);
+    }
 
-      // get pixel colors
-      int rgbLeft = colorTable.entries[left].color.getRGB ();
-      int rgbRight = colorTable.entries[right].color.getRGB ();
+    int line1 = getBytesToDraw (pixels, element, dataWidth);
+    int line2 = getBytesToDraw (pixels, element + imageWidth, dataWidth);
+    int element2 = element + imageWidth;
 
-      // draw two pixels (twice each) on two lines
-      draw (dataBuffer, element + imageWidth, rgbLeft, rgbLeft, rgbRight, rgbRight);
-      element = draw (dataBuffer, element, rgbLeft, rgbLeft, rgbRight, rgbRight);
+    for (int i = 0; i < line1; i++)
+    {
+      // get two pixel colours from this byte
+      int value = buffer[ptr + i];
+      int rgbLeft = rgb[(value & 0xF0) >>> 4];
+      int rgbRight = rgb[value & 0x0F];
+
+      pixels[element++] = rgbLeft;
+      pixels[element++] = rgbLeft;
+      pixels[element++] = rgbRight;
+      pixels[element++] = rgbRight;
+
+      if (i < line2)
+      {
+        pixels[element2++] = rgbLeft;
+        pixels[element2++] = rgbLeft;
+        pixels[element2++] = rgbRight;
+        pixels[element2++] = rgbRight;
+      }
     }
 
-    return ptr;
+    return ptr + dataWidth;
   }
 
+  // Each byte is four pixels, and each one is drawn on two lines. Bytes that would be
+  // drawn past the end of the image are skipped.
   // ---------------------------------------------------------------------------------//
-  int mode640Line (int ptr, int element, int dataWidth, ColorTable colorTable,
-      DataBuffer dataBuffer, int imageWidth)
+  int mode640Line (byte[] buffer, int ptr, int element, int dataWidth,
+      ColorTable colorTable, DataBuffer dataBuffer, int imageWidth)
   // ---------------------------------------------------------------------------------//
   {
-    if (colorTable == null)
-      colorTable = defaultColorTable640;
+    int[] rgb = (colorTable == null ? defaultColorTable640 : colorTable).rgb;
+    int[] pixels = ((DataBufferInt) dataBuffer).getData ();
 
-    for (int i = 0; i < dataWidth; i++)
+    if (ptr + dataWidth > buffer.length)
     {
-      // get four pixels from this byte
-      int p1 = (buffer[ptr] & 0xC0) >>> 6;
-      int p2 = (buffer[ptr] & 0x30) >> 4;
-      int p3 = (buffer[ptr] & 0x0C) >> 2;
-      int p4 = (buffer[ptr++] & 0x03);
-
-      // get pixel colors
-      int rgb1 = colorTable.entries[p1 + 8].color.getRGB ();
-      int rgb2 = colorTable.entries[p2 + 12].color.getRGB ();
-      int rgb3 = colorTable.entries[p3].color.getRGB ();
-      int rgb4 = colorTable.entries[p4 + 4].color.getRGB ();
-
-      // draw four pixels on two lines
-      draw (dataBuffer, element + imageWidth, rgb1, rgb2, rgb3, rgb4);    // 2nd line
-      element = draw (dataBuffer, element, rgb1, rgb2, rgb3, rgb4);       // 1st line
+      System.out.printf ("too big: %d  %d%n", ptr + dataWidth, buffer.length);
+      dataWidth = Math.max (buffer.length - ptr, 0);
     }
 
-    return ptr;
-  }
+    int line1 = getBytesToDraw (pixels, element, dataWidth);
+    int line2 = getBytesToDraw (pixels, element + imageWidth, dataWidth);
+    int element2 = element + imageWidth;
 
-  // ---------------------------------------------------------------------------------//
-  int draw (DataBuffer dataBuffer, int element, int... rgbList)
-  // ---------------------------------------------------------------------------------//
-  {
-    if (dataBuffer.getSize () < rgbList.length + element)
+    for (int i = 0; i < line1; i++)
     {
-      System.out.printf ("Bollocks: %d %d %d%n", dataBuffer.getSize (), rgbList.length,
-          element);
-      return element;
+      // get four pixel colours from this byte
+      int value = buffer[ptr + i];
+      int rgb1 = rgb[((value & 0xC0) >>> 6) + 8];
+      int rgb2 = rgb[((value & 0x30) >> 4) + 12];
+      int rgb3 = rgb[(value & 0x0C) >> 2];
+      int rgb4 = rgb[(value & 0x03) + 4];
+
+      pixels[element++] = rgb1;
+      pixels[element++] = rgb2;
+      pixels[element++] = rgb3;
+      pixels[element++] = rgb4;
+
+      if (i < line2)
+      {
+        pixels[element2++] = rgb1;
+        pixels[element2++] = rgb2;
+        pixels[element2++] = rgb3;
+        pixels[element2++] = rgb4;
+      }
     }
 
-    for (int rgb : rgbList)
-      dataBuffer.setElem (element++, rgb);
-
-    return element;
+    return ptr + dataWidth;
   }
 
+  // number of bytes (four pixels each) that fit between element and the image end
   // ---------------------------------------------------------------------------------//
-  int unpack (byte[] buffer, int ptr, int max, byte[] newBuf, int newPtr)
+  private int getBytesToDraw (int[] pixels, int element, int dataWidth)
   // ---------------------------------------------------------------------------------//
   {
-    int savePtr = newPtr;
-
-    while (ptr < max - 1)                 // minimum 2 bytes needed
-    {
-      int type = (buffer[ptr] & 0xC0) >>> 6;        // 0-3
-      int count = (buffer[ptr++] & 0x3F) + 1;       // 1-64
+    int available = Math.max (pixels.length - element, 0) / 4;
+    if (available >= dataWidth)
+      return dataWidth;
 
-      switch (type)
-      {
-        case 0:                                     // 2-65 bytes
-          while (count-- != 0 && newPtr < newBuf.length && ptr < max)
-            newBuf[newPtr++] = buffer[ptr++];
-          break;
-
-        case 1:                                     // 2 bytes
-          byte b = buffer[ptr++];
-          while (count-- != 0 && newPtr < newBuf.length)
-            newBuf[newPtr++] = b;
-          break;
-
-        case 2:                                     // 5 bytes
-          for (int i = 0; i < 4; i++)
-            fourBuf[i] = ptr < max ? buffer[ptr++] : 0;
-
-          while (count-- != 0)
-            for (int i = 0; i < 4; i++)
-              if (newPtr < newBuf.length)
-                newBuf[newPtr++] = fourBuf[i];
-          break;
-
-        case 3:                                     // 2 bytes
-          b = buffer[ptr++];
-          count *= 4;
-          while (count-- != 0 && newPtr < newBuf.length)
-            newBuf[newPtr++] = b;
-          break;
-      }
-    }
-
-    return newPtr - savePtr;          // bytes unpacked
+    System.out.printf ("Line too long: %d %d %d%n", pixels.length, dataWidth * 4,
+        element);
+    return available;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -491,41 +573,6 @@ public abstract class HiResImage extends AbstractFile
     return text.toString ();
   }
 
-  // ---------------------------------------------------------------------------------//
-  int calculateBufferSize (byte[] buffer, int ptr)
-  // ---------------------------------------------------------------------------------//
-  {
-    //    int ptr = 0;
-    int size = 0;
-    while (ptr < buffer.length)
-    {
-      int type = (buffer[ptr] & 0xC0) >>> 6;        // 0-3
-      int count = (buffer[ptr++] & 0x3F) + 1;       // 1-64
-
-      if (type == 0)
-      {
-        ptr += count;
-        size += count;
-      }
-      else if (type == 1)
-      {
-        ptr++;
-        size += count;
-      }
-      else if (type == 2)
-      {
-        ptr += 4;
-        size += count * 4;
-      }
-      else
-      {
-        ptr++;
-        size += count * 4;
-      }
-    }
-    return size;
-  }
-
   // Beagle Bros routine to expand a hi-res screen
   // ---------------------------------------------------------------------------------//
   private byte[] unscrunch (byte[] src)
@@ -653,6 +700,16 @@ public abstract class HiResImage extends AbstractFile
         && buffer[2] == (byte) 0xD0 && buffer[3] == 0;
   }
 
+  // the settings that new images will be rendered with
+  // ---------------------------------------------------------------------------------//
+  public static String getRenderOptions ()
+  // ---------------------------------------------------------------------------------//
+  {
+    String mode = monochrome ? "monochrome" : colourQuirks ? "quirks" : "colour";
+    return String.format ("%s %02d %s", mode, paletteFactory.getCurrentPaletteIndex (),
+        paletteFactory.getCurrentPalette ().getName ());
+  }
+
   // ---------------------------------------------------------------------------------//
   public static PaletteFactory getPaletteFactory ()
   // ---------------------------------------------------------------------------------//
@@ -667,12 +724,42 @@ public abstract class HiResImage extends AbstractFile
     return paletteFactory.getPalettes ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  private static class ImageKey
+  // ---------------------------------------------------------------------------------//
+  {
+    private final HiResImage file;
+    private final int mode;
+
+    ImageKey (HiResImage file, int mode)
+    {
+      this.file = file;
+      this.mode = mode;
+    }
+
+    @Override
+    public boolean equals (Object other)
+    {
+      if (!(other instanceof ImageKey))
+        return false;
+      ImageKey key = (ImageKey) other;
+      return file == key.file && mode == key.mode;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return Objects.hash (System.identityHashCode (file), mode);
+    }
+  }
+
   // ---------------------------------------------------------------------------------//
   class ColorTable
   // ---------------------------------------------------------------------------------//
   {
     private int id;
     ColorEntry[] entries = new ColorEntry[16];
+    int[] rgb = new int[16];                // entries[n].color.getRGB (), for drawing
 
     // -------------------------------------------------------------------------------//
     public ColorTable (int id, int mode)
@@ -723,6 +810,8 @@ public abstract class HiResImage extends AbstractFile
         entries[6] = new ColorEntry (0x00, 0x0E, 0x00);
         entries[7] = new ColorEntry (0x0F, 0x0F, 0x0F);
       }
+
+      setRGB ();
     }
 
     // -------------------------------------------------------------------------------//
@@ -735,6 +824,16 @@ public abstract class HiResImage extends AbstractFile
         entries[i] = new ColorEntry (data, offset);
         offset += 2;
       }
+
+      setRGB ();
+    }
+
+    // -------------------------------------------------------------------------------//
+    private void setRGB ()
+    // -------------------------------------------------------------------------------//
+    {
+      for (int i = 0; i < 16; i++)
+        rgb[i] = entries[i] == null ? 0 : entries[i].color.getRGB ();
     }
 
     // -------------------------------------------------------------------------------//
@@ -761,6 +860,8 @@ public abstract class HiResImage extends AbstractFile
         entries[i] = entries[15 - i];
         entries[15 - i] = temp;
       }
+
+      setRGB ();
     }
 
     // -------------------------------------------------------------------------------//
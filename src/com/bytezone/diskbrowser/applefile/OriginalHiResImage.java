@@ -1,20 +1,42 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
 
 // -----------------------------------------------------------------------------------//
 public class OriginalHiResImage extends HiResImage
 // -----------------------------------------------------------------------------------//
 {
-  private static final int WHITE = 0xFFFFFF;
-  private static final int BLACK = 0x000000;
+  private static final int WHITE = Palette.WHITE_INDEX;
+  private static final int BLACK = Palette.BLACK_INDEX;
   private static final int[][] paletteTable = { { 9, 6 }, { 12, 3 } };
 
   private static boolean matchColourBits = false;
 
-  private final int[] line = new int[280];
-  private final int[] colourBits = new int[280];
+  // each byte expands to seven pixels, colour runs also depend on the column parity
+  private static final byte[] monochromeRuns = new byte[128 * 7];
+  private static final byte[][] colourRuns = new byte[2][256 * 7];
+
+  static
+  {
+    for (int value = 0; value < 256; value++)
+    {
+      int colourBit = value >> 7;
+      for (int px = 0; px < 7; px++)
+      {
+        boolean on = ((value >> px) & 0x01) != 0;
+        if (value < 128)
+          monochromeRuns[value * 7 + px] = on ? (byte) 255 : 0;
+        for (int parity = 0; parity < 2; parity++)
+          colourRuns[parity][value * 7 + px] =
+              (byte) (on ? paletteTable[colourBit][(parity + px) % 2] : BLACK);
+      }
+    }
+  }
+
+  private final byte[] line = new byte[280];
+  private final byte[] colourBits = new byte[280];
 
   // ---------------------------------------------------------------------------------//
   public OriginalHiResImage (String name, byte[] buffer, int loadAddress)
@@ -45,11 +67,6 @@ public class OriginalHiResImage extends HiResImage
     //    will call createImage () itself
   }
 
-  // https://github.com/Michaelangel007/apple2_hgr_font_tutorial
-  // hgr[ y ] = 0x2000 + (y/64)*0x28 + (y%8)*0x400 + ((y/8)&7)*0x80;
-  // or... Y = aabbbccc
-  //    address = BASE + aa * 0x28 + bb * 0x80 + ccc * 0x0400 + X
-
   // ---------------------------------------------------------------------------------//
   @Override
   protected void createMonochromeImage ()
@@ -57,26 +74,20 @@ public class OriginalHiResImage extends HiResImage
   {
     int rows = buffer.length <= 8192 ? 192 : 384;
     image = new BufferedImage (280, rows, BufferedImage.TYPE_BYTE_GRAY);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
     int element = 0;
 
     for (int page = 0; page < rows / 192; page++)
-      for (int i = 0; i < 3; i++)
-        for (int j = 0; j < 8; j++)
-          for (int k = 0; k < 8; k++)
-          {
-            int base = page * 0x2000 + i * 0x28 + j * 0x80 + k * 0x400;
-            int max = Math.min (base + 40, buffer.length);
-            for (int ptr = base; ptr < max; ptr++)
-            {
-              int value = buffer[ptr] & 0x7F;
-              for (int px = 0; px < 7; px++)
-              {
-                int val = (value >> px) & 0x01;
-                dataBuffer.setElem (element++, val == 0 ? 0 : 255);
-              }
-            }
-          }
+      for (int row = 0; row < 192; row++)
+      {
+        int base = page * 0x2000 + lineOffsets[row];
+        int max = Math.min (base + 40, buffer.length);
+        for (int ptr = base; ptr < max; ptr++)
+        {
+          System.arraycopy (monochromeRuns, (buffer[ptr] & 0x7F) * 7, pixels, element, 7);
+          element += 7;
+        }
+      }
   }
 
   // ---------------------------------------------------------------------------------//
@@ -84,47 +95,38 @@ public class OriginalHiResImage extends HiResImage
   protected void createColourImage ()
   // ---------------------------------------------------------------------------------//
   {
-    paletteIndex = paletteFactory.getCurrentPaletteIndex ();
+    // pixels are palette indices, HiResImage.applyPalette() supplies the colours
     int rows = buffer.length <= 8192 ? 192 : 384;
-    image = new BufferedImage (280, rows, BufferedImage.TYPE_INT_RGB);
-    DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
+    image = new BufferedImage (280, rows, BufferedImage.TYPE_BYTE_INDEXED,
+        paletteFactory.getCurrentPalette ().getColourModel ());
+    byte[] pixels = ((DataBufferByte) image.getRaster ().getDataBuffer ()).getData ();
     int element = 0;
 
+    Arrays.fill (line, (byte) BLACK);
+
     for (int page = 0; page < rows / 192; page++)
-      for (int i = 0; i < 3; i++)
-        for (int j = 0; j < 8; j++)
-          for (int k = 0; k < 8; k++)
-          {
-            fillLine (page * 0x2000 + i * 0x28 + j * 0x80 + k * 0x400);
-            for (int pixel : line)
-              dataBuffer.setElem (element++, pixel);
-          }
+      for (int row = 0; row < 192; row++)
+      {
+        fillLine (page * 0x2000 + lineOffsets[row]);
+        System.arraycopy (line, 0, pixels, element, line.length);
+        element += line.length;
+      }
   }
 
   // ---------------------------------------------------------------------------------//
   private void fillLine (int base)
   // ---------------------------------------------------------------------------------//
   {
-    Palette palette = paletteFactory.getCurrentPalette ();
-    int[] colours = palette.getColours ();
-
     int max = Math.min (base + 40, buffer.length);
     int linePtr = 0;
-    assert colourBits != null;
 
     for (int ptr = base; ptr < max; ptr++)
     {
-      int colourBit = (buffer[ptr] & 0x80) >> 7;
-      int value = buffer[ptr] & 0x7F;
-
-      for (int px = 0; px < 7; px++)
-      {
-        colourBits[linePtr] = colourBit;        // store the colour bit
-        int val = (value >> px) & 0x01;         // get the next pixel to draw
-        int column = (ptr + px) % 2;            // is it in an odd or even column?
-        line[linePtr++] = val == 0 ? 0 :        // black pixel
-            colours[paletteTable[colourBit][column]]; // coloured pixel - use lookup table
-      }
+      int value = buffer[ptr] & 0xFF;
+      System.arraycopy (colourRuns[ptr & 0x01], value * 7, line, linePtr, 7);
+      if (matchColourBits)
+        Arrays.fill (colourBits, linePtr, linePtr + 7, (byte) (value >> 7));
+      linePtr += 7;
     }
 
     // convert consecutive ON pixels to white
@@ -144,6 +146,22 @@ public class OriginalHiResImage extends HiResImage
       applyColourQuirks ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  boolean usesPalette ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  boolean usesColourQuirks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return true;
+  }
+
   // ---------------------------------------------------------------------------------//
   private boolean isColoured (int pixel)
   // ---------------------------------------------------------------------------------//
@@ -168,16 +186,16 @@ public class OriginalHiResImage extends HiResImage
       if (px1 == BLACK)
       {
         if (px3 == BLACK && px0 == px2 && isColoured (px0))           //     V-B-V-B
-          line[x - 2] = px0;                                          // --> V-V-V-B
+          line[x - 2] = (byte) px0;                                   // --> V-V-V-B
         else if (px3 == WHITE && px2 == WHITE && isColoured (px0))    //     V-B-W-W
-          line[x - 2] = px0;                                          // --> V-V-W-W
+          line[x - 2] = (byte) px0;                                   // --> V-V-W-W
       }
       else if (px2 == BLACK)
       {
         if (px0 == BLACK && px1 == px3 && isColoured (px3))           //     B-G-B-G 
-          line[x - 1] = px3;                                          // --> B-G-G-G
+          line[x - 1] = (byte) px3;                                   // --> B-G-G-G
         else if (px0 == WHITE && px1 == WHITE && isColoured (px3))    //     W-W-B-G
-          line[x - 1] = px3;                                          // --> W-W-G-G
+          line[x - 1] = (byte) px3;                                   // --> W-W-G-G
       }
     }
   }
@@ -0,0 +1,177 @@
+package com.bytezone.diskbrowser.applefile;
+
+import java.util.Arrays;
+
+// Apple IIGS PackBytes decoder (Tech Note #94). Each run starts with a flag byte, the
+// top two bits are the run type and the low six bits are the count - 1.
+//   00xxxxxx  1-64 literal bytes follow
+//   01xxxxxx  the next byte is repeated 1-64 times
+//   10xxxxxx  the next four bytes are repeated 1-64 times
+//   11xxxxxx  the next byte is repeated 4-256 times
+// The decoder remembers its place in the current run, so the output can be read a
+// scan line at a time even when a run crosses the end of a line.
+// -----------------------------------------------------------------------------------//
+class PackBytes
+// -----------------------------------------------------------------------------------//
+{
+  private final byte[] buffer;
+  private final int max;
+  private int ptr;
+
+  private int type;
+  private int remaining;                  // bytes still to come from the current run
+  private byte value;
+  private final byte[] pattern = new byte[4];
+  private int patternPtr;
+
+  // ---------------------------------------------------------------------------------//
+  PackBytes (byte[] buffer, int ptr, int max)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.buffer = buffer;
+    this.ptr = ptr;
+    this.max = max;
+  }
+
+  // returns the number of bytes decoded, which is less than length at the end of data
+  // ---------------------------------------------------------------------------------//
+  int read (byte[] dst, int dstPtr, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    int start = dstPtr;
+    int end = dstPtr + length;
+
+    while (dstPtr < end)
+    {
+      if (remaining == 0 && !nextRun ())
+        break;
+
+      int size = Math.min (remaining, end - dstPtr);
+
+      switch (type)
+      {
+        case 0:
+          size = Math.min (size, max - ptr);        // literal may be truncated
+          if (size == 0)
+          {
+            remaining = 0;
+            continue;
+          }
+          System.arraycopy (buffer, ptr, dst, dstPtr, size);
+          ptr += size;
+          break;
+
+        case 2:
+          copyPattern (dst, dstPtr, size);
+          break;
+
+        default:
+          Arrays.fill (dst, dstPtr, dstPtr + size, value);
+      }
+
+      dstPtr += size;
+      remaining -= size;
+    }
+
+    return dstPtr - start;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean nextRun ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (ptr >= max - 1)                   // minimum 2 bytes needed
+      return false;
+
+    type = (buffer[ptr] & 0xC0) >>> 6;                // 0-3
+    int count = (buffer[ptr++] & 0x3F) + 1;           // 1-64
+
+    switch (type)
+    {
+      case 0:                             // 2-65 bytes
+        remaining = count;
+        break;
+
+      case 1:                             // 2 bytes
+        value = buffer[ptr++];
+        remaining = count;
+        break;
+
+      case 2:                             // 5 bytes
+        for (int i = 0; i < 4; i++)
+          pattern[i] = ptr < max ? buffer[ptr++] : 0;
+        patternPtr = 0;
+        remaining = count * 4;
+        break;
+
+      case 3:                             // 2 bytes
+        value = buffer[ptr++];
+        remaining = count * 4;
+        break;
+    }
+
+    return true;
+  }
+
+  // copy the four byte pattern, then keep doubling the copied area
+  // ---------------------------------------------------------------------------------//
+  private void copyPattern (byte[] dst, int dstPtr, int size)
+  // ---------------------------------------------------------------------------------//
+  {
+    int first = Math.min (size, 4);
+    for (int i = 0; i < first; i++)
+      dst[dstPtr + i] = pattern[(patternPtr + i) & 0x03];
+
+    for (int done = first; done < size; done *= 2)
+      System.arraycopy (dst, dstPtr, dst, dstPtr + done, Math.min (done, size - done));
+
+    patternPtr = (patternPtr + size) & 0x03;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static byte[] unpack (byte[] buffer, int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] newBuffer = new byte[getUnpackedSize (buffer, ptr)];
+    new PackBytes (buffer, ptr, buffer.length).read (newBuffer, 0, newBuffer.length);
+    return newBuffer;
+  }
+
+  // only reads the flag bytes, so it is much cheaper than decoding
+  // ---------------------------------------------------------------------------------//
+  static int getUnpackedSize (byte[] buffer, int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    int size = 0;
+    while (ptr < buffer.length)
+    {
+      int type = (buffer[ptr] & 0xC0) >>> 6;          // 0-3
+      int count = (buffer[ptr++] & 0x3F) + 1;         // 1-64
+
+      switch (type)
+      {
+        case 0:
+          ptr += count;
+          size += count;
+          break;
+
+        case 1:
+          ptr++;
+          size += count;
+          break;
+
+        case 2:
+          ptr += 4;
+          size += count * 4;
+          break;
+
+        case 3:
+          ptr++;
+          size += count * 4;
+          break;
+      }
+    }
+
+    return size;
+  }
+}
@@ -1,5 +1,8 @@
 package com.bytezone.diskbrowser.applefile;
 
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+
 // -----------------------------------------------------------------------------------//
 public class Palette
 // -----------------------------------------------------------------------------------//
@@ -31,8 +34,13 @@ public class Palette
   Legend:
    LR: Lo-Res   HR: Hi-Res   DHR: Double Hi-Res 
    */
+  // extra entries after the 16 palette colours, used by the hi-res renderer
+  static final int BLACK_INDEX = 16;
+  static final int WHITE_INDEX = 17;
+
   private final String name;
   private final int[] colours;
+  private IndexColorModel colourModel;
 
   // ---------------------------------------------------------------------------------//
   public Palette (String name, int[] colours)
@@ -56,6 +64,22 @@ public class Palette
     return colours;
   }
 
+  // ---------------------------------------------------------------------------------//
+  IndexColorModel getColourModel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (colourModel == null)
+    {
+      int[] rgb = new int[WHITE_INDEX + 1];
+      System.arraycopy (colours, 0, rgb, 0, colours.length);
+      rgb[BLACK_INDEX] = 0x000000;
+      rgb[WHITE_INDEX] = 0xFFFFFF;
+      colourModel =
+          new IndexColorModel (8, rgb.length, rgb, 0, false, -1, DataBuffer.TYPE_BYTE);
+    }
+    return colourModel;
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public String toString ()
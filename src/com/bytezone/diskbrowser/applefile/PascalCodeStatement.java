@@ -226,15 +226,82 @@ public class PascalCodeStatement implements PascalConstants
     }
   }
 
+  // The length of the statement at ptr, worked out as the constructor does but without
+  // building any text, so a procedure can be walked without being decoded.
   // ---------------------------------------------------------------------------------//
-  private int getWord (byte[] buffer, int ptr)
+  static int getLength (byte[] buffer, int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    int val = buffer[ptr] & 0xFF;
+    if (val <= 127 || val >= 216)
+      return 1;
+
+    int length = mnemonicSize[val - 128];
+    if (length == 1)
+      return length;
+
+    switch (val)
+    {
+      case 172: // XJP
+        int padding = (ptr % 2) == 0 ? 1 : 0;
+        int p1 = getWord (buffer, ptr + padding + 1);
+        int p2 = getWord (buffer, ptr + padding + 3);
+        return (p2 - p1 + 1) * 2 + 7 + padding;
+
+      case 179: // LDC
+        padding = ptr % 2 == 0 ? 0 : 1;
+        return (buffer[ptr + 1] & 0xFF) * 2 + padding + 2;
+
+      case 166: // LSA
+      case 208: // LPA
+        return (buffer[ptr + 1] & 0xFF) + 2;
+
+      case 162: // INC
+      case 163: // IND
+      case 164: // IXA
+      case 165: // LAO
+      case 168: // MOV
+      case 169: // LDO
+      case 171: // SRO
+      case 198: // LLA
+      case 202: // LDL
+      case 204: // STL
+      case 213: // BPT
+        return getLengthOfB (buffer[ptr + 1]) + 1;
+
+      case 157: // LDE
+      case 167: // LAE
+      case 178: // LDA
+      case 182: // LOD
+      case 184: // STR
+      case 209: // STE
+        return getLengthOfB (buffer[ptr + 2]) + 2;
+
+      case 175:
+      case 176:
+      case 177:
+      case 180:
+      case 181:
+      case 183:
+        p1 = buffer[ptr + 1] & 0xFF;
+        if (p1 == 10 || p1 == 12)
+          return getLengthOfB (buffer[ptr + 2]) + 2;
+        return length;
+
+      default:
+        return length;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static int getWord (byte[] buffer, int ptr)
   // ---------------------------------------------------------------------------------//
   {
     return (buffer[ptr + 1] & 0xFF) * 256 + (buffer[ptr] & 0xFF);
   }
 
   // ---------------------------------------------------------------------------------//
-  private int getLengthOfB (byte b)
+  private static int getLengthOfB (byte b)
   // ---------------------------------------------------------------------------------//
   {
     return (b & 0x80) == 0x80 ? 2 : 1;
@@ -253,7 +320,7 @@ public class PascalCodeStatement implements PascalConstants
   private void setParameters (int p1)
   // ---------------------------------------------------------------------------------//
   {
-    description = description.replaceFirst (":1", p1 + "");
+    description = replaceFirst (description, ":1", p1 + "");
     extras = "#" + p1;
   }
 
@@ -263,7 +330,7 @@ public class PascalCodeStatement implements PascalConstants
   {
     setParameters (p1);
     extras += ", #" + p2;
-    description = description.replaceFirst (":2", p2 + "");
+    description = replaceFirst (description, ":2", p2 + "");
   }
 
   // ---------------------------------------------------------------------------------//
@@ -271,7 +338,18 @@ public class PascalCodeStatement implements PascalConstants
   // ---------------------------------------------------------------------------------//
   {
     setParameters (p1, p2);
-    description = description.replaceFirst (":3", p3);
+    description = replaceFirst (description, ":3", p3);
+  }
+
+  // String.replaceFirst() compiles a regex every time
+  // ---------------------------------------------------------------------------------//
+  private String replaceFirst (String text, String target, String value)
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = text.indexOf (target);
+    if (pos < 0)
+      return text;
+    return text.substring (0, pos) + value + text.substring (pos + target.length ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -318,7 +396,10 @@ public class PascalCodeStatement implements PascalConstants
     }
     StringBuilder text = new StringBuilder ();
     for (int i = 0; i < length; i++)
-      text.append (String.format ("%02X ", buffer[offset + i]));
+    {
+      text.append (HexFormatter.format2 (buffer[offset + i]));
+      text.append (' ');
+    }
     if (text.length () > 0)
       text.deleteCharAt (text.length () - 1);
     return text.toString ();
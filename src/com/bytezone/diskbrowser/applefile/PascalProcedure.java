@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.PascalCodeStatement.Jump;
@@ -8,11 +9,10 @@ import com.bytezone.diskbrowser.utilities.HexFormatter;
 import com.bytezone.diskbrowser.utilities.Utility;
 
 // -----------------------------------------------------------------------------------//
-public class PascalProcedure
+public class PascalProcedure extends AbstractFile
 // -----------------------------------------------------------------------------------//
 {
   // all procedures have these fields
-  byte[] buffer;
   int procOffset;
   int offset;
   int slot;
@@ -25,15 +25,22 @@ public class PascalProcedure
   int codeEnd;
   int parmSize;
   int dataSize;
-  List<PascalCodeStatement> statements = new ArrayList<> ();
-  AssemblerProgram assembler;
   int jumpTable = -8;
 
+  // filled in the first time the procedure is displayed
+  private boolean decoded;
+  private String codeText = "";
+  private String procedureText;
+
+  private List<Integer> strings;      // offsets of the LSA statements
+
+  // Only the procedure header is read here, the code is decoded when it is displayed.
   // ---------------------------------------------------------------------------------//
   public PascalProcedure (byte[] buffer, int slot)
   // ---------------------------------------------------------------------------------//
   {
-    this.buffer = buffer;
+    super ("", buffer);
+
     this.slot = slot;
     int p = buffer.length - 2 - slot * 2;
     offset = Utility.getShort (buffer, p);
@@ -49,14 +56,34 @@ public class PascalProcedure
       parmSize = Utility.getShort (buffer, procOffset - 6);
       dataSize = Utility.getShort (buffer, procOffset - 8);
     }
+
+    name = "Proc " + getProcedureNo ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean isValid ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return valid;
   }
 
+  // ---------------------------------------------------------------------------------//
+  public int getProcedureNo ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return valid ? procedureNo : slot;
+  }
+
+  // The statements are only needed to build the listing, so they are formatted as soon
+  // as they have been decoded and then thrown away.
   // ---------------------------------------------------------------------------------//
   private void decode ()
   // ---------------------------------------------------------------------------------//
   {
-    if (statements.size () > 0 || assembler != null)
+    if (decoded)
       return;
+    decoded = true;
+
     int ptr = procOffset - codeStart - 2;
     int max = procOffset + jumpTable;
 
@@ -72,9 +99,10 @@ public class PascalProcedure
       return;
     }
 
+    List<PascalCodeStatement> statements = new ArrayList<> ();
+
     while (ptr < max)
     {
-      //      System.out.printf ("ptr:%d, max:%d, buf:%d %n", ptr, max, buffer.length);
       if (ptr >= buffer.length || ptr < 0)
       {
         System.out.printf ("Ptr outside buffer: %d %d%n", ptr, buffer.length);
@@ -106,40 +134,81 @@ public class PascalProcedure
         statements.remove (statements.size () - 1);
     }
 
-    // Mark statements that are jump targets
+    // Collect the jump targets (the exit statement's own jumps are not followed)
     int actualEnd = procOffset - codeEnd - 4;
+    BitSet targets = new BitSet (buffer.length);
+    if (actualEnd >= 0)
+      targets.set (actualEnd);
+    for (PascalCodeStatement cs : statements)
+      if (cs.ptr != actualEnd)
+        for (Jump cj : cs.jumps)
+          if (cj.addressTo >= 0)
+            targets.set (cj.addressTo);
+
+    StringBuilder text = new StringBuilder ();
     for (PascalCodeStatement cs : statements)
     {
-      if (cs.ptr == actualEnd)
-      {
-        cs.jumpTarget = true;
-        continue;
-      }
-      for (Jump cj : cs.jumps)
-        for (PascalCodeStatement cs2 : statements)
-          if (cs2.ptr == cj.addressTo)
-          {
-            cs2.jumpTarget = true;
-            break;
-          }
+      cs.jumpTarget = targets.get (cs.ptr);
+      text.append (cs);
     }
+
+    codeText = text.toString ();
   }
 
+  // The statements are walked by length only, the same way decode () walks them, so
+  // the segment can list the strings without decoding every procedure.
   // ---------------------------------------------------------------------------------//
-  public List<PascalCodeStatement> extractStrings ()
+  List<Integer> getStrings ()
   // ---------------------------------------------------------------------------------//
   {
-    decode ();
-    List<PascalCodeStatement> strings = new ArrayList<> ();
-    for (PascalCodeStatement cs : statements)
-      if (cs.val == 166)
-        strings.add (cs);
+    if (strings != null)
+      return strings;
+
+    strings = new ArrayList<> ();
+    if (!valid || codeEnd == 0)
+      return strings;
+
+    int table = -8;
+    int ptr = procOffset - codeStart - 2;
+    int max = procOffset + table;
+
+    while (ptr < max && ptr >= 0 && ptr < buffer.length)
+    {
+      int val = buffer[ptr] & 0xFF;
+      int length = PascalCodeStatement.getLength (buffer, ptr);
+      if (length <= 0)
+        break;
+
+      if (val == 166)
+        strings.add (ptr);
+      else if ((val == 185 || val == 161) && buffer[ptr + 1] < table)
+      {
+        table = buffer[ptr + 1];
+        max = procOffset + table;
+      }
+      ptr += length;
+    }
+
     return strings;
   }
 
   // ---------------------------------------------------------------------------------//
   @Override
-  public String toString ()
+  public String getText ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (procedureText == null)
+      procedureText = buildText ();
+
+    if (codeEnd == 0 && valid)        // depends on the assembler preferences
+      return procedureText + (assembler == null ? "Null assembler in PascalProcedure"
+          : assembler.getAssembler () + "\n");
+
+    return procedureText;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private String buildText ()
   // ---------------------------------------------------------------------------------//
   {
     if (!valid)
@@ -172,17 +241,9 @@ public class PascalProcedure
     if (false)
       text.append (HexFormatter.format (buffer, ptr, codeStart + jumpTable + 2) + "\n\n");
 
-    if (codeEnd == 0)
+    if (codeEnd != 0)                 // assembler is added by getText ()
     {
-      if (assembler != null)
-        text.append (assembler.getAssembler () + "\n");
-      else
-        text.append ("Null assembler in PascalProcedure");
-    }
-    else
-    {
-      for (PascalCodeStatement cs : statements)
-        text.append (cs);
+      text.append (codeText);
 
       if (jumpTable < -8 && false)
       {
@@ -197,4 +258,34 @@ public class PascalProcedure
     }
     return text.toString ();
   }
-}
\ No newline at end of file
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getAssembler ()
+  // ---------------------------------------------------------------------------------//
+  {
+    decode ();
+    return codeEnd == 0 && assembler != null ? assembler.getAssembler () : getText ();
+  }
+
+  // the code, jump table and header of this procedure only
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getHexDump ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!valid)
+      return "Invalid procedure";
+
+    int start = Math.max (0, procOffset - codeStart - 2);
+    return HexFormatter.format (buffer, start, procOffset + 2 - start, start);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return getText ();
+  }
+}
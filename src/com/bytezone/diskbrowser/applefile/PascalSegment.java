@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.applefile;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.bytezone.diskbrowser.utilities.FileFormatException;
@@ -31,6 +32,7 @@ public class PascalSegment extends AbstractFile implements PascalConstants
   private final int slot;
   private int totalProcedures;
   private List<PascalProcedure> procedures;
+  private String segmentText;
   //  private List<MultiDiskAddress> addresses;
 
   // ---------------------------------------------------------------------------------//
@@ -125,6 +127,18 @@ public class PascalSegment extends AbstractFile implements PascalConstants
       procedures.add (new PascalProcedure (buffer, i));
   }
 
+  // Only the procedure headers are read here, the code of each procedure is not decoded
+  // until that procedure is displayed.
+  // ---------------------------------------------------------------------------------//
+  public List<PascalProcedure> getProcedures ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (procedures == null)
+      buildProcedureList ();
+
+    return Collections.unmodifiableList (procedures);
+  }
+
   // ---------------------------------------------------------------------------------//
   public String toText ()
   // ---------------------------------------------------------------------------------//
@@ -142,6 +156,18 @@ public class PascalSegment extends AbstractFile implements PascalConstants
   @Override
   public String getText ()
   // ---------------------------------------------------------------------------------//
+  {
+    if (segmentText == null)
+      segmentText = buildText ();
+
+    return segmentText;
+  }
+
+  // The procedure listings are shown by the procedures themselves, so nothing here
+  // needs a procedure to be decoded.
+  // ---------------------------------------------------------------------------------//
+  private String buildText ()
+  // ---------------------------------------------------------------------------------//
   {
     if (procedures == null)
       buildProcedureList ();
@@ -187,16 +213,9 @@ public class PascalSegment extends AbstractFile implements PascalConstants
 
     text.append ("\nStrings\n=======\n");
     for (PascalProcedure pp : procedures)
-    {
-      List<PascalCodeStatement> strings = pp.extractStrings ();
-      for (PascalCodeStatement cs : strings)
-        text.append (
-            String.format (" %2d   %04X   %s%n", pp.procedureNo, cs.ptr, cs.text));
-    }
-
-    for (PascalProcedure procedure : procedures)
-      if (procedure.valid)
-        text.append (procedure);
+      for (int ptr : pp.getStrings ())
+        text.append (String.format (" %2d   %04X   %s%n", pp.procedureNo, ptr,
+            HexFormatter.getPascalString (buffer, ptr + 1)));
 
     return text.toString ();
   }
@@ -3,6 +3,7 @@ package com.bytezone.diskbrowser.applefile;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -91,23 +92,31 @@ public class SHRPictureFile1 extends HiResImage
   void createMonochromeImage ()
   // ---------------------------------------------------------------------------------//
   {
+    if (mainBlock == null)
+    {
+      System.out.println ("No MAIN block in image file");
+      return;
+    }
+
     image = new BufferedImage (320, 200, BufferedImage.TYPE_BYTE_GRAY);
     DataBuffer db = image.getRaster ().getDataBuffer ();
 
+    byte[] line = new byte[160];
     int element = 0;
-    int ptr = 0;
     for (int row = 0; row < 200; row++)
+    {
+      unpackLine (row, line);
       for (int col = 0; col < 160; col++)
       {
-        int pix1 = (buffer[ptr] & 0xF0) >> 4;
-        int pix2 = buffer[ptr] & 0x0F;
+        int pix1 = (line[col] & 0xF0) >> 4;
+        int pix2 = line[col] & 0x0F;
         if (pix1 > 0)
           db.setElem (element, 255);
         if (pix2 > 0)
           db.setElem (element + 1, 255);
         element += 2;
-        ptr++;
       }
+    }
   }
 
   // ---------------------------------------------------------------------------------//
@@ -131,8 +140,9 @@ public class SHRPictureFile1 extends HiResImage
         BufferedImage.TYPE_INT_RGB);
     DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
 
+    int dataWidth = mainBlock.dataWidth;
+    byte[] buffer = new byte[dataWidth];              // one unpacked scan line
     int element = 0;
-    int ptr = 0;
 
     for (int line = 0; line < mainBlock.numScanLines; line++)
     {
@@ -150,17 +160,32 @@ public class SHRPictureFile1 extends HiResImage
           multipalBlock != null ? multipalBlock.colorTables[line]
               : mainBlock.colorTables[lo & 0x0F];
 
-      int dataWidth = mainBlock.pixelsPerScanLine / (mode320 ? 2 : 4);
+      unpackLine (line, buffer);
 
       if (mode320)       // two pixels per byte, each shown twice
-        ptr = mode320Line (ptr, element, dataWidth, colorTable, dataBuffer, imageWidth);
+        mode320Line (buffer, 0, element, dataWidth, colorTable, dataBuffer, imageWidth);
       else              // four pixels per byte
-        ptr = mode640Line (ptr, element, dataWidth, colorTable, dataBuffer, imageWidth);
+        mode640Line (buffer, 0, element, dataWidth, colorTable, dataBuffer, imageWidth);
 
       element += imageWidth * 2;        // drawing two lines at a time
     }
   }
 
+  // Scan lines are unpacked as they are drawn, so the whole image is never expanded.
+  // Missing or short lines are drawn as colour 0.
+  // ---------------------------------------------------------------------------------//
+  private void unpackLine (int line, byte[] buffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    Arrays.fill (buffer, (byte) 0);
+    if (line < mainBlock.numScanLines)
+    {
+      byte[] packedScanLine = mainBlock.packedScanLines[line];
+      new PackBytes (packedScanLine, 0, packedScanLine.length).read (buffer, 0,
+          buffer.length);
+    }
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public String getText ()
@@ -327,28 +352,6 @@ public class SHRPictureFile1 extends HiResImage
       }
 
       dataWidth = pixelsPerScanLine / (mode640 ? 4 : 2);
-
-      byte[] unpackedBuffer = new byte[numScanLines * dataWidth];
-      ptr = 0;
-      for (int line = 0; line < numScanLines; line++)
-      {
-        //        if (isOddAndEmpty (packedScanLines[line]))
-        //        {
-        //          System.out.println ("Odd number of bytes in empty buffer in " + name);
-        //          break;
-        //        }
-
-        int bytesUnpacked = unpack (packedScanLines[line], 0,
-            packedScanLines[line].length, unpackedBuffer, ptr);
-
-        if (bytesUnpacked != dataWidth && false)
-          System.out.printf ("Unexpected line width %3d  %5d  %3d  %3d%n", line, ptr,
-              bytesUnpacked, dataWidth);
-
-        ptr += dataWidth;
-      }
-
-      SHRPictureFile1.this.buffer = unpackedBuffer;
     }
 
     // -------------------------------------------------------------------------------//
@@ -3,6 +3,7 @@ package com.bytezone.diskbrowser.applefile;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import com.bytezone.diskbrowser.prodos.ProdosConstants;
@@ -21,6 +22,14 @@ public class SHRPictureFile2 extends HiResImage
   int frameNumber;
   int delay;
 
+  // Frames are drawn by repainting the rows each frame changes. Once every frame has
+  // been seen the animation repeats exactly, so the second pass is kept for reuse.
+  static final int MAX_CACHED_FRAMES = 32;
+  private BufferedImage[] frameCache;
+  private BufferedImage liveImage;
+  private int cycle;
+  private final BitSet changedRows = new BitSet ();
+
   // see Graphics & Animation.2mg
 
   // ---------------------------------------------------------------------------------//
@@ -63,9 +72,7 @@ public class SHRPictureFile2 extends HiResImage
         colorTables = new ColorTable[1];
         colorTables[0] = new ColorTable (0, this.buffer, 0);
 
-        byte[] newBuffer = new byte[calculateBufferSize (buffer, 0x222)];
-        unpack (buffer, 0x222, buffer.length, newBuffer, 0);
-        buffer = newBuffer;
+        buffer = PackBytes.unpack (buffer, 0x222);
 
         rows = buffer.length / 160;
         controlBytes = new byte[rows];    // all pointing to 0th color table
@@ -73,9 +80,7 @@ public class SHRPictureFile2 extends HiResImage
         break;
 
       case 1:                             // packed version of PIC/$00
-        newBuffer = new byte[calculateBufferSize (buffer, 0)];
-        unpack (buffer, 0, buffer.length, newBuffer, 0);
-        buffer = newBuffer;
+        buffer = PackBytes.unpack (buffer, 0);
 
         controlBytes = new byte[rows];
         System.arraycopy (this.buffer, 32000, controlBytes, 0, controlBytes.length);
@@ -95,9 +100,7 @@ public class SHRPictureFile2 extends HiResImage
 
         // Apple IIGS Tech Note #46
         // https://www.prepressure.com/library/file-formats/pict
-        newBuffer = new byte[calculateBufferSize (buffer, 0)];
-        unpack (buffer, 0, buffer.length, newBuffer, 0);
-        buffer = newBuffer;
+        buffer = PackBytes.unpack (buffer, 0);
 
         int mode = Utility.getShort (this.buffer, 0);
         int rect1 = Utility.getLong (this.buffer, 2);
@@ -123,9 +126,7 @@ public class SHRPictureFile2 extends HiResImage
           colorTables[i].reverse ();
         }
 
-        newBuffer = new byte[calculateBufferSize (buffer, 6404)];
-        unpack (buffer, 6404, buffer.length, newBuffer, 0);
-        buffer = newBuffer;
+        buffer = PackBytes.unpack (buffer, 6404);
 
         break;
 
@@ -254,49 +255,50 @@ public class SHRPictureFile2 extends HiResImage
   void createColourImage ()
   // ---------------------------------------------------------------------------------//
   {
-    int imageWidth = 640;
-    image = new BufferedImage (imageWidth, rows * 2, BufferedImage.TYPE_INT_RGB);
+    image = new BufferedImage (640, rows * 2, BufferedImage.TYPE_INT_RGB);
     DataBuffer dataBuffer = image.getRaster ().getDataBuffer ();
 
-    int element = 0;
-    int ptr = 0;
+    for (int line = 0; line < rows; line++)
+      drawLine (line, dataBuffer);
+
+    liveImage = image;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void drawLine (int line, DataBuffer dataBuffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    int imageWidth = 640;
+    int ptr = line * 160;
+    int element = line * imageWidth * 2;    // each line is drawn twice
 
     boolean mode320 = true;
-    boolean fillMode = false;
     ColorTable colorTable = null;
-    int max = 160;
 
-    for (int line = 0; line < rows; line++)
+    if (controlBytes != null)
     {
-      if (controlBytes != null)
-      {
-        int controlByte = controlBytes[line] & 0xFF;
-        colorTable = colorTables[controlByte & 0x0F];
-
-        mode320 = (controlByte & 0x80) == 0;
-        fillMode = (controlByte & 0x20) != 0;
-      }
-      else if (line < colorTables.length)
-        colorTable = colorTables[line];
-      else
-        colorTable = null;
-
-      if (mode320)       // two pixels per col
-        ptr = mode320Line (ptr, element, max, colorTable, dataBuffer, imageWidth);
-      else              // four pixels per col
-        ptr = mode640Line (ptr, element, max, colorTable, dataBuffer, imageWidth);
-
-      element += imageWidth * 2;        // skip line already drawn
+      int controlByte = controlBytes[line] & 0xFF;
+      colorTable = colorTables[controlByte & 0x0F];
+      mode320 = (controlByte & 0x80) == 0;
     }
+    else if (line < colorTables.length)
+      colorTable = colorTables[line];
+
+    if (mode320)       // two pixels per col
+      mode320Line (buffer, ptr, element, 160, colorTable, dataBuffer, imageWidth);
+    else              // four pixels per col
+      mode640Line (buffer, ptr, element, 160, colorTable, dataBuffer, imageWidth);
   }
 
   // ---------------------------------------------------------------------------------//
   public void nextFrame ()
   // ---------------------------------------------------------------------------------//
   {
+    int frame = frameNumber;
     int ptr = framePointers.get (frameNumber++);
     frameNumber %= framePointers.size ();
 
+    changedRows.clear ();
     while (true)
     {
       int offset = Utility.getShort (buffer, ptr);
@@ -306,9 +308,32 @@ public class SHRPictureFile2 extends HiResImage
       buffer[offset] = buffer[ptr + 2];
       buffer[offset + 1] = buffer[ptr + 3];
 
+      changedRows.set (offset / 160);
+      changedRows.set ((offset + 1) / 160);
+
       ptr += 4;
     }
-    createImage ();
+
+    if (frameCache != null && frameCache[frame] != null)
+      image = frameCache[frame];
+    else if (monochrome || liveImage == null)
+      createImage ();
+    else
+    {
+      // only the rows that this frame changed need to be drawn again
+      DataBuffer dataBuffer = liveImage.getRaster ().getDataBuffer ();
+      for (int row = changedRows.nextSetBit (0); row >= 0 && row < rows;
+          row = changedRows.nextSetBit (row + 1))
+        drawLine (row, dataBuffer);
+      image = liveImage;
+
+      if (cycle == 1 && frameCache != null)
+        frameCache[frame] = new BufferedImage (liveImage.getColorModel (),
+            liveImage.copyData (null), false, null);
+    }
+
+    if (frameNumber == 0 && ++cycle == 1 && framePointers.size () <= MAX_CACHED_FRAMES)
+      frameCache = new BufferedImage[framePointers.size ()];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.cpm;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -18,6 +19,8 @@ import com.bytezone.diskbrowser.gui.DataSource;
 public class CPMDisk extends AbstractFormattedDisk
 // -----------------------------------------------------------------------------------//
 {
+  private static final byte[] VERSION_TEXT = "DIR ERA TYPESAVEREN USER".getBytes ();
+
   private final Color green = new Color (0, 200, 0);
 
   public final SectorType catalogSector = new SectorType ("Catalog", green);
@@ -33,6 +36,7 @@ public class CPMDisk extends AbstractFormattedDisk
   private int version;      // http://www.seasip.info/Cpm/format22.html
   //                        // http://www.seasip.info/Cpm/format31.html
   private final DefaultMutableTreeNode volumeNode;
+  private final DirectoryEntry[] blockOwners;       // the file that uses each block
 
   // ---------------------------------------------------------------------------------//
   public CPMDisk (Disk disk)
@@ -52,17 +56,10 @@ public class CPMDisk extends AbstractFormattedDisk
 
     setEmptyByte ((byte) 0xE5);
 
-    // search for the version string
-    for (int i = 8; i >= 4; i -= 2)
-    {
-      byte[] buffer = disk.readBlock (0, i);
-      String text = new String (buffer, 16, 24);
-      if ("DIR ERA TYPESAVEREN USER".equals (text))
-      {
-        version = buffer[41] & 0xFF;
-        break;
-      }
-    }
+    version = Math.max (getVersion (disk), 0);
+    blockOwners = new DirectoryEntry[disk.getTotalBlocks ()];
+
+    byte[] buffer = new byte[disk.getBlockSize ()];       // reused for each sector
 
     DefaultMutableTreeNode rootNode = getCatalogTreeRoot ();
     volumeNode = new DefaultMutableTreeNode ();
@@ -73,7 +70,7 @@ public class CPMDisk extends AbstractFormattedDisk
       DiskAddress da = disk.getDiskAddress (3, sector);
 
       sectorTypes[da.getBlockNo ()] = catalogSector;
-      byte[] buffer = disk.readBlock (da);
+      disk.readBlock (da, buffer, 0);
       int b1 = buffer[0] & 0xFF;
       int b2 = buffer[1] & 0xFF;
       if (b1 == 0xE5)
@@ -93,12 +90,19 @@ public class CPMDisk extends AbstractFormattedDisk
           break;
 
         DirectoryEntry entry = new DirectoryEntry (this, buffer, i);
+        DirectoryEntry parent = findParent (entry);
+        DirectoryEntry owner = parent == null ? entry : parent;
+
         SectorType sectorType = getSectorType (entry.getType ());
         for (DiskAddress block : entry.getSectors ())
+        {
+          int blockNo = block.getBlockNo ();
           if (!disk.isBlockEmpty (block))
-            sectorTypes[block.getBlockNo ()] = sectorType;
+            sectorTypes[blockNo] = sectorType;
+          if (blockNo < blockOwners.length && blockOwners[blockNo] == null)
+            blockOwners[blockNo] = owner;
+        }
 
-        DirectoryEntry parent = findParent (entry);
         if (parent == null)
         {
           fileEntries.add (entry);
@@ -161,6 +165,18 @@ public class CPMDisk extends AbstractFormattedDisk
     return null;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String getSectorFilename (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    int blockNo = da.getBlockNo ();
+    if (blockNo < 0 || blockNo >= blockOwners.length || blockOwners[blockNo] == null)
+      return "";
+
+    return blockOwners[blockNo].getUniqueName ();
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public DataSource getFormattedSector (DiskAddress da)
@@ -201,35 +217,48 @@ public class CPMDisk extends AbstractFormattedDisk
     return new DefaultAppleFileSource ("CPM Disk ", text.toString (), this);
   }
 
+  // The version string is in the boot sectors, which may be in one of three places.
+  // Returns -1 if it wasn't found.
+  // ---------------------------------------------------------------------------------//
+  private static int getVersion (Disk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int i = 8; i >= 4; i -= 2)
+    {
+      ByteBuffer buffer = disk.viewBlock (disk.getDiskAddress (0, i));
+      if (matches (buffer, 16, VERSION_TEXT))
+        return buffer.get (41) & 0xFF;
+    }
+
+    return -1;
+  }
+
+  // Checks the directory without copying any sectors. Most disks fail on the first
+  // entry, so only a CP/M disk ever has more than one sector examined.
   // ---------------------------------------------------------------------------------//
   public static boolean isCorrectFormat (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
     disk.setInterleave (3);
 
-    for (int i = 8; i >= 4; i -= 2)
+    int version = getVersion (disk);
+    if (version >= 0)
     {
-      byte[] buffer = disk.readBlock (0, i);
-      String text = new String (buffer, 16, 24);
-      if ("DIR ERA TYPESAVEREN USER".equals (text))
-      {
-        int version = buffer[41] & 0xFF;
-        System.out.printf ("CPM version %d%n", version);
-        return true;
-      }
+      System.out.printf ("CPM version %d%n", version);
+      return true;
     }
 
     for (int sector = 0; sector < 8; sector++)
     {
-      byte[] buffer = disk.readBlock (3, sector);
+      ByteBuffer buffer = disk.viewBlock (disk.getDiskAddress (3, sector));
 
       // check if entire sector is empty (everything == 0xE5)
-      if (bufferContainsAll (buffer, (byte) 0xE5))
+      if ((buffer.get (0) & 0xFF) == 0xE5 && bufferContainsAll (buffer, (byte) 0xE5))
         break;
 
-      for (int i = 0; i < buffer.length; i += 32)
+      for (int i = 0; i < buffer.limit (); i += 32)
       {
-        int val = buffer[i] & 0xFF;
+        int val = buffer.get (i) & 0xFF;
         if (val == 0xE5)
           break;
 
@@ -238,7 +267,7 @@ public class CPMDisk extends AbstractFormattedDisk
 
         for (int j = 1; j <= 8; j++)
         {
-          val = buffer[i + j] & 0xFF;
+          val = buffer.get (i + j) & 0xFF;
           if (val < 32 || (val > 126 && val != 0xE5))
             return false;
         }
@@ -249,11 +278,21 @@ public class CPMDisk extends AbstractFormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
-  private static boolean bufferContainsAll (byte[] buffer, byte value)
+  private static boolean matches (ByteBuffer buffer, int offset, byte[] value)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int i = 0; i < value.length; i++)
+      if (buffer.get (offset + i) != value[i])
+        return false;
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static boolean bufferContainsAll (ByteBuffer buffer, byte value)
   // ---------------------------------------------------------------------------------//
   {
-    for (byte b : buffer)
-      if (b != value)
+    for (int i = 0; i < buffer.limit (); i++)
+      if (buffer.get (i) != value)
         return false;
     return true;
   }
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.cpm;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
@@ -33,6 +34,7 @@ class DirectoryEntry implements AppleFileSource
 
   private final List<DirectoryEntry> entries = new ArrayList<> ();
   private final List<DiskAddress> blocks = new ArrayList<> ();
+  private final BitSet blockNumbers = new BitSet ();
   private final boolean readOnly;
   private final boolean systemFile;
 
@@ -61,22 +63,7 @@ class DirectoryEntry implements AppleFileSource
     recordsUsed = buffer[offset + 15] & 0xFF;
     System.arraycopy (buffer, offset + 16, blockList, 0, 16);
 
-    Disk disk = parent.getDisk ();
-    for (byte b : blockList)
-    {
-      if (b == 0)
-        break;
-
-      int blockNumber;
-
-      if ((b & 0x80) == 0)
-        blockNumber = (b * 4 + 48);
-      else
-        blockNumber = (b & 0x7F) * 4;
-
-      for (int i = 0; i < 4; i++)
-        blocks.add (new AppleDiskAddress (disk, blockNumber + i));
-    }
+    addBlocks (blockList);
     //    if (name.equals ("cp/m"))
     //      for (DiskAddress da : blocks)
     //        System.out.println (da);
@@ -102,16 +89,32 @@ class DirectoryEntry implements AppleFileSource
   // ---------------------------------------------------------------------------------//
   {
     entries.add (entry);
+    addBlocks (entry.blockList);
+  }
 
-    Disk disk = parent.getDisk ();
-    for (byte b : entry.blockList)
+  // Each allocation block is four disk blocks. Extents after the first used to ignore
+  // the high bit, which gave negative block numbers.
+  // ---------------------------------------------------------------------------------//
+  private void addBlocks (byte[] blockList)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (byte b : blockList)
     {
       if (b == 0)
         break;
 
-      int blockNumber = b * 4 + 48;
+      int blockNumber;
+
+      if ((b & 0x80) == 0)
+        blockNumber = (b * 4 + 48);
+      else
+        blockNumber = (b & 0x7F) * 4;
+
       for (int i = 0; i < 4; i++)
+      {
         blocks.add (new AppleDiskAddress (disk, blockNumber + i));
+        blockNumbers.set (blockNumber + i);
+      }
     }
   }
 
@@ -120,10 +123,7 @@ class DirectoryEntry implements AppleFileSource
   public boolean contains (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    for (DiskAddress sector : blocks)
-      if (sector.matches (da))
-        return true;
-    return false;
+    return da != null && blockNumbers.get (da.getBlockNo ());
   }
 
   // ---------------------------------------------------------------------------------//
@@ -7,9 +7,18 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
@@ -31,6 +40,8 @@ public class AppleDisk implements Disk
 
   public final File file;
   private final byte[] diskBuffer;        // contains the disk contents in memory
+  private final int fileOffset;           // where diskBuffer starts in the file, or -1
+  private DiskOverlay overlay;            // sectors written since loading or saving
 
   private final int tracks;               // usually 35 for floppy disks
   private int sectors;                    // 8 or 16 (or 32 for unidos)
@@ -85,9 +96,24 @@ public class AppleDisk implements Disk
   //         DFB     12,10,08        ;09->12,10->10,11->08
   //         DFB     06,04,02,15     ;12->06,13->04,14->02,15->15
 
+  // Whether each physical 256 byte sector in the disk buffer contains anything other
+  // than emptyByte. It doesn't depend on the interleave or block size, so hasData can be
+  // rebuilt from it without reading the disk buffer again.
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle (long[].class, ByteOrder.nativeOrder ());
+  private boolean[] sectorHasData;
+  private byte scannedEmptyByte;
+
   private boolean[] hasData;
+  private boolean hasDataValid;           // hasData is rebuilt when it is next needed
   private byte emptyByte = 0;
 
+  // Disk buffer offset of every 256 byte sector in block order, so a 512 byte block has
+  // two entries. The tables are shared by all disks with the same geometry and
+  // interleave, and are replaced (never changed) when either of those changes.
+  private static final Map<Long, int[]> offsetTables = new ConcurrentHashMap<> ();
+  private volatile int[] sectorOffsets;
+
   private ActionListener actionListenerList;
   private List<DiskAddress> blockList;
 
@@ -204,6 +230,7 @@ public class AppleDisk implements Disk
     diskBuffer = new byte[blocks * sectorSize];
 
     hasData = new boolean[blocks];
+    setSectorOffsets ();
 
     if (debug)
     {
@@ -211,9 +238,10 @@ public class AppleDisk implements Disk
       System.out.printf ("Skip size       : %,d%n", skip);
     }
 
+    fileOffset = skip;
+
     try (BufferedInputStream in = new BufferedInputStream (new FileInputStream (file)))
     {
-
       if (skip > 0)
         in.skip (skip);
       in.read (diskBuffer);
@@ -234,7 +262,9 @@ public class AppleDisk implements Disk
     sectorSize = 256;
     sectors = 16;
     blocks = 560;
+    blockList = null;
     hasData = new boolean[blocks];
+    setSectorOffsets ();
     checkSectorsForData ();
   }
 
@@ -261,11 +291,13 @@ public class AppleDisk implements Disk
 
     file = disk.file;
     diskBuffer = disk.getDiskBuffer ();
+    fileOffset = -1;
 
     trackSize = 4096;
     sectorSize = trackSize / sectors;
     blocks = tracks * sectors;
     hasData = new boolean[blocks];
+    setSectorOffsets ();
 
     checkSectorsForData ();
   }
@@ -278,6 +310,7 @@ public class AppleDisk implements Disk
     trackSize = 4096;
     file = disk.file;
     diskBuffer = disk.getDiskBuffer ();
+    fileOffset = -1;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -289,6 +322,7 @@ public class AppleDisk implements Disk
     this.sectors = sectors;
     file = wozFile.file;
     diskBuffer = wozFile.getDiskBuffer ();
+    fileOffset = -1;
 
     if (sectors == 13)
     {
@@ -303,6 +337,7 @@ public class AppleDisk implements Disk
 
     blocks = tracks * sectors;
     hasData = new boolean[blocks];
+    setSectorOffsets ();
 
     checkSectorsForData ();
   }
@@ -326,35 +361,107 @@ public class AppleDisk implements Disk
   }
 
   // ---------------------------------------------------------------------------------//
-  private void checkSectorsForData ()
+  private void setSectorOffsets ()
   // ---------------------------------------------------------------------------------//
   {
-    // force blockList to be rebuilt with the correct number/size of blocks
-    blockList = null;
+    long key = ((long) blocks << 20) | (trackSize << 4) | (sectorSize / SECTOR_SIZE << 2)
+        | interleave;
+    sectorOffsets = offsetTables.computeIfAbsent (key, k -> buildSectorOffsets ());
+    hasDataValid = false;
+  }
 
-    for (DiskAddress da : this)
+  // ---------------------------------------------------------------------------------//
+  private int[] buildSectorOffsets ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int sectorsPerBlock = sectorSize / SECTOR_SIZE;
+    int blocksPerTrack = trackSize / sectorSize;
+    int[] sectorMap = interleaveSector[interleave];
+    int[] offsets = new int[blocks * sectorsPerBlock];
+
+    int ptr = 0;
+    for (int block = 0; block < blocks; block++)
     {
-      if (sectorSize == SECTOR_SIZE)                    // 256 byte sectors
-      {
-        int diskOffset = getBufferOffset (da);
-        hasData[da.getBlockNo ()] = check (diskOffset);
-      }
-      else                                              // 512 byte blocks
+      int track = block / blocksPerTrack;
+      int firstSector = block % blocksPerTrack * sectorsPerBlock;
+
+      for (int i = 0; i < sectorsPerBlock; i++)
       {
-        int diskOffset1 = getBufferOffset (da, 0);
-        int diskOffset2 = getBufferOffset (da, 1);
-        hasData[da.getBlockNo ()] = check (diskOffset1) || check (diskOffset2);
+        int sector = firstSector + i;
+        if (sector < sectorMap.length)
+          sector = sectorMap[sector];
+        offsets[ptr++] = track * trackSize + sector * SECTOR_SIZE;
       }
     }
+
+    return offsets;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean[] getHasData ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!hasDataValid)
+      checkSectorsForData ();
+    return hasData;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void checkSectorsForData ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (sectorHasData == null || scannedEmptyByte != emptyByte)
+      scanSectors ();
+
+    int[] offsets = sectorOffsets;
+    int sectorsPerBlock = sectorSize / SECTOR_SIZE;
+
+    for (int block = 0, ptr = 0; block < blocks; block++)
+    {
+      boolean data = false;
+      for (int i = 0; i < sectorsPerBlock; i++)
+        data |= sectorHasData[offsets[ptr++] / SECTOR_SIZE];
+      hasData[block] = data;
+    }
+
+    hasDataValid = true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void scanSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int totalSectors = (diskBuffer.length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+    if (sectorHasData == null || sectorHasData.length != totalSectors)
+      sectorHasData = new boolean[totalSectors];
+
+    for (int i = 0; i < totalSectors; i++)
+      sectorHasData[i] = check (diskBuffer, i * SECTOR_SIZE);
+
+    scannedEmptyByte = emptyByte;
+
+    if (overlay != null)
+      for (int sector : overlay.getSectors ())
+        updateSector (sector);
   }
 
+  // compares eight bytes at a time, any bytes left over are compared singly
   // ---------------------------------------------------------------------------------//
-  private boolean check (int diskOffset)
+  private boolean check (byte[] buffer, int offset)
   // ---------------------------------------------------------------------------------//
   {
-    for (int i = diskOffset, max = diskOffset + SECTOR_SIZE; i < max; i++)
-      if (diskBuffer[i] != emptyByte)
+    int max = Math.min (offset + SECTOR_SIZE, buffer.length);
+    long emptyLong = (emptyByte & 0xFFL) * 0x0101010101010101L;
+
+    int i = offset;
+    for (; i <= max - 8; i += 8)
+      if ((long) LONGS.get (buffer, i) != emptyLong)
         return true;
+
+    for (; i < max; i++)
+      if (buffer[i] != emptyByte)
+        return true;
+
     return false;
   }
 
@@ -415,7 +522,7 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (DiskAddress da)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[da.getBlockNo ()];
+    return !getHasData ()[da.getBlockNo ()];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -423,7 +530,7 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (int block)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[block];
+    return !getHasData ()[block];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -431,7 +538,7 @@ public class AppleDisk implements Disk
   public boolean isBlockEmpty (int track, int sector)
   // ---------------------------------------------------------------------------------//
   {
-    return !hasData[getDiskAddress (track, sector).getBlockNo ()];
+    return !getHasData ()[getDiskAddress (track, sector).getBlockNo ()];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -472,6 +579,45 @@ public class AppleDisk implements Disk
     return buffer;
   }
 
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void readBlock (DiskAddress da, byte[] buffer, int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+    {
+      System.out.println ("Disk address is null");
+      Arrays.fill (buffer, offset, offset + sectorSize, (byte) 0);
+    }
+    else
+      readBuffer (da, buffer, offset);
+  }
+
+  // The view shares the disk buffer whenever the block is stored in one piece, which is
+  // always true for 256 byte sectors. An interleaved 512 byte block is copied, as is
+  // a block that has been written to.
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public ByteBuffer viewBlock (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    assert da.getDisk () == this : "Disk address not applicable to this disk";
+
+    ByteBuffer buffer;
+    int diskOffset = getBufferOffset (da, 0);
+
+    if (overlay != null && isOverlaid (da))
+      buffer = ByteBuffer.wrap (readBlock (da));
+    else if (sectorSize == SECTOR_SIZE
+        || getBufferOffset (da, 1) == diskOffset + SECTOR_SIZE)
+      buffer = ByteBuffer.wrap (diskBuffer, diskOffset, sectorSize).slice ();
+    else
+      buffer = ByteBuffer.wrap (readBlock (da));
+
+    // slice () and asReadOnlyBuffer () both reset the byte order
+    return buffer.asReadOnlyBuffer ().order (ByteOrder.LITTLE_ENDIAN);
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public byte[] readBlock (int track, int sector)
@@ -503,7 +649,7 @@ public class AppleDisk implements Disk
   {
     assert (interleave >= 0 && interleave <= MAX_INTERLEAVE) : "Invalid interleave";
     this.interleave = interleave;
-    checkSectorsForData ();
+    setSectorOffsets ();
     if (actionListenerList != null)
       notifyListeners ("Interleave changed");
   }
@@ -529,8 +675,9 @@ public class AppleDisk implements Disk
     sectors = trackSize / sectorSize;
     blocks = tracks * sectors;
 
+    blockList = null;
     hasData = new boolean[blocks];
-    checkSectorsForData ();
+    setSectorOffsets ();
 
     if (actionListenerList != null)
       notifyListeners ("Sector size changed");
@@ -624,72 +771,168 @@ public class AppleDisk implements Disk
   // ---------------------------------------------------------------------------------//
   {
     assert da.getDisk () == this : "Disk address not applicable to this disk";
-    assert sectorSize == SECTOR_SIZE
-        || sectorSize == BLOCK_SIZE : "Invalid sector size : " + sectorSize;
-    assert interleave >= 0 && interleave <= MAX_INTERLEAVE : "Invalid interleave : "
-        + interleave;
 
-    if (sectorSize == SECTOR_SIZE)
+    int diskOffset = getBufferOffset (da, 0);
+
+    if (overlay != null)
     {
-      int diskOffset = getBufferOffset (da);
-      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
+      copySector (diskOffset, buffer, bufferOffset);
+      if (sectorSize == BLOCK_SIZE)
+        copySector (getBufferOffset (da, 1), buffer, bufferOffset + SECTOR_SIZE);
     }
+    else if (sectorSize == SECTOR_SIZE)
+      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
     else
     {
-      int diskOffset = getBufferOffset (da, 0);
+      int diskOffset2 = getBufferOffset (da, 1);
+      if (diskOffset2 == diskOffset + SECTOR_SIZE)          // block is in one piece
+        System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, BLOCK_SIZE);
+      else
+      {
+        System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
+        System.arraycopy (diskBuffer, diskOffset2, buffer, bufferOffset + SECTOR_SIZE,
+            SECTOR_SIZE);
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void copySector (int diskOffset, byte[] buffer, int bufferOffset)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] page = overlay.get (diskOffset / SECTOR_SIZE);
+    if (page == null)
       System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset, SECTOR_SIZE);
+    else
+      System.arraycopy (page, 0, buffer, bufferOffset, SECTOR_SIZE);
+  }
 
-      diskOffset = getBufferOffset (da, 1);
-      System.arraycopy (diskBuffer, diskOffset, buffer, bufferOffset + SECTOR_SIZE,
-          SECTOR_SIZE);
-    }
+  // ---------------------------------------------------------------------------------//
+  private boolean isOverlaid (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int seq = 0; seq < sectorSize / SECTOR_SIZE; seq++)
+      if (overlay.contains (getBufferOffset (da, seq) / SECTOR_SIZE))
+        return true;
+    return false;
   }
 
+  // Writes go to the overlay, the disk buffer always matches the file on disk.
   // ---------------------------------------------------------------------------------//
   private void writeBuffer (DiskAddress da, byte[] buffer)
   // ---------------------------------------------------------------------------------//
   {
     assert da.getDisk () == this : "Disk address not applicable to this disk";
-    assert sectorSize == SECTOR_SIZE
-        || sectorSize == BLOCK_SIZE : "Invalid sector size : " + sectorSize;
-    assert interleave >= 0 && interleave <= MAX_INTERLEAVE : "Invalid interleave : "
-        + interleave;
 
-    if (sectorSize == SECTOR_SIZE)
+    int[] sectors = new int[sectorSize / SECTOR_SIZE];
+    for (int seq = 0; seq < sectors.length; seq++)
+      sectors[seq] = getBufferOffset (da, seq) / SECTOR_SIZE;
+
+    if (overlay == null)
+      overlay = new DiskOverlay ();
+    overlay.write (sectors, buffer);
+
+    boolean data = false;
+    for (int sector : sectors)
+      data |= updateSector (sector);
+    setHasData (da, data);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean isModified ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return overlay != null && !overlay.isEmpty ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getModifiedSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return overlay == null ? 0 : overlay.size ();
+  }
+
+  // reverses the most recent writeBlock (), returns false if there was nothing to undo
+  // ---------------------------------------------------------------------------------//
+  public boolean undo ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int[] sectors = overlay == null ? null : overlay.undo ();
+    if (sectors == null)
+      return false;
+
+    if (overlay.isEmpty () && overlay.getJournalSize () == 0)
+      overlay = null;
+
+    for (int sector : sectors)
+      updateSector (sector);
+    hasDataValid = false;           // the sectors may belong to a different block now
+
+    return true;
+  }
+
+  // The sectors can only be written back if the file holds the disk buffer as it is.
+  // Gzip, zip, NuFX and Binary2 images are unpacked into a temporary file that is
+  // deleted on exit, WOZ (and nibble) images are encoded tracks, and DiskCopy images
+  // carry a checksum of their contents.
+  // ---------------------------------------------------------------------------------//
+  public boolean canSaveInPlace ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return fileOffset >= 0 && !DiskFactory.isTempFile (file) && nuFX == null
+        && bin2 == null && wozFile == null && prefixDiskCopy == null;
+  }
+
+  // Writes the modified sectors back to the image file, and nothing else, so patching
+  // a hard disk image doesn't mean rewriting the whole image.
+  // ---------------------------------------------------------------------------------//
+  public int saveChanges () throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!canSaveInPlace ())
+      throw new IOException ("Cannot update " + file.getName () + " in place");
+
+    if (!isModified ())
+      return 0;
+
+    int totalSectors = overlay.size ();
+    try (FileChannel channel =
+        FileChannel.open (file.toPath (), StandardOpenOption.WRITE))
     {
-      int diskOffset = getBufferOffset (da);
-      System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
+      overlay.save (channel, fileOffset);
     }
-    else
-    {
-      int diskOffset = getBufferOffset (da, 0);
-      System.arraycopy (buffer, 0, diskBuffer, diskOffset, SECTOR_SIZE);
+    overlay.commit (diskBuffer);
+    overlay = null;                 // reads go straight to the disk buffer again
 
-      diskOffset = getBufferOffset (da, 1);
-      System.arraycopy (buffer, SECTOR_SIZE, diskBuffer, diskOffset, SECTOR_SIZE);
-    }
+    return totalSectors;
   }
 
   // ---------------------------------------------------------------------------------//
-  private int getBufferOffset (DiskAddress da)
+  private void setHasData (DiskAddress da, boolean data)
   // ---------------------------------------------------------------------------------//
   {
-    assert sectorSize == SECTOR_SIZE;
+    if (hasData != null)
+      hasData[da.getBlockNo ()] = data;
+  }
 
-    return da.getTrackNo () * trackSize
-        + interleaveSector[interleave][da.getSectorNo ()] * SECTOR_SIZE;
+  // ---------------------------------------------------------------------------------//
+  private boolean updateSector (int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] page = overlay == null ? null : overlay.get (sector);
+    boolean data =
+        page == null ? check (diskBuffer, sector * SECTOR_SIZE) : check (page, 0);
+    if (sectorHasData != null)
+      sectorHasData[sector] = data;
+    return data;
   }
 
+  // seq is the 256 byte sector within the block, so it is always 0 for DOS sectors
   // ---------------------------------------------------------------------------------//
   private int getBufferOffset (DiskAddress da, int seq)
   // ---------------------------------------------------------------------------------//
   {
-    assert sectorSize == BLOCK_SIZE;
-
-    assert seq == 0 || seq == 1;
-
-    return da.getTrackNo () * trackSize
-        + interleaveSector[interleave][da.getSectorNo () * 2 + seq] * SECTOR_SIZE;
+    return sectorOffsets[da.getBlockNo () * (sectorSize / SECTOR_SIZE) + seq];
   }
 
   // ---------------------------------------------------------------------------------//
@@ -791,7 +1034,10 @@ public class AppleDisk implements Disk
   public void setEmptyByte (byte value)
   // ---------------------------------------------------------------------------------//
   {
+    if (emptyByte == value)
+      return;
+
     emptyByte = value;
-    checkSectorsForData ();
+    hasDataValid = false;
   }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.bytezone.diskbrowser.disk;
 
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 // -----------------------------------------------------------------------------------//
@@ -42,6 +43,10 @@ public interface Disk extends Iterable<DiskAddress>
 
   public byte[] readBlocks (List<DiskAddress> daList);
 
+  public void readBlock (DiskAddress da, byte[] buffer, int offset);   // no allocation
+
+  public ByteBuffer viewBlock (DiskAddress da);         // read-only, little-endian
+
   public void writeBlock (DiskAddress da, byte[] buffer);
 
   public boolean isBlockEmpty (int block);
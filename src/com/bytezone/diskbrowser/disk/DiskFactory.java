@@ -8,6 +8,8 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Enumeration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -36,8 +38,8 @@ public class DiskFactory
   private static final int DISK_143K = 143360;
   private static final int DISK_116K = 116480;
 
-  private static NuFX nuFX;
-  private static Binary2 binary2;
+  // unpacked copies of compressed or archived images, they are deleted on exit
+  private static final Set<File> tempFiles = ConcurrentHashMap.newKeySet ();
 
   // ---------------------------------------------------------------------------------//
   private DiskFactory ()
@@ -52,6 +54,25 @@ public class DiskFactory
     return createDisk (file.getAbsolutePath ());
   }
 
+  // ---------------------------------------------------------------------------------//
+  public static boolean isTempFile (File file)
+  // ---------------------------------------------------------------------------------//
+  {
+    return tempFiles.contains (file);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static File createTempFile (String prefix) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    File tmp = File.createTempFile (prefix, null);
+    tmp.deleteOnExit ();
+    tempFiles.add (tmp);
+    return tmp;
+  }
+
+  // The thumbnail and export workers open disks while the GUI is doing the same, so
+  // nothing here is kept between calls apart from the set of temporary files.
   // ---------------------------------------------------------------------------------//
   public static FormattedDisk createDisk (String pathName)
   // ---------------------------------------------------------------------------------//
@@ -59,8 +80,8 @@ public class DiskFactory
     if (debug)
       System.out.println ("\nFactory : " + pathName);
 
-    nuFX = null;
-    binary2 = null;
+    NuFX nuFX = null;
+    Binary2 binary2 = null;
 
     File file = new File (pathName);
     if (!file.exists ())
@@ -77,7 +98,7 @@ public class DiskFactory
       try
       {
         InputStream in = new GZIPInputStream (new FileInputStream (pathName));
-        File tmp = File.createTempFile ("gzip", null);
+        File tmp = createTempFile ("gzip");
         FileOutputStream fos = new FileOutputStream (tmp);
 
         int bytesRead;
@@ -87,7 +108,6 @@ public class DiskFactory
 
         fos.close ();
         in.close ();
-        tmp.deleteOnExit ();
 
         suffix = Utility.getSuffix (file.getName ());     // ignores the .gz and .zip
         file = tmp;
@@ -114,7 +134,7 @@ public class DiskFactory
           if (Utility.validFileType (entry.getName ()))
           {
             InputStream stream = zipFile.getInputStream (entry);
-            File tmp = File.createTempFile ("zip", null);
+            File tmp = createTempFile ("zip");
             FileOutputStream fos = new FileOutputStream (tmp);
 
             int bytesRead;
@@ -124,7 +144,6 @@ public class DiskFactory
 
             stream.close ();
             fos.close ();
-            tmp.deleteOnExit ();
 
             suffix = Utility.getSuffix (file.getName ());   // ignores the .gz and .zip
             file = tmp;
@@ -159,11 +178,10 @@ public class DiskFactory
         if (diskBuffer == null)
           return null;
 
-        File tmp = File.createTempFile (suffix, null);
+        File tmp = createTempFile (suffix);
         FileOutputStream fos = new FileOutputStream (tmp);
         fos.write (diskBuffer);
         fos.close ();
-        tmp.deleteOnExit ();
         file = tmp;
         suffix = "dsk";
         compressed = true;
@@ -189,12 +207,11 @@ public class DiskFactory
         binary2 = new Binary2 (file.toPath ());
         byte[] diskBuffer = binary2.getDiskBuffer ();
 
-        File tmp = File.createTempFile (suffix, null);
+        File tmp = createTempFile (suffix);
         FileOutputStream fos = new FileOutputStream (tmp);
         fos.write (diskBuffer);
         fos.close ();
 
-        tmp.deleteOnExit ();
         file = tmp;
         suffix = "dsk";
         compressed = true;
@@ -264,7 +281,7 @@ public class DiskFactory
         System.out.println ("File length is wrong: " + file.length ());
         disk = checkDos (new AppleDisk (file, 35, 16));
         if (disk != null)
-          return check (disk);
+          return check (disk, nuFX, binary2);
       }
 
       if (debug)
@@ -275,7 +292,7 @@ public class DiskFactory
       {
         if (compressed)
           disk.setOriginalPath (originalPath);
-        return check (disk);
+        return check (disk, nuFX, binary2);
       }
 
       if (file.length () == DISK_800K)         // 800K 3.5"
@@ -489,7 +506,7 @@ public class DiskFactory
       {
         if (compressed)
           disk.setOriginalPath (originalPath);
-        return check (disk);
+        return check (disk, nuFX, binary2);
       }
 
       // empty boot sector
@@ -565,11 +582,11 @@ public class DiskFactory
     if (disk != null && compressed)
       disk.setOriginalPath (originalPath);
 
-    return check (disk);
+    return check (disk, nuFX, binary2);
   }
 
   // ---------------------------------------------------------------------------------//
-  private static FormattedDisk check (FormattedDisk disk)
+  private static FormattedDisk check (FormattedDisk disk, NuFX nuFX, Binary2 binary2)
   // ---------------------------------------------------------------------------------//
   {
     if (disk.getDisk ()instanceof AppleDisk appleDisk)
@@ -849,13 +866,10 @@ public class DiskFactory
 
       if (requiredDisks > 0)
       {
-        // collect extra data disks
+        // collect extra data disks, disks[n] is disk n so disks[0] is not used
         AppleDisk[] disks = new AppleDisk[requiredDisks];
 
-        disks[0] = new AppleDisk (file, 256, 8);           // will become a PascalDisk
-        disks[0].setInterleave (1);
-
-        disks[1] = new AppleDisk (file, 256, 8);           // will remain a DataDisk
+        disks[1] = new AppleDisk (file, 35, 8);            // the boot disk
         disks[1].setInterleave (1);
 
         if (pos > 0 && requiredDisks > 0)
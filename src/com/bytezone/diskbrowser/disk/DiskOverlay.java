@@ -0,0 +1,160 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Sectors that have been written since the disk was loaded (or last saved). The disk
+// buffer itself is never changed, each write replaces the overlay page for the sector
+// with a new one, and the page it replaced goes into the journal so it can be undone.
+// Pages are never modified once they are in the overlay, so the journal can share them.
+// -----------------------------------------------------------------------------------//
+class DiskOverlay
+// -----------------------------------------------------------------------------------//
+{
+  static final int SECTOR_SIZE = 256;
+
+  private final Map<Integer, byte[]> pages = new TreeMap<> ();    // in file order
+  private final List<Edit> journal = new ArrayList<> ();
+
+  // ---------------------------------------------------------------------------------//
+  byte[] get (int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    return pages.get (sector);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean contains (int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    return pages.containsKey (sector);
+  }
+
+  // all the sectors of one block write are journalled as a single edit
+  // ---------------------------------------------------------------------------------//
+  void write (int[] sectors, byte[] buffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[][] previous = new byte[sectors.length][];
+
+    for (int i = 0; i < sectors.length; i++)
+    {
+      byte[] page = new byte[SECTOR_SIZE];
+      int length = Math.max (0, Math.min (SECTOR_SIZE, buffer.length - i * SECTOR_SIZE));
+      if (length > 0)
+        System.arraycopy (buffer, i * SECTOR_SIZE, page, 0, length);
+      previous[i] = pages.put (sectors[i], page);
+    }
+
+    journal.add (new Edit (sectors, previous));
+  }
+
+  // returns the sectors that changed, or null if there is nothing to undo
+  // ---------------------------------------------------------------------------------//
+  int[] undo ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (journal.isEmpty ())
+      return null;
+
+    Edit edit = journal.remove (journal.size () - 1);
+
+    for (int i = edit.sectors.length - 1; i >= 0; i--)
+      if (edit.previous[i] == null)
+        pages.remove (edit.sectors[i]);
+      else
+        pages.put (edit.sectors[i], edit.previous[i]);
+
+    return edit.sectors;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  boolean isEmpty ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return pages.isEmpty ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int size ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return pages.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int getJournalSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return journal.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Iterable<Integer> getSectors ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return pages.keySet ();
+  }
+
+  // writes the dirty sectors only, runs of adjacent sectors are written together
+  // ---------------------------------------------------------------------------------//
+  void save (FileChannel channel, long fileOffset) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Integer> sectors = new ArrayList<> (pages.keySet ());
+    int first = 0;
+
+    while (first < sectors.size ())
+    {
+      int last = first;
+      while (last + 1 < sectors.size ()
+          && sectors.get (last + 1) == sectors.get (last) + 1)
+        last++;
+
+      ByteBuffer buffer = ByteBuffer.allocate ((last - first + 1) * SECTOR_SIZE);
+      for (int i = first; i <= last; i++)
+        buffer.put (pages.get (sectors.get (i)));
+      buffer.flip ();
+
+      long position = fileOffset + (long) sectors.get (first) * SECTOR_SIZE;
+      while (buffer.hasRemaining ())
+        position += channel.write (buffer, position);
+
+      first = last + 1;
+    }
+
+    channel.force (true);
+  }
+
+  // copies the pages into the disk buffer, once they are safely in the file
+  // ---------------------------------------------------------------------------------//
+  void commit (byte[] diskBuffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Map.Entry<Integer, byte[]> entry : pages.entrySet ())
+      System.arraycopy (entry.getValue (), 0, diskBuffer, entry.getKey () * SECTOR_SIZE,
+          SECTOR_SIZE);
+
+    pages.clear ();
+    journal.clear ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Edit
+  // ---------------------------------------------------------------------------------//
+  {
+    final int[] sectors;
+    final byte[][] previous;        // null where the sector was not in the overlay
+
+    Edit (int[] sectors, byte[][] previous)
+    {
+      this.sectors = sectors;
+      this.previous = previous;
+    }
+  }
+}
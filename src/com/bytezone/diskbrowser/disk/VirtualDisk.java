@@ -0,0 +1,531 @@
+package com.bytezone.diskbrowser.disk;
+
+import java.awt.AWTEventMulticaster;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+// A logical disk made from blocks on other disks, e.g. a multi-disk Pascal volume, the
+// Wizardry IV and V data disks, or a hard disk image that was split into several files.
+// Each extent maps a run of logical blocks to a run of blocks on one of the parts.
+// Nothing is copied, every read and write is passed on to the part that holds the
+// block, so the volume costs no more memory than the disks it is made from. Blocks
+// that are not in any extent read as zeros.
+// -----------------------------------------------------------------------------------//
+public class VirtualDisk implements Disk
+// -----------------------------------------------------------------------------------//
+{
+  private static final int TRACK_SIZE = 4096;
+
+  private final File file;
+  private final int totalBlocks;
+  private final int blockSize;
+  private final List<Disk> parts = new ArrayList<> ();
+
+  // the extents, sorted by logical block and never overlapping
+  private int totalExtents;
+  private int[] logicalBlocks = new int[16];
+  private int[] physicalBlocks = new int[16];
+  private int[] lengths = new int[16];
+  private Disk[] disks = new Disk[16];
+
+  private ActionListener actionListenerList;
+  private List<DiskAddress> blockList;
+
+  // ---------------------------------------------------------------------------------//
+  public VirtualDisk (File file, int totalBlocks, int blockSize)
+  // ---------------------------------------------------------------------------------//
+  {
+    assert blockSize == 256 || blockSize == 512 : "Invalid block size : " + blockSize;
+
+    this.file = file;
+    this.totalBlocks = totalBlocks;
+    this.blockSize = blockSize;
+  }
+
+  // joins the disks end to end
+  // ---------------------------------------------------------------------------------//
+  public static VirtualDisk join (Disk... disks)
+  // ---------------------------------------------------------------------------------//
+  {
+    int totalBlocks = 0;
+    for (Disk disk : disks)
+      totalBlocks += disk.getTotalBlocks ();
+
+    VirtualDisk volume =
+        new VirtualDisk (disks[0].getFile (), totalBlocks, disks[0].getBlockSize ());
+
+    int logicalBlock = 0;
+    for (Disk disk : disks)
+    {
+      volume.addExtent (logicalBlock, disk, 0, disk.getTotalBlocks ());
+      logicalBlock += disk.getTotalBlocks ();
+    }
+
+    return volume;
+  }
+
+  // A new extent replaces any part of an earlier extent that it overlaps, so a table
+  // of corrections can be applied in order on top of a base disk.
+  // ---------------------------------------------------------------------------------//
+  public void addExtent (int logicalBlock, Disk disk, int physicalBlock, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    assert disk.getBlockSize () == blockSize : "Block size mismatch";
+
+    if (length <= 0)
+      return;
+
+    if (!parts.contains (disk))
+      parts.add (disk);
+
+    int hi = logicalBlock + length;
+
+    int[] oldLogical = logicalBlocks;
+    int[] oldPhysical = physicalBlocks;
+    int[] oldLengths = lengths;
+    Disk[] oldDisks = disks;
+    int oldTotal = totalExtents;
+
+    // an extent that is split in two adds one, and there is the new one as well
+    int size = Math.max (16, oldTotal + 2);
+    logicalBlocks = new int[size];
+    physicalBlocks = new int[size];
+    lengths = new int[size];
+    disks = new Disk[size];
+    totalExtents = 0;
+
+    boolean added = false;
+    for (int i = 0; i < oldTotal; i++)
+    {
+      int start = oldLogical[i];
+      int end = start + oldLengths[i];
+
+      if (!added && start >= logicalBlock)
+      {
+        store (logicalBlock, disk, physicalBlock, length);
+        added = true;
+      }
+
+      if (end <= logicalBlock || start >= hi)         // no overlap
+      {
+        store (start, oldDisks[i], oldPhysical[i], oldLengths[i]);
+        continue;
+      }
+
+      if (start < logicalBlock)                       // keep the front
+        store (start, oldDisks[i], oldPhysical[i], logicalBlock - start);
+
+      if (!added)
+      {
+        store (logicalBlock, disk, physicalBlock, length);
+        added = true;
+      }
+
+      if (end > hi)                                   // keep the back
+        store (hi, oldDisks[i], oldPhysical[i] + hi - start, end - hi);
+    }
+
+    if (!added)
+      store (logicalBlock, disk, physicalBlock, length);
+
+    blockList = null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void store (int logicalBlock, Disk disk, int physicalBlock, int length)
+  // ---------------------------------------------------------------------------------//
+  {
+    logicalBlocks[totalExtents] = logicalBlock;
+    physicalBlocks[totalExtents] = physicalBlock;
+    lengths[totalExtents] = length;
+    disks[totalExtents] = disk;
+    ++totalExtents;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public List<Disk> getParts ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return parts;
+  }
+
+  // returns null if the block is not mapped to a valid block on one of the parts
+  // ---------------------------------------------------------------------------------//
+  private DiskAddress getPartAddress (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    int lo = 0;
+    int hi = totalExtents - 1;
+
+    while (lo <= hi)
+    {
+      int mid = (lo + hi) >>> 1;
+      if (block < logicalBlocks[mid])
+        hi = mid - 1;
+      else if (block >= logicalBlocks[mid] + lengths[mid])
+        lo = mid + 1;
+      else
+      {
+        Disk disk = disks[mid];
+        int physicalBlock = physicalBlocks[mid] + block - logicalBlocks[mid];
+        return disk.isValidAddress (physicalBlock) ? disk.getDiskAddress (physicalBlock)
+            : null;
+      }
+    }
+
+    return null;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public long getBootChecksum ()
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] buffer = readBlock (0);
+    Checksum checksum = new CRC32 ();
+    checksum.update (buffer, 0, buffer.length);
+    return checksum.getValue ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void setEmptyByte (byte value)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Disk disk : parts)
+      disk.setEmptyByte (value);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getTotalBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return totalBlocks;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getTotalTracks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return totalBlocks / getBlocksPerTrack ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getBlockSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blockSize;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void setBlockSize (int blockSize)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (blockSize != this.blockSize)
+      System.out.println ("Cannot change the block size of a virtual disk");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getTrackSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return TRACK_SIZE;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getBlocksPerTrack ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return TRACK_SIZE / blockSize;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void setInterleave (int interleave)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Disk disk : parts)
+      disk.setInterleave (interleave);
+
+    if (actionListenerList != null)
+      actionListenerList.actionPerformed (
+          new ActionEvent (this, ActionEvent.ACTION_PERFORMED, "Interleave changed"));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public int getInterleave ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return parts.isEmpty () ? 0 : parts.get (0).getInterleave ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public DiskAddress getDiskAddress (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!isValidAddress (block))
+    {
+      System.out.printf ("getDiskAddress: Invalid block : %d of %d%n", block,
+          totalBlocks);
+      return null;
+    }
+    return new AppleDiskAddress (this, block);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public List<DiskAddress> getDiskAddressList (int... blocks)
+  // ---------------------------------------------------------------------------------//
+  {
+    List<DiskAddress> addressList = new ArrayList<> ();
+
+    for (int block : blocks)
+    {
+      assert (isValidAddress (block)) : "Invalid block : " + block;
+      addressList.add (new AppleDiskAddress (this, block));
+    }
+    return addressList;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public DiskAddress getDiskAddress (int track, int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (!isValidAddress (track, sector))
+    {
+      System.out.println ("Invalid block : " + track + "/" + sector);
+      return null;
+    }
+    return new AppleDiskAddress (this, track, sector);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public byte[] readBlock (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    return readBlock (getDiskAddress (block));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public byte[] readBlock (int track, int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    return readBlock (getDiskAddress (track, sector));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public byte[] readBlock (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] buffer = new byte[blockSize];
+    readBlock (da, buffer, 0);
+    return buffer;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public byte[] readBlocks (List<DiskAddress> daList)
+  // ---------------------------------------------------------------------------------//
+  {
+    byte[] buffer = new byte[daList.size () * blockSize];
+    int ptr = 0;
+    for (DiskAddress da : daList)
+    {
+      // sparse text/PNT/PIC files may have gaps
+      if (da != null && (da.getBlockNo () > 0 || ((AppleDiskAddress) da).zeroFlag ()))
+        readBlock (da, buffer, ptr);
+      ptr += blockSize;
+    }
+    return buffer;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void readBlock (DiskAddress da, byte[] buffer, int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+      System.out.println ("Disk address is null");
+
+    DiskAddress partAddress = da == null ? null : getPartAddress (da.getBlockNo ());
+    if (partAddress == null)
+      Arrays.fill (buffer, offset, offset + blockSize, (byte) 0);
+    else
+      partAddress.getDisk ().readBlock (partAddress, buffer, offset);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public ByteBuffer viewBlock (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+      System.out.println ("Disk address is null");
+
+    DiskAddress partAddress = da == null ? null : getPartAddress (da.getBlockNo ());
+    if (partAddress != null)
+      return partAddress.getDisk ().viewBlock (partAddress);
+
+    return ByteBuffer.wrap (new byte[blockSize]).asReadOnlyBuffer ()
+        .order (ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void writeBlock (DiskAddress da, byte[] buffer)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (da == null)
+    {
+      System.out.println ("Disk address is null");
+      return;
+    }
+
+    DiskAddress partAddress = getPartAddress (da.getBlockNo ());
+    if (partAddress == null)
+      System.out.printf ("Block %d is not on any disk%n", da.getBlockNo ());
+    else
+      partAddress.getDisk ().writeBlock (partAddress, buffer);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isBlockEmpty (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    DiskAddress partAddress = getPartAddress (block);
+    return partAddress == null || partAddress.getDisk ().isBlockEmpty (partAddress);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isBlockEmpty (int track, int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    return isBlockEmpty (track * getBlocksPerTrack () + sector);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isBlockEmpty (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return isBlockEmpty (da.getBlockNo ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isValidAddress (int block)
+  // ---------------------------------------------------------------------------------//
+  {
+    return block >= 0 && block < totalBlocks;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isValidAddress (int track, int sector)
+  // ---------------------------------------------------------------------------------//
+  {
+    track &= 0x3F;
+    sector &= 0x1F;
+
+    return track < getTotalTracks () && sector < getBlocksPerTrack ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public boolean isValidAddress (DiskAddress da)
+  // ---------------------------------------------------------------------------------//
+  {
+    return da != null && isValidAddress (da.getBlockNo ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public File getFile ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return file;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void addActionListener (ActionListener actionListener)
+  // ---------------------------------------------------------------------------------//
+  {
+    actionListenerList = AWTEventMulticaster.add (actionListenerList, actionListener);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void removeActionListener (ActionListener actionListener)
+  // ---------------------------------------------------------------------------------//
+  {
+    actionListenerList = AWTEventMulticaster.remove (actionListenerList, actionListener);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public Iterator<DiskAddress> iterator ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (blockList == null)
+    {
+      blockList = new ArrayList<> (totalBlocks);
+      for (int block = 0; block < totalBlocks; block++)
+        blockList.add (new AppleDiskAddress (this, block));
+    }
+
+    return blockList.iterator ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append (String.format ("Virtual disk . %s%n", file.getName ()));
+    text.append (String.format ("Blocks ....... %,d%n", totalBlocks));
+    text.append (String.format ("Block size ... %d%n", blockSize));
+    text.append (String.format ("Interleave ... %d%n%n", getInterleave ()));
+
+    text.append (" Disk  File name\n");
+    text.append (" ----  ------------------------------\n");
+    for (int i = 0; i < parts.size (); i++)
+      text.append (
+          String.format ("  %2d   %s%n", i + 1, parts.get (i).getFile ().getName ()));
+
+    text.append ("\n Logical       Size   Disk   Physical\n");
+    text.append (" -----------   ----   ----   -----------\n");
+    for (int i = 0; i < totalExtents; i++)
+      text.append (String.format (" %04X - %04X   %04X    %2d    %04X - %04X%n",
+          logicalBlocks[i], logicalBlocks[i] + lengths[i] - 1, lengths[i],
+          parts.indexOf (disks[i]) + 1, physicalBlocks[i],
+          physicalBlocks[i] + lengths[i] - 1));
+
+    return text.toString ();
+  }
+}
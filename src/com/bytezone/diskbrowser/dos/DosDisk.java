@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.dos;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -111,8 +112,8 @@ public class DosDisk extends AbstractFormattedDisk
     {
       if (!disk.isValidAddress (da))
         break;
-      sectorBuffer = disk.readBlock (da);
-      if (!disk.isValidAddress (sectorBuffer[1], sectorBuffer[2]))
+      ByteBuffer catalogBuffer = disk.viewBlock (da);
+      if (!disk.isValidAddress (catalogBuffer.get (1), catalogBuffer.get (2)))
         break;
 
       // The first byte is officially unused, but it always seems to contain 0x00 or 0xFF
@@ -126,8 +127,8 @@ public class DosDisk extends AbstractFormattedDisk
 
       sectorTypes[da.getBlockNo ()] = catalogSector;
 
-      int track = sectorBuffer[1] & 0xFF;
-      int sector = sectorBuffer[2] & 0xFF;
+      int track = catalogBuffer.get (1) & 0xFF;
+      int sector = catalogBuffer.get (2) & 0xFF;
       if (!disk.isValidAddress (track, sector))
         break;
 
@@ -136,12 +137,13 @@ public class DosDisk extends AbstractFormattedDisk
     } while (!da.isZero () && da.isValidAddress ());
 
     // same loop, but now all the catalog sectors are properly flagged
+    sectorBuffer = new byte[disk.getBlockSize ()];        // reused for each sector
     da = disk.getDiskAddress (catalogStart.getBlockNo ());
     loop: do
     {
       if (!disk.isValidAddress (da))
         break;
-      sectorBuffer = disk.readBlock (da);
+      disk.readBlock (da, sectorBuffer, 0);
       if (!disk.isValidAddress (sectorBuffer[1], sectorBuffer[2]))
         break;
 
@@ -342,7 +344,7 @@ public class DosDisk extends AbstractFormattedDisk
   private static int checkFormat (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (0x11, 0x00);
+    ByteBuffer buffer = disk.viewBlock (disk.getDiskAddress (0x11, 0x00));
 
     // DISCCOMMANDER.DSK uses track 0x17 for the catalog
     //    if (buffer[1] != 0x11) // first catalog track
@@ -357,12 +359,13 @@ public class DosDisk extends AbstractFormattedDisk
     //    }
 
     if (debug)
-      System.out.printf ("Sectors per track: %02X%n", buffer[53]);
+      System.out.printf ("Sectors per track: %02X%n", buffer.get (53));
 
-    if (buffer[53] != 16 && buffer[53] != 13 && buffer[53] != 32)  // sectors per track
+    int sectors = buffer.get (53);
+    if (sectors != 16 && sectors != 13 && sectors != 32)    // sectors per track
     {
       if (debug)
-        System.out.printf ("Bad sectors per track : %02X%n", buffer[53]);
+        System.out.printf ("Bad sectors per track : %02X%n", sectors);
       return 0;
     }
 
@@ -373,9 +376,9 @@ public class DosDisk extends AbstractFormattedDisk
     //      //      return 0;
     //    }
 
-    int version = buffer[3] & 0xFF;
+    int version = buffer.get (3) & 0xFF;
     if (debug)
-      System.out.printf ("Version: %02X%n", buffer[3]);
+      System.out.printf ("Version: %02X%n", version);
     if (version == 0 || (version > 0x43 && version != 0xFF))
     {
       if (debug)
@@ -393,17 +396,18 @@ public class DosDisk extends AbstractFormattedDisk
   }
 
   // ---------------------------------------------------------------------------------//
-  private static int countCatalogBlocks (AppleDisk disk, byte[] buffer)
+  private static int countCatalogBlocks (AppleDisk disk, ByteBuffer buffer)
   // ---------------------------------------------------------------------------------//
   {
-    if (!disk.isValidAddress (buffer[1], buffer[2]))
+    if (!disk.isValidAddress (buffer.get (1), buffer.get (2)))
     {
       if (debug)
-        System.out.printf ("Invalid address1: %02X %02X%n", buffer[1], buffer[2]);
+        System.out.printf ("Invalid address1: %02X %02X%n", buffer.get (1),
+            buffer.get (2));
       return 0;
     }
 
-    DiskAddress catalogStart = disk.getDiskAddress (buffer[1], buffer[2]);
+    DiskAddress catalogStart = disk.getDiskAddress (buffer.get (1), buffer.get (2));
     DiskAddress da = disk.getDiskAddress (catalogStart.getBlockNo ());
     List<DiskAddress> catalogAddresses = new ArrayList<> ();
 
@@ -426,17 +430,18 @@ public class DosDisk extends AbstractFormattedDisk
         return 0;
       }
 
-      buffer = disk.readBlock (da);
-      if (!disk.isValidAddress (buffer[1], buffer[2]))
+      buffer = disk.viewBlock (da);
+      if (!disk.isValidAddress (buffer.get (1), buffer.get (2)))
       {
         if (debug)
-          System.out.printf ("Invalid address2: %02X %02X%n", buffer[1], buffer[2]);
+          System.out.printf ("Invalid address2: %02X %02X%n", buffer.get (1),
+              buffer.get (2));
         return catalogAddresses.size ();
       }
 
       catalogAddresses.add (da);
 
-      da = disk.getDiskAddress (buffer[1], buffer[2]);
+      da = disk.getDiskAddress (buffer.get (1), buffer.get (2));
     } while (!da.isZero ());
 
     if (debug)
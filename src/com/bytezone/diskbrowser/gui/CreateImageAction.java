@@ -0,0 +1,118 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+import com.bytezone.diskbrowser.prodos.write.FolderPacker;
+import com.bytezone.diskbrowser.utilities.DefaultAction;
+
+// -----------------------------------------------------------------------------------//
+class CreateImageAction extends DefaultAction
+// -----------------------------------------------------------------------------------//
+{
+  private static final String TITLE = "Create ProDOS Image";
+
+  private File folder;
+  private File image;
+
+  // ---------------------------------------------------------------------------------//
+  CreateImageAction ()
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Create ProDOS image...", "Build a ProDOS disk image from a folder");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent e)
+  // ---------------------------------------------------------------------------------//
+  {
+    JFileChooser chooser = new JFileChooser (folder);
+    chooser.setDialogTitle ("Folder to copy");
+    chooser.setFileSelectionMode (JFileChooser.DIRECTORIES_ONLY);
+    if (chooser.showOpenDialog (null) != JFileChooser.APPROVE_OPTION)
+      return;
+    folder = chooser.getSelectedFile ();
+
+    new SwingWorker<FolderPacker, Void> ()        // a large folder takes a while
+    {
+      @Override
+      protected FolderPacker doInBackground () throws Exception
+      {
+        return new FolderPacker (folder.toPath ());
+      }
+
+      @Override
+      protected void done ()
+      {
+        try
+        {
+          save (get ());
+        }
+        catch (InterruptedException | ExecutionException ex)
+        {
+          Throwable cause = ex.getCause () == null ? ex : ex.getCause ();
+          JOptionPane.showMessageDialog (null, cause.getMessage (), TITLE,
+              JOptionPane.ERROR_MESSAGE);
+        }
+      }
+    }.execute ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void save (FolderPacker packer)
+  // ---------------------------------------------------------------------------------//
+  {
+    String suffix = packer.getTotalBlocks () > 1600 ? ".hdv" : ".po";
+    String name = folder.getName ();
+    if (name.isEmpty ())                            // a root folder
+      name = packer.getVolumeName ();
+
+    JFileChooser chooser =
+        new JFileChooser (image == null ? null : image.getParentFile ());
+    chooser.setDialogTitle ("Save ProDOS image (.po, .hdv or .2mg)");
+    chooser.setSelectedFile (new File (name + suffix));
+    if (chooser.showSaveDialog (null) != JFileChooser.APPROVE_OPTION)
+      return;
+    image = chooser.getSelectedFile ();
+
+    if (image.exists () && JOptionPane.showConfirmDialog (null,
+        image.getName () + " already exists, do you want to replace it?", TITLE,
+        JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) != JOptionPane.YES_OPTION)
+      return;
+
+    new SwingWorker<Void, Void> ()
+    {
+      @Override
+      protected Void doInBackground () throws Exception
+      {
+        packer.pack (image.toPath ());
+        return null;
+      }
+
+      @Override
+      protected void done ()
+      {
+        try
+        {
+          get ();
+          String summary = packer.toString ();
+          System.out.println (summary);
+          JOptionPane.showMessageDialog (null, summary, TITLE,
+              JOptionPane.INFORMATION_MESSAGE);
+        }
+        catch (InterruptedException | ExecutionException ex)
+        {
+          ex.printStackTrace ();
+          JOptionPane.showMessageDialog (null, "Image failed to save: " + ex.getCause (),
+              TITLE, JOptionPane.ERROR_MESSAGE);
+        }
+      }
+    }.execute ();
+  }
+}
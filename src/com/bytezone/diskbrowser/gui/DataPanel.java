@@ -7,6 +7,8 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Insets;
 import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.Enumeration;
@@ -21,7 +23,7 @@ import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
-import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -68,7 +70,7 @@ public class DataPanel extends JTabbedPane
   boolean assemblerTextValid;
   DataSource currentDataSource;
 
-  private Worker animation;
+  private Animation animation;
 
   final MenuHandler menuHandler;
 
@@ -232,6 +234,13 @@ public class DataPanel extends JTabbedPane
     }
   }
 
+  // ---------------------------------------------------------------------------------//
+  double getScale ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return imagePanel.userScale;
+  }
+
   // ---------------------------------------------------------------------------------//
   public void setScale (double scale)
   // ---------------------------------------------------------------------------------//
@@ -363,8 +372,8 @@ public class DataPanel extends JTabbedPane
         {
           if (animation != null)
             animation.cancel ();
-          animation = new Worker ((SHRPictureFile2) dataSource);
-          animation.execute ();
+          animation = new Animation ((SHRPictureFile2) dataSource);
+          animation.start ();
         }
       }
 
@@ -563,48 +572,61 @@ public class DataPanel extends JTabbedPane
       setDataSource (currentDataSource);
   }
 
+  // Fires on the event thread. Each tick is scheduled from the time the animation
+  // started rather than from the previous tick, so the frame rate doesn't drift.
   // ---------------------------------------------------------------------------------//
-  class Worker extends SwingWorker<Void, Integer>
+  class Animation implements ActionListener
   // ---------------------------------------------------------------------------------//
   {
-    volatile boolean running;
-    SHRPictureFile2 image;
+    private final SHRPictureFile2 image;
+    private final Timer timer;
+    private final long delay;
+    private long startTime;
+    private long ticks;
 
-    public Worker (SHRPictureFile2 image)
+    public Animation (SHRPictureFile2 image)
     {
       assert image.isAnimation ();
       this.image = image;
+      this.delay = Math.max (image.getDelay (), 1);
+
+      timer = new Timer ((int) delay, this);
+      timer.setRepeats (false);
     }
 
-    public void cancel ()
+    public void start ()
     {
-      running = false;
+      startTime = System.currentTimeMillis ();
+      ticks = 0;
+      timer.start ();
     }
 
-    @Override
-    protected Void doInBackground () throws Exception
+    public void cancel ()
     {
-      running = true;
-      try
-      {
-        while (running)
-        {
-          Thread.sleep (image.getDelay ());
-          publish (0);
-        }
-      }
-      catch (InterruptedException e)
-      {
-        e.printStackTrace ();
-      }
-      return null;
+      timer.stop ();
     }
 
     @Override
-    protected void process (List<Integer> chunks)
+    public void actionPerformed (ActionEvent e)
     {
       image.nextFrame ();
-      update ();
+
+      BufferedImage frame = image.getImage ();
+      if (frame == imagePanel.image)
+        imagePanel.repaint ();          // same raster, only some rows were redrawn
+      else
+        imagePanel.setImage (frame);
+
+      long nextTick = startTime + ++ticks * delay;
+      long now = System.currentTimeMillis ();
+      if (nextTick < now)               // running late, drop the missed ticks
+      {
+        ticks += (now - nextTick) / delay + 1;
+        nextTick = startTime + ticks * delay;
+      }
+
+      timer.setInitialDelay ((int) (nextTick - now));
+      timer.restart ();
     }
   }
-}
\ No newline at end of file
+}
@@ -84,6 +84,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     ShowFreeSectorsAction showFreeAction =
         new ShowFreeSectorsAction (menuHandler, diskLayoutPanel);
     CloseTabAction closeTabAction = new CloseTabAction (catalogPanel);
+    ThumbnailsAction thumbnailsAction = new ThumbnailsAction ();
+    ExportImagesAction exportImagesAction = new ExportImagesAction (dataPanel);
 
     // add action buttons to toolbar
     toolBar.add (rootDirectoryAction);
@@ -97,6 +99,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     rootDirectoryAction.addListener (rootFolderData);
     rootDirectoryAction.addListener (catalogPanel);
     rootDirectoryAction.addListener (duplicateAction);
+    rootDirectoryAction.addListener (thumbnailsAction);
+    rootDirectoryAction.addListener (exportImagesAction);
 
     catalogPanel.addDiskSelectionListener (this);
     catalogPanel.addDiskSelectionListener (dataPanel);
@@ -104,6 +108,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     catalogPanel.addDiskSelectionListener (redoHandler);
     catalogPanel.addDiskSelectionListener (menuHandler);
     catalogPanel.addDiskSelectionListener (menuHandler.saveDiskAction);
+    catalogPanel.addDiskSelectionListener (thumbnailsAction);
+    catalogPanel.addDiskSelectionListener (exportImagesAction);
 
     catalogPanel.addFileSelectionListener (dataPanel);
     catalogPanel.addFileSelectionListener (diskLayoutPanel);
@@ -119,6 +125,13 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     diskLayoutPanel.addSectorSelectionListener (catalogPanel);
     diskLayoutPanel.addSectorSelectionListener (menuHandler.saveSectorsAction);
 
+    LoadSectorsAction loadSectorsAction = new LoadSectorsAction (dataPanel);
+    UndoSectorsAction undoSectorsAction = new UndoSectorsAction (dataPanel);
+    menuHandler.loadSectorsItem.setAction (loadSectorsAction);
+    menuHandler.undoSectorsItem.setAction (undoSectorsAction);
+    diskLayoutPanel.addSectorSelectionListener (loadSectorsAction);
+    diskLayoutPanel.addSectorSelectionListener (undoSectorsAction);
+
     duplicateAction.addTableSelectionListener (catalogPanel);
 
     menuHandler.scale1Item.setAction (new ScaleAction (dataPanel, 1.0, 1));
@@ -143,6 +156,8 @@ public class DiskBrowser extends JFrame implements DiskSelectionListener, QuitLi
     menuHandler.showFreeSectorsItem.setAction (showFreeAction);
     menuHandler.duplicateItem.setAction (duplicateAction);
     menuHandler.closeTabItem.setAction (closeTabAction);
+    menuHandler.thumbnailsItem.setAction (thumbnailsAction);
+    menuHandler.exportImagesItem.setAction (exportImagesAction);
 
     addQuitListener (rootDirectoryAction);
     addQuitListener (menuHandler);
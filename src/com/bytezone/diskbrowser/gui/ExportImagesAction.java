@@ -0,0 +1,167 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.DefaultAction;
+
+// -----------------------------------------------------------------------------------//
+class ExportImagesAction extends DefaultAction
+    implements DiskSelectionListener, RootDirectoryChangeListener
+// -----------------------------------------------------------------------------------//
+{
+  private final DataPanel dataPanel;
+  private FormattedDisk formattedDisk;
+  private File rootFolder;
+  private File outputFolder;
+
+  // ---------------------------------------------------------------------------------//
+  ExportImagesAction (DataPanel dataPanel)
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Export images...", "Save every image on a disk or folder as PNG files");
+
+    this.dataPanel = dataPanel;
+    setEnabled (false);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent e)
+  // ---------------------------------------------------------------------------------//
+  {
+    File currentDisk = formattedDisk == null ? null : formattedDisk.getDisk ().getFile ();
+
+    int option = 0;
+    if (rootFolder != null)
+    {
+      Object[] options = { "Current disk", "Root folder", "Cancel" };
+      option = JOptionPane.showOptionDialog (null,
+          "Export the images on the current disk, or on every disk in the root\n"
+              + "folder (including nested folders)? Images are saved using the\n"
+              + "current palette and scale.",
+          "Export Images", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE,
+          null, options, options[currentDisk == null ? 1 : 0]);
+    }
+
+    List<File> disks = new ArrayList<> ();
+    if (option == 0 && currentDisk != null)
+      disks.add (currentDisk);
+    else if (option == 1)
+      ImageCollector.addDisks (rootFolder, disks);
+    else
+      return;
+
+    JFileChooser chooser = new JFileChooser (outputFolder);
+    chooser.setDialogTitle ("Export images to folder");
+    chooser.setFileSelectionMode (JFileChooser.DIRECTORIES_ONLY);
+    if (chooser.showSaveDialog (null) != JFileChooser.APPROVE_OPTION)
+      return;
+
+    outputFolder = chooser.getSelectedFile ();
+    ImageExporter exporter = new ImageExporter (outputFolder, dataPanel.getScale ());
+    new ExportWorker (exporter, option == 1 ? rootFolder : null, disks).execute ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void diskSelected (DiskSelectedEvent event)
+  // ---------------------------------------------------------------------------------//
+  {
+    formattedDisk = event.getFormattedDisk ();
+    setEnabled (formattedDisk != null || rootFolder != null);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void rootDirectoryChanged (File oldRootFolder, File newRootFolder)
+  // ---------------------------------------------------------------------------------//
+  {
+    rootFolder = newRootFolder;
+    setEnabled (formattedDisk != null || rootFolder != null);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private class ExportWorker extends SwingWorker<Void, Void>
+  // ---------------------------------------------------------------------------------//
+  {
+    private final ImageExporter exporter;
+    private final File exportRoot;
+    private final List<File> disks;
+
+    private final JDialog dialog = new JDialog ((JDialog) null, "Export Images");
+    private final JLabel status = new JLabel ();
+    private final Timer timer = new Timer (250, e -> status.setText (getStatus ()));
+
+    ExportWorker (ImageExporter exporter, File exportRoot, List<File> disks)
+    {
+      this.exporter = exporter;
+      this.exportRoot = exportRoot;
+      this.disks = disks;
+
+      JButton btnCancel = new JButton ("Cancel");
+      btnCancel.addActionListener (e -> exporter.cancel ());
+
+      JPanel panel = new JPanel (new BorderLayout (10, 10));
+      panel.setBorder (BorderFactory.createEmptyBorder (10, 10, 10, 10));
+      panel.add (status, BorderLayout.CENTER);
+      panel.add (btnCancel, BorderLayout.EAST);
+
+      status.setText (getStatus ());
+      dialog.add (panel);
+      dialog.pack ();
+      dialog.setLocationRelativeTo (null);
+      dialog.setVisible (true);
+      timer.start ();
+    }
+
+    private String getStatus ()
+    {
+      // leave room for the counts to grow
+      return String.format ("%-80s", exporter.getStatus ());
+    }
+
+    @Override
+    protected Void doInBackground () throws Exception
+    {
+      exporter.export (exportRoot, disks);
+      return null;
+    }
+
+    @Override
+    protected void done ()
+    {
+      timer.stop ();
+      dialog.dispose ();
+
+      try
+      {
+        get ();
+      }
+      catch (InterruptedException | ExecutionException e)
+      {
+        e.printStackTrace ();
+      }
+
+      String summary = exporter.getSummary ();
+      System.out.println (summary);
+      JOptionPane.showMessageDialog (null, summary, "Export Images",
+          JOptionPane.INFORMATION_MESSAGE);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Finds every file in a disk's catalog tree that can display itself as an image. Used
+// by the thumbnail window and the image export.
+// -----------------------------------------------------------------------------------//
+final class ImageCollector
+// -----------------------------------------------------------------------------------//
+{
+  // ---------------------------------------------------------------------------------//
+  private ImageCollector ()
+  // ---------------------------------------------------------------------------------//
+  {
+  }
+
+  // every disk image file in this folder and its subfolders
+  // ---------------------------------------------------------------------------------//
+  static void addDisks (File folder, List<File> disks)
+  // ---------------------------------------------------------------------------------//
+  {
+    File[] files = folder.listFiles ();
+    if (files == null)
+      return;
+
+    for (File file : files)
+    {
+      if (file.isHidden ())
+        continue;
+
+      if (file.isDirectory ())
+        addDisks (file, disks);
+      else if (file.length () > 0
+          && Utility.validFileType (file.getName ().toLowerCase ()))
+        disks.add (file);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static void forEachImage (FormattedDisk formattedDisk,
+      BiConsumer<String, BufferedImage> consumer)
+  // ---------------------------------------------------------------------------------//
+  {
+    DefaultMutableTreeNode root =
+        (DefaultMutableTreeNode) formattedDisk.getCatalogTree ().getModel ().getRoot ();
+
+    Enumeration<?> nodes = root.preorderEnumeration ();
+    nodes.nextElement ();                         // skip the disk itself
+
+    while (nodes.hasMoreElements ())
+    {
+      DefaultMutableTreeNode node = (DefaultMutableTreeNode) nodes.nextElement ();
+      Object userObject = node.getUserObject ();
+      if (!(userObject instanceof AppleFileSource))
+        continue;
+
+      AppleFileSource appleFileSource = (AppleFileSource) userObject;
+      BufferedImage image = null;
+      try
+      {
+        DataSource dataSource = appleFileSource.getDataSource ();
+        image = dataSource == null ? null : dataSource.getImage ();
+      }
+      catch (Exception e)
+      {
+        System.out.printf ("%s: %s%n", appleFileSource.getUniqueName (), e);
+      }
+
+      if (image != null)
+        consumer.accept (appleFileSource.getUniqueName (), image);
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+
+// Writes every image on a list of disks as PNG files. Decoder threads open the disks
+// and render the images, encoder threads scale and write them. The stages are joined
+// by a small bounded queue, so memory use doesn't depend on the number of images.
+// Images are rendered with the current palette, colour quirks and monochrome options.
+// -----------------------------------------------------------------------------------//
+class ImageExporter
+// -----------------------------------------------------------------------------------//
+{
+  private static final int QUEUE_SIZE = 32;
+  private static final Job END = new Job (null, null);
+
+  private final File outputFolder;
+  private final double scale;
+  private final BlockingQueue<Job> queue = new ArrayBlockingQueue<> (QUEUE_SIZE);
+  private volatile boolean cancelled;
+
+  private int totalDisks;
+  private long startTime;
+  private long endTime;
+  private final AtomicInteger disksDone = new AtomicInteger ();
+  private final AtomicInteger imagesDecoded = new AtomicInteger ();
+  private final AtomicInteger imagesWritten = new AtomicInteger ();
+  private final AtomicInteger failures = new AtomicInteger ();
+  private final AtomicLong decodeNanos = new AtomicLong ();
+  private final AtomicLong encodeNanos = new AtomicLong ();
+  private final AtomicLong bytesWritten = new AtomicLong ();
+
+  private final int totalDecoders;
+  private final int totalEncoders;
+
+  // ---------------------------------------------------------------------------------//
+  ImageExporter (File outputFolder, double scale)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.outputFolder = outputFolder;
+    this.scale = scale;
+
+    int processors = Runtime.getRuntime ().availableProcessors ();
+    totalDecoders = Math.max (1, processors / 2);
+    totalEncoders = Math.max (1, processors - totalDecoders);
+  }
+
+  // rootFolder is used to name the output folders, it may be null for a single disk
+  // ---------------------------------------------------------------------------------//
+  void export (File rootFolder, List<File> disks) throws InterruptedException
+  // ---------------------------------------------------------------------------------//
+  {
+    totalDisks = disks.size ();
+    startTime = System.nanoTime ();
+
+    Queue<File> diskQueue = new ConcurrentLinkedQueue<> (disks);
+    List<Thread> decoders = new ArrayList<> ();
+    List<Thread> encoders = new ArrayList<> ();
+
+    for (int i = 0; i < totalDecoders; i++)
+      decoders.add (new Thread ( () ->
+      {
+        File disk;
+        while (!cancelled && (disk = diskQueue.poll ()) != null)
+        {
+          decodeDisk (disk, getFolderName (rootFolder, disk));
+          disksDone.incrementAndGet ();
+        }
+      }, "decoder-" + i));
+
+    for (int i = 0; i < totalEncoders; i++)
+      encoders.add (new Thread (this::encode, "encoder-" + i));
+
+    for (Thread thread : encoders)
+      thread.start ();
+    for (Thread thread : decoders)
+      thread.start ();
+
+    try
+    {
+      for (Thread thread : decoders)
+        thread.join ();
+    }
+    finally
+    {
+      // the encoders finish whatever is queued, then stop
+      for (int i = 0; i < totalEncoders; i++)
+        queue.put (END);
+      for (Thread thread : encoders)
+        thread.join ();
+
+      endTime = System.nanoTime ();
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  void cancel ()
+  // ---------------------------------------------------------------------------------//
+  {
+    cancelled = true;
+    queue.clear ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void decodeDisk (File diskFile, String folderName)
+  // ---------------------------------------------------------------------------------//
+  {
+    Set<String> fileNames = new HashSet<> ();
+    long[] start = { System.nanoTime () };        // excludes time waiting on the queue
+
+    try
+    {
+      FormattedDisk formattedDisk = DiskFactory.createDisk (diskFile);
+      if (formattedDisk == null)
+        return;
+
+      ImageCollector.forEachImage (formattedDisk, (name, image) ->
+      {
+        if (cancelled)
+          return;
+
+        String fileName = getFileName (folderName, name);
+        String uniqueName = fileName;
+        for (int i = 2; !fileNames.add (uniqueName); i++)
+          uniqueName = fileName + "-" + i;
+
+        imagesDecoded.incrementAndGet ();
+        decodeNanos.addAndGet (System.nanoTime () - start[0]);
+
+        try
+        {
+          queue.put (new Job (new File (outputFolder, uniqueName + ".png"), image));
+        }
+        catch (InterruptedException e)
+        {
+          cancelled = true;
+        }
+        start[0] = System.nanoTime ();
+      });
+    }
+    catch (Exception e)
+    {
+      failures.incrementAndGet ();
+      System.out.printf ("Export - %s: %s%n", diskFile.getName (), e);
+    }
+    finally
+    {
+      decodeNanos.addAndGet (System.nanoTime () - start[0]);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void encode ()
+  // ---------------------------------------------------------------------------------//
+  {
+    while (true)
+    {
+      Job job;
+      try
+      {
+        job = queue.take ();
+      }
+      catch (InterruptedException e)
+      {
+        return;
+      }
+
+      if (job == END)
+        return;
+      if (cancelled)
+        continue;
+
+      long start = System.nanoTime ();
+      try
+      {
+        job.file.getParentFile ().mkdirs ();
+        ImageIO.write (scale (job.image), "png", job.file);
+        bytesWritten.addAndGet (job.file.length ());
+        imagesWritten.incrementAndGet ();
+      }
+      catch (IOException | RuntimeException e)      // keep draining until END
+      {
+        failures.incrementAndGet ();
+        System.out.printf ("Export - %s: %s%n", job.file, e);
+      }
+      encodeNanos.addAndGet (System.nanoTime () - start);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private BufferedImage scale (BufferedImage image)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (scale == 1.0)
+      return image;
+
+    int width = Math.max (1, (int) (image.getWidth () * scale));
+    int height = Math.max (1, (int) (image.getHeight () * scale));
+
+    BufferedImage scaled = new BufferedImage (width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2 = scaled.createGraphics ();
+    g2.setRenderingHint (RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    g2.drawImage (image, 0, 0, width, height, null);
+    g2.dispose ();
+
+    return scaled;
+  }
+
+  // path of the disk below the root folder, the suffix is kept so that game.dsk and
+  // game.po don't share a folder
+  // ---------------------------------------------------------------------------------//
+  private String getFolderName (File rootFolder, File disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    Path diskPath = disk.toPath ().toAbsolutePath ().normalize ();
+    if (rootFolder != null)
+    {
+      Path rootPath = rootFolder.toPath ().toAbsolutePath ().normalize ();
+      if (diskPath.startsWith (rootPath) && !diskPath.equals (rootPath))
+        return rootPath.relativize (diskPath).toString ();
+    }
+
+    return disk.getName ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private String getFileName (String folderName, String uniqueName)
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder (folderName);
+    for (String part : uniqueName.split ("/"))
+      text.append (File.separator).append (part.replaceAll ("[^A-Za-z0-9._ -]", "_"));
+    return text.toString ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  String getStatus ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("Disks %,d of %,d   Images %,d   Written %,d   Queued %d",
+        disksDone.get (), totalDisks, imagesDecoded.get (), imagesWritten.get (),
+        queue.size ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  String getSummary ()
+  // ---------------------------------------------------------------------------------//
+  {
+    double seconds = Math.max (endTime - startTime, 1) / 1e9;
+    StringBuilder text = new StringBuilder ();
+
+    text.append (
+        String.format ("Disks        : %,d of %,d%n", disksDone.get (), totalDisks));
+    text.append (String.format ("Images       : %,d written, %,d failures%n",
+        imagesWritten.get (), failures.get ()));
+    text.append (String.format ("PNG size     : %,d bytes%n", bytesWritten.get ()));
+    text.append (String.format ("Elapsed      : %,.1f seconds, %,.1f images/s%n",
+        seconds, imagesWritten.get () / seconds));
+    text.append (getStage ("Decode", totalDecoders, imagesDecoded.get (), decodeNanos));
+    text.append (getStage ("Encode", totalEncoders, imagesWritten.get (), encodeNanos));
+    if (cancelled)
+      text.append ("Cancelled\n");
+
+    text.deleteCharAt (text.length () - 1);
+    return text.toString ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private String getStage (String name, int threads, int images, AtomicLong nanos)
+  // ---------------------------------------------------------------------------------//
+  {
+    double busy = Math.max (nanos.get (), 1) / 1e9;
+    return String.format ("%-6s stage : %d threads, %,.1f s busy, %,.1f images/s%n",
+        name, threads, busy / threads, images / busy * threads);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Job
+  // ---------------------------------------------------------------------------------//
+  {
+    final File file;
+    final BufferedImage image;
+
+    Job (File file, BufferedImage image)
+    {
+      this.file = file;
+      this.image = image;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+
+import com.bytezone.diskbrowser.disk.AppleDisk;
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.utilities.DefaultAction;
+
+// Replaces the selected sectors with the contents of a file. The sectors are only
+// changed in memory until the disk is saved, and each one can be undone.
+// -----------------------------------------------------------------------------------//
+class LoadSectorsAction extends DefaultAction implements SectorSelectionListener
+// -----------------------------------------------------------------------------------//
+{
+  private final SectorSelectionListener dataPanel;
+  private JFileChooser fileChooser;
+  private SectorSelectedEvent event;
+
+  // ---------------------------------------------------------------------------------//
+  LoadSectorsAction (SectorSelectionListener dataPanel)
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Load sectors...", "Replace the selected sectors with a file");
+    this.dataPanel = dataPanel;
+    setEnabled (false);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent evt)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (event == null)
+    {
+      JOptionPane.showMessageDialog (null, "No sectors selected");
+      return;
+    }
+
+    Disk disk = event.getFormattedDisk ().getDisk ();
+    if (!(disk instanceof AppleDisk))
+    {
+      JOptionPane.showMessageDialog (null, "This disk cannot be changed");
+      return;
+    }
+
+    if (fileChooser == null)
+    {
+      fileChooser = new JFileChooser ();
+      fileChooser.setDialogTitle ("Load sectors");
+    }
+
+    if (fileChooser.showOpenDialog (null) != JFileChooser.APPROVE_OPTION)
+      return;
+
+    File file = fileChooser.getSelectedFile ();
+    List<DiskAddress> sectors = event.getSectors ();
+    int blockSize = disk.getBlockSize ();
+
+    try
+    {
+      byte[] buffer = Files.readAllBytes (file.toPath ());
+      if (buffer.length > sectors.size () * blockSize)
+      {
+        JOptionPane.showMessageDialog (null,
+            String.format ("%s is %,d bytes, the selected sectors only hold %,d",
+                file.getName (), buffer.length, sectors.size () * blockSize));
+        return;
+      }
+
+      // the last sector is padded with zeroes, the ones after it are left alone
+      int ptr = 0;
+      for (DiskAddress da : sectors)
+      {
+        if (ptr >= buffer.length)
+          break;
+        disk.writeBlock (da, Arrays.copyOfRange (buffer, ptr, ptr + blockSize));
+        ptr += blockSize;
+      }
+
+      dataPanel.sectorSelected (event);       // show the new contents
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      JOptionPane.showMessageDialog (null, "File failed to load");
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void sectorSelected (SectorSelectedEvent event)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.event = event;
+    setEnabled (true);
+  }
+}
@@ -114,9 +114,12 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
   final JMenuItem rootItem = new JMenuItem ("Set root folder...");
   final JMenuItem refreshTreeItem = new JMenuItem ("Refresh current tree");
   final JMenuItem executeDiskItem = new JMenuItem ();
-  final JMenuItem saveDiskItem = new JMenuItem ("Save converted disk as...");
+  final JMenuItem saveDiskItem = new JMenuItem ("Save disk...");
   final JMenuItem saveFileItem = new JMenuItem ("Save file...");
   final JMenuItem saveSectorsItem = new JMenuItem ("Save sectors as...");
+  final JMenuItem loadSectorsItem = new JMenuItem ();
+  final JMenuItem undoSectorsItem = new JMenuItem ();
+  final JMenuItem createImageItem = new JMenuItem (new CreateImageAction ());
   final JMenuItem printItem = new JMenuItem ("Print output panel...");
   final JMenuItem closeTabItem = new JMenuItem ();
   final JMenuItem duplicateItem = new JMenuItem ();
@@ -143,6 +146,8 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
   final JMenuItem scale1Item = new JRadioButtonMenuItem ("Scale 1");
   final JMenuItem scale2Item = new JRadioButtonMenuItem ("Scale 1.5");
   final JMenuItem scale3Item = new JRadioButtonMenuItem ("Scale 2");
+  final JMenuItem thumbnailsItem = new JMenuItem ();
+  final JMenuItem exportImagesItem = new JMenuItem ();
 
   // Applesoft menu items
   final JMenuItem showHeaderItem = new JCheckBoxMenuItem ("Show header");
@@ -206,6 +211,9 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
     fileMenu.add (saveDiskItem);
     fileMenu.add (saveFileItem);
     fileMenu.add (saveSectorsItem);
+    fileMenu.add (loadSectorsItem);
+    fileMenu.add (undoSectorsItem);
+    fileMenu.add (createImageItem);
     fileMenu.addSeparator ();
 
     addLauncherMenu ();
@@ -260,6 +268,9 @@ class MenuHandler implements DiskSelectionListener, FileSelectionListener, QuitL
     imageMenu.add (scale1Item);
     imageMenu.add (scale2Item);
     imageMenu.add (scale3Item);
+    imageMenu.addSeparator ();
+    imageMenu.add (thumbnailsItem);
+    imageMenu.add (exportImagesItem);
 
     applesoftMenu.add (showHeaderItem);
     applesoftMenu.add (showAllFormatItem);
@@ -2,9 +2,11 @@ package com.bytezone.diskbrowser.gui;
 
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.io.IOException;
 
 import javax.swing.JOptionPane;
 
+import com.bytezone.diskbrowser.disk.AppleDisk;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.FormattedDisk;
 
@@ -18,7 +20,8 @@ class SaveDiskAction extends AbstractSaveAction implements DiskSelectionListener
   SaveDiskAction ()
   // ---------------------------------------------------------------------------------//
   {
-    super ("Save converted disk...", "Save converted disk", "Save converted disk");
+    super ("Save disk...", "Save changed sectors, or save a converted disk",
+        "Save converted disk");
   }
 
   // ---------------------------------------------------------------------------------//
@@ -33,6 +36,19 @@ class SaveDiskAction extends AbstractSaveAction implements DiskSelectionListener
     }
 
     Disk disk = formattedDisk.getDisk ();
+
+    if (disk instanceof AppleDisk && ((AppleDisk) disk).isModified ())
+    {
+      saveChanges ((AppleDisk) disk);
+      return;
+    }
+
+    if (!formattedDisk.isTempDisk ())
+    {
+      JOptionPane.showMessageDialog (null, "No changes to save");
+      return;
+    }
+
     int blocks = disk.getTotalBlocks ();
     String suffix = blocks <= 560 ? ".dsk" : ".hdv";
 
@@ -40,12 +56,48 @@ class SaveDiskAction extends AbstractSaveAction implements DiskSelectionListener
     saveFile (disk.getFile ().toPath ());
   }
 
+  // only the changed sectors are written, the rest of the file is left alone
+  // ---------------------------------------------------------------------------------//
+  private void saveChanges (AppleDisk disk)
+  // ---------------------------------------------------------------------------------//
+  {
+    String fileName = formattedDisk.getOriginalPath () == null
+        ? disk.getFile ().getName () : formattedDisk.getOriginalPath ().toString ();
+
+    if (!disk.canSaveInPlace ())
+    {
+      JOptionPane.showMessageDialog (null,
+          String.format ("%s cannot be updated in place, the changes were not saved",
+              fileName));
+      return;
+    }
+
+    int option = JOptionPane.showConfirmDialog (null,
+        String.format ("Write %,d changed sectors to %s?", disk.getModifiedSectors (),
+            fileName),
+        "Save disk", JOptionPane.YES_NO_OPTION);
+    if (option != JOptionPane.YES_OPTION)
+      return;
+
+    try
+    {
+      int totalSectors = disk.saveChanges ();
+      JOptionPane.showMessageDialog (null,
+          String.format ("%,d sectors written to %s", totalSectors, fileName));
+    }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+      JOptionPane.showMessageDialog (null, "Disk failed to save");
+    }
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public void diskSelected (DiskSelectedEvent event)
   // ---------------------------------------------------------------------------------//
   {
     formattedDisk = event.getFormattedDisk ();
-    setEnabled (formattedDisk != null && formattedDisk.isTempDisk ());
+    setEnabled (formattedDisk != null);     // sectors can be changed after selection
   }
 }
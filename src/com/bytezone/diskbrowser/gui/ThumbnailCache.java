@@ -0,0 +1,195 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import com.bytezone.diskbrowser.utilities.Utility;
+
+// Thumbnails are stored in ~/.diskbrowser/thumbnails. Each disk has an index file,
+// named by the CRC of the disk image file, whose first line holds the render mode and
+// palette that the images were drawn with. Every other line is the CRC of one rendered
+// image and its name (an index with no image lines means the disk has none). The PNGs
+// are named by the image CRC, so a picture that is on many disks is only stored once.
+// An index drawn with different settings is ignored and the disk is rendered again.
+// The index is written last, so a disk is only treated as cached once all of its
+// thumbnails exist.
+// -----------------------------------------------------------------------------------//
+class ThumbnailCache
+// -----------------------------------------------------------------------------------//
+{
+  private final File folder;
+
+  // ---------------------------------------------------------------------------------//
+  ThumbnailCache ()
+  // ---------------------------------------------------------------------------------//
+  {
+    folder = new File (System.getProperty ("user.home"),
+        ".diskbrowser" + File.separator + "thumbnails");
+    if (!folder.exists () && !folder.mkdirs ())
+      System.out.println ("Unable to create " + folder.getAbsolutePath ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  long getKey (File diskFile)
+  // ---------------------------------------------------------------------------------//
+  {
+    return Utility.getChecksumValue (diskFile);
+  }
+
+  // the CRC of the full size image, before it is scaled
+  // ---------------------------------------------------------------------------------//
+  static long getImageKey (BufferedImage image)
+  // ---------------------------------------------------------------------------------//
+  {
+    CRC32 checksum = new CRC32 ();
+    int width = image.getWidth ();
+    int[] row = new int[width];
+    byte[] bytes = new byte[width * 4];
+
+    for (int y = 0; y < image.getHeight (); y++)
+    {
+      image.getRGB (0, y, width, 1, row, 0, width);
+      for (int x = 0, ptr = 0; x < width; x++)
+      {
+        bytes[ptr++] = (byte) (row[x] >>> 24);
+        bytes[ptr++] = (byte) (row[x] >>> 16);
+        bytes[ptr++] = (byte) (row[x] >>> 8);
+        bytes[ptr++] = (byte) row[x];
+      }
+      checksum.update (bytes, 0, bytes.length);
+    }
+
+    return checksum.getValue ();
+  }
+
+  // returns null if the disk has not been cached with these render options
+  // ---------------------------------------------------------------------------------//
+  List<Entry> getEntries (long key, String renderOptions)
+  // ---------------------------------------------------------------------------------//
+  {
+    File index = getIndexFile (key);
+    if (!index.exists ())
+      return null;
+
+    try
+    {
+      List<String> lines = Files.readAllLines (index.toPath (), StandardCharsets.UTF_8);
+      if (lines.isEmpty () || !lines.get (0).equals (renderOptions))
+        return null;
+
+      List<Entry> entries = new ArrayList<> ();
+      for (int i = 1; i < lines.size (); i++)
+      {
+        String line = lines.get (i);
+        int pos = line.indexOf (' ');
+        if (pos < 0)
+        {
+          System.out.println ("Invalid thumbnail index: " + index.getName ());
+          return null;
+        }
+        entries.add (new Entry (Long.parseUnsignedLong (line.substring (0, pos), 16),
+            line.substring (pos + 1)));
+      }
+      return entries;
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      System.out.println ("Unable to read thumbnail index: " + e.getMessage ());
+      return null;
+    }
+  }
+
+  // returns null if the PNG is missing or can't be read
+  // ---------------------------------------------------------------------------------//
+  BufferedImage read (long imageKey)
+  // ---------------------------------------------------------------------------------//
+  {
+    File file = getImageFile (imageKey);
+    if (!file.exists ())
+      return null;
+
+    try
+    {
+      return ImageIO.read (file);
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Unable to read thumbnail: " + e.getMessage ());
+      return null;
+    }
+  }
+
+  // returns false if the thumbnails could not be saved
+  // ---------------------------------------------------------------------------------//
+  boolean write (long key, String renderOptions, List<Entry> entries,
+      List<BufferedImage> images)
+  // ---------------------------------------------------------------------------------//
+  {
+    try
+    {
+      List<String> lines = new ArrayList<> ();
+      lines.add (renderOptions);
+
+      for (int i = 0; i < entries.size (); i++)
+      {
+        Entry entry = entries.get (i);
+        ImageIO.write (images.get (i), "png", getImageFile (entry.imageKey));
+        lines.add (String.format ("%08X %s", entry.imageKey, entry.name));
+      }
+
+      Files.write (getIndexFile (key).toPath (), lines, StandardCharsets.UTF_8);
+      return true;
+    }
+    catch (IOException e)
+    {
+      System.out.println ("Unable to save thumbnails: " + e.getMessage ());
+      return false;
+    }
+  }
+
+  // the next scan renders the disk again
+  // ---------------------------------------------------------------------------------//
+  void invalidate (long key)
+  // ---------------------------------------------------------------------------------//
+  {
+    File index = getIndexFile (key);
+    if (index.exists () && !index.delete ())
+      System.out.println ("Unable to delete " + index.getAbsolutePath ());
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private File getIndexFile (long key)
+  // ---------------------------------------------------------------------------------//
+  {
+    return new File (folder, String.format ("%08X.txt", key));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private File getImageFile (long imageKey)
+  // ---------------------------------------------------------------------------------//
+  {
+    return new File (folder, String.format ("%08X.png", imageKey));
+  }
+
+  // ---------------------------------------------------------------------------------//
+  static class Entry
+  // ---------------------------------------------------------------------------------//
+  {
+    final long imageKey;
+    final String name;
+
+    Entry (long imageKey, String name)
+    {
+      this.imageKey = imageKey;
+      this.name = name;
+    }
+  }
+}
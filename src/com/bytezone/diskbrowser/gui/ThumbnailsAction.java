@@ -0,0 +1,91 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Action;
+import javax.swing.JOptionPane;
+import javax.swing.KeyStroke;
+
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+import com.bytezone.diskbrowser.utilities.DefaultAction;
+
+// -----------------------------------------------------------------------------------//
+class ThumbnailsAction extends DefaultAction
+    implements DiskSelectionListener, RootDirectoryChangeListener
+// -----------------------------------------------------------------------------------//
+{
+  private FormattedDisk formattedDisk;
+  private File rootFolder;
+
+  // ---------------------------------------------------------------------------------//
+  ThumbnailsAction ()
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Thumbnails...", "Display thumbnails of the images on a disk or folder");
+
+    int mask = Toolkit.getDefaultToolkit ().getMenuShortcutKeyMaskEx ();
+    putValue (Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke (KeyEvent.VK_T, mask));
+    setEnabled (false);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent e)
+  // ---------------------------------------------------------------------------------//
+  {
+    File currentDisk = formattedDisk == null ? null : formattedDisk.getDisk ().getFile ();
+
+    int option = 0;
+    if (rootFolder != null)
+    {
+      Object[] options = { "Current disk", "Root folder", "Cancel" };
+      option = JOptionPane.showOptionDialog (null,
+          "Display the images on the current disk, or on every disk in the root\n"
+              + "folder (including nested folders)? Thumbnails are cached, so the\n"
+              + "first scan of a folder is the slowest.",
+          "Thumbnails", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE,
+          null, options, options[currentDisk == null ? 1 : 0]);
+    }
+
+    List<File> disks = new ArrayList<> ();
+    String title;
+
+    if (option == 0 && currentDisk != null)
+    {
+      disks.add (currentDisk);
+      title = currentDisk.getName ();
+    }
+    else if (option == 1)
+    {
+      ImageCollector.addDisks (rootFolder, disks);
+      title = rootFolder.getAbsolutePath ();
+    }
+    else
+      return;
+
+    new ThumbnailsWindow (title, disks).setVisible (true);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void diskSelected (DiskSelectedEvent event)
+  // ---------------------------------------------------------------------------------//
+  {
+    formattedDisk = event.getFormattedDisk ();
+    setEnabled (formattedDisk != null || rootFolder != null);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void rootDirectoryChanged (File oldRootFolder, File newRootFolder)
+  // ---------------------------------------------------------------------------------//
+  {
+    rootFolder = newRootFolder;
+    setEnabled (formattedDisk != null || rootFolder != null);
+  }
+}
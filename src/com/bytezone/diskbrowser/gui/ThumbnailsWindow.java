@@ -0,0 +1,370 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.ImageIcon;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JScrollPane;
+import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+import com.bytezone.diskbrowser.applefile.HiResImage;
+import com.bytezone.diskbrowser.disk.DiskFactory;
+import com.bytezone.diskbrowser.disk.FormattedDisk;
+
+// Contact sheet of every image on a disk, or on every disk in a folder. Each disk starts
+// as a single cell. The cache is checked for every disk on the worker pool, but a disk
+// that isn't cached is only opened and rendered when its cell scrolls into view, and
+// cached thumbnails are only read when theirs do.
+// -----------------------------------------------------------------------------------//
+class ThumbnailsWindow extends JFrame
+// -----------------------------------------------------------------------------------//
+{
+  private static final int THUMBNAIL_WIDTH = 140;
+  private static final int THUMBNAIL_HEIGHT = 96;
+  private static final int KEEP_LOADED = 200;     // cells either side of the view
+
+  private final DefaultListModel<Thumbnail> model = new DefaultListModel<> ();
+  private final JList<Thumbnail> list = new JList<> (model);
+  private final ExecutorService pool =
+      Executors.newFixedThreadPool (Runtime.getRuntime ().availableProcessors ());
+  private final ThumbnailCache cache = new ThumbnailCache ();
+  private final BitSet loaded = new BitSet ();    // cells holding an image
+  private final String title;
+  private int disksRemaining;                     // cells that are still a whole disk
+
+  // ---------------------------------------------------------------------------------//
+  ThumbnailsWindow (String title, List<File> disks)
+  // ---------------------------------------------------------------------------------//
+  {
+    super (title);
+    this.title = title;
+
+    list.setLayoutOrientation (JList.HORIZONTAL_WRAP);
+    list.setVisibleRowCount (-1);
+    list.setFixedCellWidth (THUMBNAIL_WIDTH + 16);
+    list.setFixedCellHeight (THUMBNAIL_HEIGHT + 32);
+    list.setCellRenderer (new ThumbnailRenderer ());
+
+    JScrollPane scrollPane =
+        new JScrollPane (list, ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
+            ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    scrollPane.getViewport ().addChangeListener (e -> loadVisibleCells ());
+    add (scrollPane, BorderLayout.CENTER);
+
+    addWindowListener (new WindowAdapter ()
+    {
+      @Override
+      public void windowClosed (WindowEvent e)
+      {
+        pool.shutdownNow ();
+      }
+    });
+
+    setDefaultCloseOperation (JFrame.DISPOSE_ON_CLOSE);
+    setSize (THUMBNAIL_WIDTH * 6 + 120, THUMBNAIL_HEIGHT * 5 + 200);
+    setLocationRelativeTo (null);
+
+    for (File disk : disks)
+    {
+      Thumbnail placeholder = new Thumbnail (disk);
+      model.addElement (placeholder);
+      pool.submit ( () -> checkCache (placeholder));
+    }
+    disksRemaining = disks.size ();
+    updateTitle ();
+  }
+
+  // A cached disk is replaced by its (unloaded) thumbnails, any other disk waits until
+  // it is visible.
+  // ---------------------------------------------------------------------------------//
+  private void checkCache (Thumbnail placeholder)
+  // ---------------------------------------------------------------------------------//
+  {
+    long key = 0;
+    List<ThumbnailCache.Entry> entries = null;
+    boolean failed = false;
+    try
+    {
+      key = cache.getKey (placeholder.disk);
+      entries = cache.getEntries (key, HiResImage.getRenderOptions ());
+    }
+    catch (Exception e)
+    {
+      System.out.printf ("Thumbnails - %s: %s%n", placeholder.disk.getName (), e);
+      failed = true;                              // the disk is dropped
+    }
+
+    List<Thumbnail> thumbnails = new ArrayList<> ();
+    if (entries != null)
+      for (ThumbnailCache.Entry entry : entries)
+        thumbnails.add (new Thumbnail (placeholder.disk, entry.name, key, entry.imageKey,
+            null, true));
+
+    long diskKey = key;
+    boolean cached = entries != null || failed;
+    SwingUtilities.invokeLater ( () ->
+    {
+      if (cached)
+        replace (placeholder, thumbnails);
+      else
+      {
+        placeholder.key = diskKey;
+        placeholder.checked = true;
+        loadVisibleCells ();
+      }
+    });
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void renderDisk (Thumbnail placeholder)
+  // ---------------------------------------------------------------------------------//
+  {
+    List<ThumbnailCache.Entry> entries = new ArrayList<> ();
+    List<BufferedImage> images = new ArrayList<> ();
+    boolean cached = false;
+
+    try
+    {
+      String renderOptions = HiResImage.getRenderOptions ();
+      FormattedDisk formattedDisk = DiskFactory.createDisk (placeholder.disk);
+      if (formattedDisk != null)
+        ImageCollector.forEachImage (formattedDisk, (name, image) ->
+        {
+          long imageKey = ThumbnailCache.getImageKey (image);
+          entries.add (new ThumbnailCache.Entry (imageKey, name));
+          images.add (scale (image));
+        });
+
+      cached = cache.write (placeholder.key, renderOptions, entries, images);
+    }
+    catch (Exception e)
+    {
+      System.out.printf ("Thumbnails - %s: %s%n", placeholder.disk.getName (), e);
+    }
+
+    List<Thumbnail> thumbnails = new ArrayList<> ();
+    for (int i = 0; i < images.size (); i++)
+      thumbnails.add (new Thumbnail (placeholder.disk, entries.get (i).name,
+          placeholder.key, entries.get (i).imageKey, images.get (i), cached));
+    SwingUtilities.invokeLater ( () -> replace (placeholder, thumbnails));
+  }
+
+  // the cells after the disk move, so the loaded bits are moved with them
+  // ---------------------------------------------------------------------------------//
+  private void replace (Thumbnail placeholder, List<Thumbnail> thumbnails)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = model.indexOf (placeholder);
+    if (index < 0)
+      return;
+
+    BitSet shifted = loaded.get (0, index);
+    int delta = thumbnails.size () - 1;
+    for (int i = loaded.nextSetBit (index + 1); i >= 0; i = loaded.nextSetBit (i + 1))
+      shifted.set (i + delta);
+    loaded.clear ();
+    loaded.or (shifted);
+
+    model.remove (index);
+    for (Thumbnail thumbnail : thumbnails)
+    {
+      if (thumbnail.image != null)
+        loaded.set (index);
+      model.add (index++, thumbnail);
+    }
+
+    --disksRemaining;
+    updateTitle ();
+    loadVisibleCells ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private BufferedImage scale (BufferedImage image)
+  // ---------------------------------------------------------------------------------//
+  {
+    double scale = Math.min ((double) THUMBNAIL_WIDTH / image.getWidth (),
+        (double) THUMBNAIL_HEIGHT / image.getHeight ());
+    scale = Math.min (scale, 1.0);                // don't enlarge small images
+
+    int width = Math.max (1, (int) (image.getWidth () * scale));
+    int height = Math.max (1, (int) (image.getHeight () * scale));
+
+    BufferedImage thumbnail =
+        new BufferedImage (width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2 = thumbnail.createGraphics ();
+    g2.setRenderingHint (RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g2.drawImage (image, 0, 0, width, height, null);
+    g2.dispose ();
+
+    return thumbnail;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addThumbnails (List<Thumbnail> thumbnails)
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Thumbnail thumbnail : thumbnails)
+    {
+      if (thumbnail.image != null)
+        loaded.set (model.size ());
+      model.addElement (thumbnail);
+    }
+    loadVisibleCells ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void updateTitle ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int images = model.size () - disksRemaining;
+    setTitle (disksRemaining == 0 ? String.format ("%s - %,d images", title, images)
+        : String.format ("%s - %,d images, %,d disks to open", title, images,
+            disksRemaining));
+  }
+
+  // read the thumbnails that are in view, and forget those that are well out of it
+  // ---------------------------------------------------------------------------------//
+  private void loadVisibleCells ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int first = list.getFirstVisibleIndex ();
+    int last = list.getLastVisibleIndex ();
+    if (first < 0 || pool.isShutdown ())
+      return;
+
+    for (int i = first; i <= last; i++)
+    {
+      Thumbnail thumbnail = model.get (i);
+      if (thumbnail.loading || thumbnail.failed)
+        continue;
+
+      if (thumbnail.wholeDisk)
+      {
+        if (thumbnail.checked)                    // not cached, so render it now
+        {
+          thumbnail.loading = true;
+          pool.submit ( () -> renderDisk (thumbnail));
+        }
+      }
+      else if (thumbnail.image == null)
+      {
+        thumbnail.loading = true;
+        pool.submit ( () ->
+        {
+          BufferedImage image = cache.read (thumbnail.imageKey);
+          if (image == null)
+            cache.invalidate (thumbnail.key);     // render the disk again next time
+          SwingUtilities.invokeLater ( () ->
+          {
+            thumbnail.image = image;
+            thumbnail.loading = false;
+            int index = model.indexOf (thumbnail);
+            if (image == null)
+              thumbnail.failed = true;              // don't try again on every scroll
+            else if (index >= 0)
+              loaded.set (index);
+            if (index >= 0)
+              list.repaint (list.getCellBounds (index, index));
+          });
+        });
+      }
+    }
+
+    // only the loaded cells are visited, not the whole model
+    int low = first - KEEP_LOADED;
+    int high = last + KEEP_LOADED;
+    for (int i = loaded.nextSetBit (0); i >= 0; i = loaded.nextSetBit (i + 1))
+    {
+      if (i >= low && i <= high)
+      {
+        i = high;                                 // skip the window
+        continue;
+      }
+      Thumbnail thumbnail = model.get (i);
+      if (thumbnail.cached)                       // otherwise it can't be read back
+      {
+        thumbnail.image = null;
+        loaded.clear (i);
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class Thumbnail
+  // ---------------------------------------------------------------------------------//
+  {
+    final File disk;
+    final String name;
+    final long imageKey;
+    final boolean cached;                         // the PNG was saved
+    final boolean wholeDisk;                      // not replaced by its images yet
+    long key;                                     // the disk's CRC
+    BufferedImage image;                          // only accessed on the event thread
+    boolean checked;                              // a disk that isn't in the cache
+    boolean loading;
+    boolean failed;                               // the PNG couldn't be read
+
+    Thumbnail (File disk)
+    {
+      this.disk = disk;
+      this.name = disk.getName ();
+      this.imageKey = 0;
+      this.cached = false;
+      this.wholeDisk = true;
+    }
+
+    Thumbnail (File disk, String name, long key, long imageKey, BufferedImage image,
+        boolean cached)
+    {
+      this.disk = disk;
+      this.name = name;
+      this.key = key;
+      this.imageKey = imageKey;
+      this.image = image;
+      this.cached = cached;
+      this.wholeDisk = false;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class ThumbnailRenderer extends DefaultListCellRenderer
+  // ---------------------------------------------------------------------------------//
+  {
+    @Override
+    public Component getListCellRendererComponent (JList<?> list, Object value,
+        int index, boolean isSelected, boolean cellHasFocus)
+    {
+      Thumbnail thumbnail = (Thumbnail) value;
+      JLabel label = (JLabel) super.getListCellRendererComponent (list, thumbnail.name,
+          index, isSelected, cellHasFocus);
+
+      label.setIcon (thumbnail.image == null ? null : new ImageIcon (thumbnail.image));
+      label.setHorizontalTextPosition (SwingConstants.CENTER);
+      label.setVerticalTextPosition (SwingConstants.BOTTOM);
+      label.setHorizontalAlignment (SwingConstants.CENTER);
+      label.setToolTipText (thumbnail.wholeDisk ? thumbnail.name
+          : thumbnail.disk.getName () + " : " + thumbnail.name);
+
+      return label;
+    }
+  }
+}
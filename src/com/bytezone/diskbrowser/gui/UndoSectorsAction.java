@@ -0,0 +1,51 @@
+package com.bytezone.diskbrowser.gui;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.JOptionPane;
+
+import com.bytezone.diskbrowser.disk.AppleDisk;
+import com.bytezone.diskbrowser.disk.Disk;
+import com.bytezone.diskbrowser.utilities.DefaultAction;
+
+// -----------------------------------------------------------------------------------//
+class UndoSectorsAction extends DefaultAction implements SectorSelectionListener
+// -----------------------------------------------------------------------------------//
+{
+  private final SectorSelectionListener dataPanel;
+  private SectorSelectedEvent event;
+
+  // ---------------------------------------------------------------------------------//
+  UndoSectorsAction (SectorSelectionListener dataPanel)
+  // ---------------------------------------------------------------------------------//
+  {
+    super ("Undo sector change", "Undo the most recent sector change on this disk");
+    this.dataPanel = dataPanel;
+    setEnabled (false);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void actionPerformed (ActionEvent evt)
+  // ---------------------------------------------------------------------------------//
+  {
+    Disk disk = event == null ? null : event.getFormattedDisk ().getDisk ();
+
+    if (!(disk instanceof AppleDisk) || !((AppleDisk) disk).undo ())
+    {
+      JOptionPane.showMessageDialog (null, "Nothing to undo");
+      return;
+    }
+
+    dataPanel.sectorSelected (event);         // show the restored contents
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public void sectorSelected (SectorSelectedEvent event)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.event = event;
+    setEnabled (true);
+  }
+}
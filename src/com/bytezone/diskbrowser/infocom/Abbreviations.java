@@ -31,10 +31,14 @@ class Abbreviations extends InfocomAbstractFile
     hexBlocks.add (new HexBlock (tablePtr, tableSize, "Abbreviations table:"));
   }
 
+  // must be called before any strings are decoded in parallel
   // ---------------------------------------------------------------------------------//
-  private void populate ()
+  void populate ()
   // ---------------------------------------------------------------------------------//
   {
+    if (list != null)
+      return;
+
     list = new ArrayList<> ();
 
     for (int i = header.abbreviationsTable; i < header.objectTableOffset; i += 2)
@@ -1,8 +1,8 @@
 package com.bytezone.diskbrowser.infocom;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeMap;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -21,7 +21,7 @@ class CodeManager extends AbstractFile
 {
   private final Header header;
   private int codeSize;
-  private final Map<Integer, Routine> routines = new TreeMap<> ();
+  private final TreeMap<Integer, Routine> routines = new TreeMap<> ();
 
   // ---------------------------------------------------------------------------------//
   CodeManager (Header header)
@@ -181,10 +181,8 @@ class CodeManager extends AbstractFile
   private int findNextRoutine (int address)
   // ---------------------------------------------------------------------------------//
   {
-    for (Routine routine : routines.values ())
-      if (routine.startPtr > address)
-        return routine.startPtr;
-    return 0;
+    Integer next = routines.higherKey (address);
+    return next == null ? 0 : next;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -269,6 +267,13 @@ class CodeManager extends AbstractFile
     return routine;
   }
 
+  // ---------------------------------------------------------------------------------//
+  Collection<Routine> getRoutines ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return routines.values ();
+  }
+
   // ---------------------------------------------------------------------------------//
   Routine getRoutine (int address)
   // ---------------------------------------------------------------------------------//
@@ -0,0 +1,173 @@
+package com.bytezone.diskbrowser.infocom;
+
+import java.util.Arrays;
+
+// Built once the routines have been found, this answers 'who calls this routine',
+// 'where is this string used' and 'which routines refer to this object'. Routines
+// are identified by their index in address order.
+// -----------------------------------------------------------------------------------//
+class CrossReference
+// -----------------------------------------------------------------------------------//
+{
+  private static final int[] NONE = new int[0];
+
+  private final int[] routineStart;         // sorted, for the interval lookup
+  private final int[] routineEnd;
+
+  private final int[][] calls;              // routine index -> routine indexes
+  private final int[][] calledBy;
+  private final int[][] stringUsers;        // string index -> routine indexes
+  private final int[][] objectUsers;        // object id -> routine indexes
+
+  private final int[] stringStart;          // sorted string addresses
+
+  // ---------------------------------------------------------------------------------//
+  CrossReference (Header header)
+  // ---------------------------------------------------------------------------------//
+  {
+    Routine[] routines = header.codeManager.getRoutines ().toArray (new Routine[0]);
+    int totalRoutines = routines.length;
+
+    routineStart = new int[totalRoutines];
+    routineEnd = new int[totalRoutines];
+    for (int i = 0; i < totalRoutines; i++)
+    {
+      routineStart[i] = routines[i].startPtr;
+      routineEnd[i] = routines[i].startPtr + routines[i].length;
+    }
+
+    stringStart = header.stringManager.getStringAddresses ();
+    int totalObjects = header.objectManager.getObjects ().size () + 1;
+
+    Pairs callPairs = new Pairs ();
+    Pairs stringPairs = new Pairs ();
+    Pairs objectPairs = new Pairs ();
+
+    for (int i = 0; i < totalRoutines; i++)
+    {
+      for (int target : routines[i].calls)
+      {
+        int index = getRoutineIndex (target);
+        if (index >= 0)
+          callPairs.add (i, index);
+      }
+
+      for (Instruction instruction : routines[i])
+      {
+        int stringIndex = Arrays.binarySearch (stringStart, instruction.getStringAddress ());
+        if (stringIndex >= 0)
+          stringPairs.add (stringIndex, i);
+
+        for (int objectId : instruction.getObjectIds ())
+          if (objectId > 0 && objectId < totalObjects)
+            objectPairs.add (objectId, i);
+      }
+    }
+
+    calls = callPairs.group (totalRoutines, false);
+    calledBy = callPairs.group (totalRoutines, true);
+    stringUsers = stringPairs.group (stringStart.length, false);
+    objectUsers = objectPairs.group (totalObjects, false);
+  }
+
+  // index of the routine that contains this address, or -1
+  // ---------------------------------------------------------------------------------//
+  private int getRoutineIndex (int address)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = Arrays.binarySearch (routineStart, address);
+    if (index >= 0)
+      return index;
+
+    index = -index - 2;                     // the routine starting before the address
+    return index >= 0 && address < routineEnd[index] ? index : -1;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int[] getCallers (int routineAddress)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = Arrays.binarySearch (routineStart, routineAddress);
+    return index < 0 ? NONE : getAddresses (calledBy[index]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int[] getCallees (int routineAddress)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = Arrays.binarySearch (routineStart, routineAddress);
+    return index < 0 ? NONE : getAddresses (calls[index]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int[] getStringUsers (int stringAddress)
+  // ---------------------------------------------------------------------------------//
+  {
+    int index = Arrays.binarySearch (stringStart, stringAddress);
+    return index < 0 ? NONE : getAddresses (stringUsers[index]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int[] getObjectUsers (int objectId)
+  // ---------------------------------------------------------------------------------//
+  {
+    return objectId <= 0 || objectId >= objectUsers.length ? NONE
+        : getAddresses (objectUsers[objectId]);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private int[] getAddresses (int[] indexes)
+  // ---------------------------------------------------------------------------------//
+  {
+    int[] addresses = new int[indexes.length];
+    for (int i = 0; i < indexes.length; i++)
+      addresses[i] = routineStart[indexes[i]];
+    return addresses;
+  }
+
+  // growable list of (key, value) pairs
+  // ---------------------------------------------------------------------------------//
+  private static class Pairs
+  // ---------------------------------------------------------------------------------//
+  {
+    int[] keys = new int[256];
+    int[] values = new int[256];
+    int size;
+
+    void add (int key, int value)
+    {
+      if (size == keys.length)
+      {
+        keys = Arrays.copyOf (keys, size * 2);
+        values = Arrays.copyOf (values, size * 2);
+      }
+      keys[size] = key;
+      values[size++] = value;
+    }
+
+    // collect the distinct values for each key (or keys for each value if inverted)
+    int[][] group (int totalKeys, boolean inverted)
+    {
+      int[] from = inverted ? values : keys;
+      int[] to = inverted ? keys : values;
+
+      int[] counts = new int[totalKeys];
+      for (int i = 0; i < size; i++)
+        counts[from[i]]++;
+
+      int[][] groups = new int[totalKeys][];
+      for (int i = 0; i < totalKeys; i++)
+        groups[i] = counts[i] == 0 ? NONE : new int[counts[i]];
+
+      int[] ptr = new int[totalKeys];
+      for (int i = 0; i < size; i++)
+        groups[from[i]][ptr[from[i]]++] = to[i];
+
+      for (int i = 0; i < totalKeys; i++)
+        if (groups[i].length > 1)
+          groups[i] = Arrays.stream (groups[i]).sorted ().distinct ().toArray ();
+
+      return groups;
+    }
+  }
+}
@@ -1,9 +1,11 @@
 package com.bytezone.diskbrowser.infocom;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -13,6 +15,7 @@ class Dictionary extends AbstractFile
 // -----------------------------------------------------------------------------------//
 {
   private final Map<Integer, ZString> dictionary;
+  private final BitSet wordStarts = new BitSet ();
   private final int totalEntries;
   private final int totalSeparators;
   private final int dictionaryPtr, dictionarySize;
@@ -43,11 +46,20 @@ class Dictionary extends AbstractFile
     totalEntries = header.getWord (ptr);
 
     ptr += 2;
+
+    // the entries are a fixed length, so the words can be decoded in parallel
+    int firstEntry = ptr;
+    int length = entryLength;
+    ZString[] words = new ZString[totalEntries];
+    IntStream.range (0, totalEntries).parallel ()
+        .forEach (i -> words[i] = new ZString (header, firstEntry + i * length));
+
     int count = 0;
     for (int i = 0; i < totalEntries; i++)
     {
-      ZString string = new ZString (header, ptr);
+      ZString string = words[i];
       dictionary.put (ptr, string);
+      wordStarts.set (ptr);
       WordEntry wordEntry = new WordEntry (string, count++);
 
       // add the WordEntry to the appropriate list
@@ -142,7 +154,7 @@ class Dictionary extends AbstractFile
   public boolean containsWordAt (int address)
   // ---------------------------------------------------------------------------------//
   {
-    return dictionary.containsKey (address);
+    return address >= 0 && wordStarts.get (address);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -30,6 +30,7 @@ class Header extends InfocomAbstractFile
   final Dictionary dictionary;
   final CodeManager codeManager;
   final StringManager stringManager;
+  final CrossReference crossReference;
 
   // ---------------------------------------------------------------------------------//
   Header (String name, byte[] buffer, Disk disk)
@@ -63,6 +64,7 @@ class Header extends InfocomAbstractFile
 
     // do the basic managers
     abbreviations = new Abbreviations (this);
+    abbreviations.populate ();                        // shared by parallel decoders
     dictionary = new Dictionary (this);
     globals = new Globals (this);                     // may display ZStrings
 
@@ -78,6 +80,7 @@ class Header extends InfocomAbstractFile
     stringManager = new StringManager ("Strings", buffer, this);
 
     codeManager.addRoutines (programCounter);
+    crossReference = new CrossReference (this);
 
     // add entries for AbstractFile.getHexDump ()
     hexBlocks.add (new HexBlock (0, 64, "Header data:"));
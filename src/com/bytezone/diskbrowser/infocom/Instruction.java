@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.infocom;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -132,6 +133,59 @@ class Instruction
     return isBranch () ? opcode.branch.target : isJump () ? opcode.jumpTarget : 0;
   }
 
+  // address of the string printed by a print_paddr with a constant operand, or 0
+  // ---------------------------------------------------------------------------------//
+  int getStringAddress ()
+  // ---------------------------------------------------------------------------------//
+  {
+    if (opcode instanceof Opcode1OP && opcode.opcodeNumber == 13
+        && isConstant (opcode.operands.get (0)))
+      return opcode.operands.get (0).value * 2;
+    return 0;
+  }
+
+  // objects referred to by constant operands
+  // ---------------------------------------------------------------------------------//
+  int[] getObjectIds ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int totalObjects = 0;
+    int number = opcode.opcodeNumber;
+
+    if (opcode instanceof Opcode1OP)
+    {
+      if ((number >= 1 && number <= 3) || number == 9 || number == 10)
+        totalObjects = 1;
+    }
+    else if (opcode instanceof Opcode2OP)
+    {
+      if (number == 6 || number == 14)                    // jin, insert_obj
+        totalObjects = 2;
+      else if ((number >= 10 && number <= 12) || (number >= 17 && number <= 19))
+        totalObjects = 1;
+    }
+    else if (opcode instanceof OpcodeVar && number == 3)  // put_prop
+      totalObjects = 1;
+
+    totalObjects = Math.min (totalObjects, opcode.operands.size ());
+    int[] ids = new int[totalObjects];
+    int count = 0;
+    for (int i = 0; i < totalObjects; i++)
+      if (isConstant (opcode.operands.get (i)))
+        ids[count++] = opcode.operands.get (i).value;
+
+    return count == ids.length ? ids : Arrays.copyOf (ids, count);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private boolean isConstant (Operand operand)
+  // ---------------------------------------------------------------------------------//
+  {
+    return operand.operandType == OperandType.BYTE
+        || operand.operandType == OperandType.WORD
+        || operand.operandType == OperandType.OBJECT;
+  }
+
   // ---------------------------------------------------------------------------------//
   String dump ()
   // ---------------------------------------------------------------------------------//
@@ -578,22 +632,22 @@ class Instruction
   class ArgumentString extends Operand
   // ---------------------------------------------------------------------------------//
   {
-    private ZString text;
-    private int startPtr;
-    private byte[] buffer;
+    private ZString text;                 // not decoded until it is displayed
+    private final int offset;
 
     ArgumentString (byte[] buffer, int offset)
     {
-      this.buffer = buffer;
-      text = new ZString (header, offset);
-      length = text.length;
+      this.offset = offset;
+      length = ZString.getLength (buffer, offset);
       operandType = OperandType.ARG_STRING;
     }
 
     @Override
     public String toString ()
     {
+      if (text == null)
+        text = new ZString (header, offset);
       return text.value;
     }
   }
-}
\ No newline at end of file
+}
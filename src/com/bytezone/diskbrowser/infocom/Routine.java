@@ -1,8 +1,10 @@
 package com.bytezone.diskbrowser.infocom;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import com.bytezone.diskbrowser.infocom.Instruction.Operand;
 import com.bytezone.diskbrowser.infocom.Instruction.OperandType;
@@ -21,12 +23,15 @@ class Routine extends InfocomAbstractFile
   List<Integer> calledBy = new ArrayList<> ();
   List<Integer> actions = new ArrayList<> ();          // not used yet
   List<Integer> targets = new ArrayList<> ();
+  private final Set<Integer> targetSet = new HashSet<> ();
+  private final Header header;
 
   // ---------------------------------------------------------------------------------//
   Routine (int ptr, Header header, int caller)
   // ---------------------------------------------------------------------------------//
   {
     super (String.format ("Routine %05X", ptr), header.buffer);
+    this.header = header;
 
     locals = buffer[ptr] & 0xFF;
     if (locals > 15)
@@ -63,10 +68,8 @@ class Routine extends InfocomAbstractFile
       if (instruction.isPrint ())
         strings++;
 
-      if (instruction.isBranch () && !targets.contains (instruction.target ()))
-        targets.add (instruction.target ());
-
-      if (instruction.isJump () && !targets.contains (instruction.target ()))
+      if ((instruction.isBranch () || instruction.isJump ())
+          && targetSet.add (instruction.target ()))
         targets.add (instruction.target ());
 
       for (Operand operand : instruction.opcode.operands)
@@ -136,15 +139,7 @@ class Routine extends InfocomAbstractFile
   private boolean isTarget (int ptr)
   // ---------------------------------------------------------------------------------//
   {
-    for (Instruction ins : instructions)
-    {
-      if (ins.isBranch () && ins.target () == ptr)
-        return true;
-      // should this be calling ins.target () ?
-      if (ins.isJump () && ins.opcode.jumpTarget == ptr)
-        return true;
-    }
-    return false;
+    return targetSet.contains (ptr);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -160,9 +155,11 @@ class Routine extends InfocomAbstractFile
   // ---------------------------------------------------------------------------------//
   {
     StringBuilder text = new StringBuilder ();
+    int[] callers = header.crossReference.getCallers (startPtr);
+    int[] callees = header.crossReference.getCallees (startPtr);
 
-    text.append (String.format ("Called by : %3d%n", calledBy.size ()));
-    text.append (String.format ("Calls     : %3d%n", calls.size ()));
+    text.append (String.format ("Called by : %3d%n", callers.length));
+    text.append (String.format ("Calls     : %3d%n", callees.length));
     text.append (String.format ("Length    : %3d%n%n", length));
 
     text.append (String.format ("%05X : %d%n", startPtr, locals));
@@ -176,24 +173,24 @@ class Routine extends InfocomAbstractFile
     {
       text.append (instruction.getHex ());
       int offset = instruction.startPtr;
-      if (targets.contains (offset))
+      if (targetSet.contains (offset))
         text.append ("  L000 ");
       else
         text.append ("       ");
       text.append (instruction + "\n");
     }
 
-    if (calledBy.size () > 0)
+    if (callers.length > 0)
     {
       text.append ("\n\nCalled by\n\n");
-      for (int i : calledBy)
+      for (int i : callers)
         text.append (String.format ("%05X%n", i));
     }
 
-    if (calls.size () > 0)
+    if (callees.length > 0)
     {
       text.append ("\n\nCalls\n\n");
-      for (int i : calls)
+      for (int i : callees)
         text.append (String.format ("%05X%n", i));
     }
 
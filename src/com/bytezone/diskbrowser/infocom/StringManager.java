@@ -1,7 +1,11 @@
 package com.bytezone.diskbrowser.infocom;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.stream.IntStream;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -12,6 +16,7 @@ class StringManager extends AbstractFile
 {
   Header header;
   Map<Integer, ZString> strings = new TreeMap<Integer, ZString> ();
+  private final BitSet stringStarts = new BitSet ();
 
   // ---------------------------------------------------------------------------------//
   StringManager (String name, byte[] buffer, Header header)
@@ -20,15 +25,27 @@ class StringManager extends AbstractFile
     super (name, buffer);
     this.header = header;
 
+    // find where each string starts, then decode them all in parallel
+    List<Integer> offsets = new ArrayList<> ();
     int ptr = header.stringPointer;
     int max = header.fileLength;
     while (ptr < max)
     {
-      ZString zs = new ZString (header, ptr);
-      if (zs.value == null)
+      int length = ZString.getLength (buffer, ptr);
+      if (length == 0)
         break;                        // used when eof not known or correct - fix!!
-      strings.put (ptr, zs);
-      ptr += zs.length;
+      offsets.add (ptr);
+      ptr += length;
+    }
+
+    ZString[] zStrings = new ZString[offsets.size ()];
+    IntStream.range (0, zStrings.length).parallel ()
+        .forEach (i -> zStrings[i] = new ZString (header, offsets.get (i)));
+
+    for (ZString zs : zStrings)
+    {
+      strings.put (zs.startPtr, zs);
+      stringStarts.set (zs.startPtr);
     }
   }
 
@@ -36,7 +53,14 @@ class StringManager extends AbstractFile
   public boolean containsStringAt (int address)
   // ---------------------------------------------------------------------------------//
   {
-    return strings.containsKey (address);
+    return address >= 0 && stringStarts.get (address);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int[] getStringAddresses ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return stringStarts.stream ().toArray ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -63,6 +87,15 @@ class StringManager extends AbstractFile
     {
       String s2 = s.value.replace ("\n", "\n             ");
       text.append (String.format ("%3d  %05X  \"%s\"%n", ++count, s.startPtr, s2));
+
+      int[] users = header.crossReference.getStringUsers (s.startPtr);
+      if (users.length > 0)
+      {
+        text.append ("             used by :");
+        for (int address : users)
+          text.append (String.format (" %05X", address));
+        text.append ("\n");
+      }
     }
 
     if (text.length () > 0)
@@ -101,6 +101,14 @@ class ZObject extends AbstractFile implements Comparable<ZObject>
     for (Property prop : properties)
       text.append (prop + "\n");
 
+    int[] users = header.crossReference.getObjectUsers (id);
+    if (users.length > 0)
+    {
+      text.append ("\nUsed by routines :\n\n");
+      for (int address : users)
+        text.append (String.format ("%05X%n", address));
+    }
+
     return text.toString ();
   }
 
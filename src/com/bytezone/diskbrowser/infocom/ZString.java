@@ -4,9 +4,10 @@ package com.bytezone.diskbrowser.infocom;
 class ZString
 // -----------------------------------------------------------------------------------//
 {
-  private static String[] letters =
-      { "      abcdefghijklmnopqrstuvwxyz", "      ABCDEFGHIJKLMNOPQRSTUVWXYZ",
-        "        0123456789.,!?_#\'\"/\\-:()" };
+  private static final char[][] letters =
+      { "      abcdefghijklmnopqrstuvwxyz".toCharArray (),
+        "      ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray (),
+        "        0123456789.,!?_#\'\"/\\-:()".toCharArray () };
   String value;
   Header header;
   int startPtr;
@@ -46,6 +47,22 @@ class ZString
     }
   }
 
+  // length in bytes of the string at offset without decoding it, or 0 if the string
+  // runs off the end of the buffer
+  // ---------------------------------------------------------------------------------//
+  static int getLength (byte[] buffer, int offset)
+  // ---------------------------------------------------------------------------------//
+  {
+    int ptr = offset;
+    while (ptr < buffer.length - 1)
+    {
+      if ((buffer[ptr] & 0x80) != 0)               // bit 15 = finished flag
+        return ptr - offset + 2;
+      ptr += 2;
+    }
+    return 0;
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public String toString ()
@@ -103,7 +120,7 @@ class ZString
         }
         if (zchar == 7)
         {
-          text.append ("\n");
+          text.append ('\n');
           shift = false;
           return;
         }
@@ -114,7 +131,7 @@ class ZString
       switch (zchar)
       {
         case 0:
-          text.append (" ");
+          text.append (' ');
           shift = false;
           return;
 
@@ -148,11 +165,11 @@ class ZString
         default:
           if (shift)
           {
-            text.append (letters[shiftAlphabet].charAt (zchar));
+            text.append (letters[shiftAlphabet][zchar]);
             shift = false;
           }
           else
-            text.append (letters[alphabet].charAt (zchar));
+            text.append (letters[alphabet][zchar]);
           return;
       }
     }
@@ -8,6 +8,7 @@ import com.bytezone.diskbrowser.applefile.Charset;
 import com.bytezone.diskbrowser.applefile.DefaultAppleFile;
 import com.bytezone.diskbrowser.applefile.PascalCode;
 import com.bytezone.diskbrowser.applefile.PascalInfo;
+import com.bytezone.diskbrowser.applefile.PascalProcedure;
 import com.bytezone.diskbrowser.applefile.PascalSegment;
 import com.bytezone.diskbrowser.applefile.PascalText;
 import com.bytezone.diskbrowser.utilities.FileFormatException;
@@ -84,10 +85,21 @@ public class FileEntry extends CatalogEntry
 
           for (PascalSegment pascalSegment : (PascalCode) file)
           {
-            DefaultMutableTreeNode segmentNode = new DefaultMutableTreeNode (
-                new PascalCodeObject (parent, pascalSegment, firstBlock));
-            segmentNode.setAllowsChildren (false);
+            PascalCodeObject segmentObject =
+                new PascalCodeObject (parent, pascalSegment, firstBlock);
+            DefaultMutableTreeNode segmentNode = new DefaultMutableTreeNode (segmentObject);
             node.add (segmentNode);
+
+            // listed from the procedure headers, the code is decoded when it is shown
+            for (PascalProcedure procedure : pascalSegment.getProcedures ())
+              if (procedure.isValid ())
+              {
+                DefaultMutableTreeNode procedureNode = new DefaultMutableTreeNode (
+                    new PascalCodeObject (segmentObject, procedure));
+                procedureNode.setAllowsChildren (false);
+                segmentNode.add (procedureNode);
+              }
+            segmentNode.setAllowsChildren (segmentNode.getChildCount () > 0);
           }
         }
         catch (FileFormatException e)
@@ -5,6 +5,7 @@ import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
 import com.bytezone.diskbrowser.applefile.AppleFileSource;
+import com.bytezone.diskbrowser.applefile.PascalProcedure;
 import com.bytezone.diskbrowser.applefile.PascalSegment;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
@@ -16,8 +17,9 @@ class PascalCodeObject implements AppleFileSource
 // -----------------------------------------------------------------------------------//
 {
   private final PascalDisk parent;
-  private final AbstractFile segment;
-  private final List<DiskAddress> blocks = new ArrayList<> ();
+  private final AbstractFile segment;         // or a procedure within the segment
+  private final List<DiskAddress> blocks;
+  private final String uniqueName;
 
   // ---------------------------------------------------------------------------------//
   PascalCodeObject (PascalDisk parent, PascalSegment segment, int firstBlock)
@@ -25,6 +27,8 @@ class PascalCodeObject implements AppleFileSource
   {
     this.parent = parent;
     this.segment = segment;
+    this.blocks = new ArrayList<> ();
+    this.uniqueName = segment.getName ();       // this should be fileName/segmentName
 
     int lo = firstBlock + segment.blockNo;
     int hi = lo + (segment.size - 1) / 512;
@@ -34,6 +38,17 @@ class PascalCodeObject implements AppleFileSource
       blocks.add (disk.getDiskAddress (i));
   }
 
+  // a procedure shares the blocks of its segment
+  // ---------------------------------------------------------------------------------//
+  PascalCodeObject (PascalCodeObject segmentObject, PascalProcedure procedure)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.parent = segmentObject.parent;
+    this.segment = procedure;
+    this.blocks = segmentObject.blocks;
+    this.uniqueName = segmentObject.uniqueName + "/" + procedure.getName ();
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public DataSource getDataSource ()
@@ -74,7 +89,7 @@ class PascalCodeObject implements AppleFileSource
   public String getUniqueName ()
   // ---------------------------------------------------------------------------------//
   {
-    return segment.getName ();            // this should be fileName/segmentName
+    return uniqueName;
   }
 
   // ---------------------------------------------------------------------------------//
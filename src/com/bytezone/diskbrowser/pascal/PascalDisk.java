@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.pascal;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
@@ -79,9 +80,8 @@ public class PascalDisk extends AbstractFormattedDisk
     for (int i = 2; i < disk.getTotalBlocks (); i++)
       freeBlocks.set (i, true);
 
-    byte[] buffer = disk.readBlock (2);
     byte[] data = new byte[CATALOG_ENTRY_SIZE];
-    System.arraycopy (buffer, 0, data, 0, CATALOG_ENTRY_SIZE);
+    disk.viewBlock (disk.getDiskAddress (2)).get (data);
     volumeEntry = new VolumeEntry (this, data);
 
     DefaultMutableTreeNode root = getCatalogTreeRoot ();
@@ -99,14 +99,9 @@ public class PascalDisk extends AbstractFormattedDisk
       freeBlocks.set (i, false);
     }
 
-    diskCatalogSector =
-        new PascalCatalogSector (disk, disk.readBlocks (sectors), sectors);
-
-    // read the catalog
-    List<DiskAddress> addresses = new ArrayList<> ();
-    for (int i = 2; i < max; i++)
-      addresses.add (disk.getDiskAddress (i));
-    buffer = disk.readBlocks (addresses);
+    // read the catalog, the sector display only reads the same buffer
+    byte[] buffer = disk.readBlocks (sectors);
+    diskCatalogSector = new PascalCatalogSector (disk, buffer, sectors);
 
     for (int i = 1; i <= volumeEntry.totalFiles; i++)
     {
@@ -153,8 +148,8 @@ public class PascalDisk extends AbstractFormattedDisk
   public static boolean checkFormat (AppleDisk disk, boolean debug)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (2);
-    int nameLength = buffer[6] & 0xFF;
+    ByteBuffer volume = disk.viewBlock (disk.getDiskAddress (2));
+    int nameLength = volume.get (6) & 0xFF;
     if (nameLength < 1 || nameLength > 7)
     {
       if (debug)
@@ -164,12 +159,12 @@ public class PascalDisk extends AbstractFormattedDisk
 
     if (debug)
     {
-      String name = HexFormatter.getPascalString (buffer, 6);
+      String name = HexFormatter.getPascalString (disk.readBlock (2), 6);
       System.out.println ("Name ok : " + name);
     }
 
-    int from = Utility.getShort (buffer, 0);
-    int to = Utility.getShort (buffer, 2);
+    int from = volume.getShort (0) & 0xFFFF;
+    int to = volume.getShort (2) & 0xFFFF;
     if (from != 0 || to != 6)
     {
       if (debug)
@@ -177,7 +172,7 @@ public class PascalDisk extends AbstractFormattedDisk
       return false;                         // will only work for floppies!
     }
 
-    int blocks = Utility.getShort (buffer, 14);
+    int blocks = volume.getShort (14) & 0xFFFF;
     if (blocks != 280 && blocks != 1600)
     {
       if (debug)
@@ -188,7 +183,7 @@ public class PascalDisk extends AbstractFormattedDisk
     List<DiskAddress> addresses = new ArrayList<> ();
     for (int i = 2; i < to; i++)
       addresses.add (disk.getDiskAddress (i));
-    buffer = disk.readBlocks (addresses);
+    byte[] buffer = disk.readBlocks (addresses);
 
     int files = Utility.getShort (buffer, 16);
     if (files < 0 || files > 77)
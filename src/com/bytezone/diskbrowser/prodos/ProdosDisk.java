@@ -3,6 +3,7 @@ package com.bytezone.diskbrowser.prodos;
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRY_SIZE;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -112,10 +113,11 @@ public class ProdosDisk extends AbstractFormattedDisk
   {
     DirectoryHeader localHeader = null;
     SectorType currentSectorType = null;
+    byte[] sectorBuffer = new byte[disk.getBlockSize ()];   // reused for each block
 
     do
     {
-      byte[] sectorBuffer = disk.readBlock (block);
+      disk.readBlock (disk.getDiskAddress (block), sectorBuffer, 0);
       if (!disk.isBlockEmpty (block))
         sectorTypes[block] = currentSectorType;
 
@@ -217,20 +219,21 @@ public class ProdosDisk extends AbstractFormattedDisk
   public static boolean checkFormat (AppleDisk disk)
   // ---------------------------------------------------------------------------------//
   {
-    byte[] buffer = disk.readBlock (2);          // Prodos KEY BLOCK
+    ByteBuffer buffer = disk.viewBlock (disk.getDiskAddress (2));   // Prodos KEY BLOCK
     if (debug)
     {
-      System.out.println (HexFormatter.format (buffer));
-      System.out.printf ("Entry length   : %02X%n", buffer[0x23]);
-      System.out.printf ("Entry per block: %02X%n", buffer[0x24]);
-      System.out.printf ("Bit map block  : %02X%02X%n", buffer[0x27], buffer[0x28]);
+      System.out.println (HexFormatter.format (disk.readBlock (2)));
+      System.out.printf ("Entry length   : %02X%n", buffer.get (0x23));
+      System.out.printf ("Entry per block: %02X%n", buffer.get (0x24));
+      System.out.printf ("Bit map block  : %02X%02X%n", buffer.get (0x27),
+          buffer.get (0x28));
     }
 
     // check entry length and entries per block
-    if (buffer[0x23] != 0x27 || buffer[0x24] != 0x0D)
+    if (buffer.get (0x23) != 0x27 || buffer.get (0x24) != 0x0D)
       return false;
 
-    int bitMapBlock = Utility.getShort (buffer, 0x27);
+    int bitMapBlock = buffer.getShort (0x27) & 0xFFFF;
     if (bitMapBlock < 3 || bitMapBlock > 10)
       return false;
 
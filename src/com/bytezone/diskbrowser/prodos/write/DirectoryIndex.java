@@ -0,0 +1,84 @@
+package com.bytezone.diskbrowser.prodos.write;
+
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.BLOCK_SIZE;
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRIES_PER_BLOCK;
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRY_SIZE;
+import static com.bytezone.diskbrowser.utilities.Utility.getShort;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// In-memory copy of what a directory's block chain contains, so that adding a file
+// doesn't need to read the chain. Entries are never removed, so the free slots are
+// always at the end of the chain and a single cursor is enough to find the next one.
+// -----------------------------------------------------------------------------------//
+class DirectoryIndex
+// -----------------------------------------------------------------------------------//
+{
+  private final byte[] buffer;
+  private final Map<String, Integer> entries = new HashMap<> ();   // name -> entry ptr
+
+  int lastBlockNo;                // last block in the chain
+  int freePtr;                    // next free entry, or 0 if the chain is full
+  int freeSlots;
+
+  // ---------------------------------------------------------------------------------//
+  DirectoryIndex (byte[] buffer, int keyBlockNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.buffer = buffer;
+
+    // the first entry in the key block is the directory header
+    freePtr = keyBlockNo * BLOCK_SIZE + 4 + ENTRY_SIZE;
+    freeSlots = ENTRIES_PER_BLOCK - 1;
+
+    int blockNo = keyBlockNo;
+    while (true)
+    {
+      lastBlockNo = blockNo;
+      blockNo = getShort (buffer, blockNo * BLOCK_SIZE + 2);
+      if (blockNo == 0)
+        break;
+      freeSlots += ENTRIES_PER_BLOCK;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Integer get (String fileName)
+  // ---------------------------------------------------------------------------------//
+  {
+    return entries.get (fileName);
+  }
+
+  // the name is read back from the entry, so it matches exactly what was written
+  // ---------------------------------------------------------------------------------//
+  void add (int ptr)
+  // ---------------------------------------------------------------------------------//
+  {
+    int nameLength = buffer[ptr] & 0x0F;
+    entries.put (new String (buffer, ptr + 1, nameLength), ptr);
+
+    if (ptr != freePtr)
+      return;
+
+    --freeSlots;
+    freePtr += ENTRY_SIZE;
+
+    if ((freePtr % BLOCK_SIZE - 4) / ENTRY_SIZE == ENTRIES_PER_BLOCK)   // end of block
+    {
+      int nextBlockNo = getShort (buffer, (freePtr - 1) / BLOCK_SIZE * BLOCK_SIZE + 2);
+      freePtr = nextBlockNo == 0 ? 0 : nextBlockNo * BLOCK_SIZE + 4;
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  void addBlock (int blockNo)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (freePtr == 0)
+      freePtr = blockNo * BLOCK_SIZE + 4;
+
+    lastBlockNo = blockNo;
+    freeSlots += ENTRIES_PER_BLOCK;
+  }
+}
@@ -18,7 +18,7 @@ public class FileEntry
 {
   private final ProdosDisk disk;
   private final byte[] buffer;
-  private final int ptr;
+  final int ptr;
 
   String fileName;
   byte storageType;
@@ -5,6 +5,11 @@ import static com.bytezone.diskbrowser.prodos.ProdosConstants.SAPLING;
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.SEEDLING;
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.TREE;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 // -----------------------------------------------------------------------------------//
 public class FileWriter
 // -----------------------------------------------------------------------------------//
@@ -30,7 +35,14 @@ public class FileWriter
   void writeFile (byte[] dataBuffer, int eof) throws DiskFullException
   // ---------------------------------------------------------------------------------//
   {
-    this.eof = Math.min (eof, dataBuffer.length);
+    writeFile (dataBuffer, 0, eof);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  void writeFile (byte[] dataBuffer, int offset, int eof) throws DiskFullException
+  // ---------------------------------------------------------------------------------//
+  {
+    this.eof = Math.min (eof, dataBuffer.length - offset);
 
     int dataPtr = 0;
     int remaining = this.eof;
@@ -43,15 +55,103 @@ public class FileWriter
       int bufferPtr = actualBlockNo * BLOCK_SIZE;
       int transfer = Math.min (remaining, BLOCK_SIZE);
 
-      System.arraycopy (dataBuffer, dataPtr, disk.getBuffer (), bufferPtr, transfer);
+      System.arraycopy (dataBuffer, offset + dataPtr, disk.getBuffer (), bufferPtr,
+          transfer);
 
       dataPtr += transfer;
       remaining -= transfer;
     }
 
+    if (storageType == 0)                       // an empty file still has a key block
+    {
+      keyPointer = allocateNextBlock ();
+      storageType = SEEDLING;
+    }
+
+    writeIndices ();
+  }
+
+  // The file size is known, so the index blocks can be allocated first, and the data
+  // blocks that follow them are then consecutive.
+  // ---------------------------------------------------------------------------------//
+  void writeContiguousFile (byte[] dataBuffer, int offset, int eof)
+      throws DiskFullException
+  // ---------------------------------------------------------------------------------//
+  {
+    allocateIndices (Math.min (eof, dataBuffer.length - offset));
+    writeFile (dataBuffer, offset, eof);
+  }
+
+  // reads the file straight into the disk buffer, so it is never held in memory
+  // ---------------------------------------------------------------------------------//
+  void writeContiguousFile (Path source, int eof) throws DiskFullException, IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    allocateIndices (eof);
+    this.eof = 0;
+
+    try (InputStream in = Files.newInputStream (source))
+    {
+      while (this.eof < eof)
+      {
+        int actualBlockNo = allocateNextBlock ();
+        map (this.eof / BLOCK_SIZE, actualBlockNo);
+
+        int transfer = in.readNBytes (disk.getBuffer (), actualBlockNo * BLOCK_SIZE,
+            Math.min (eof - this.eof, BLOCK_SIZE));
+        this.eof += transfer;
+
+        if (transfer < BLOCK_SIZE)              // last block, or the file got shorter
+          break;
+      }
+    }
+
     writeIndices ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  private void allocateIndices (int eof) throws DiskFullException
+  // ---------------------------------------------------------------------------------//
+  {
+    int dataBlocks = (eof - 1) / BLOCK_SIZE + 1;
+
+    if (eof == 0)                               // an empty file still has a key block
+    {
+      keyPointer = allocateNextBlock ();
+      storageType = SEEDLING;
+    }
+    else if (dataBlocks > 0x100)
+    {
+      masterIndexBlock = new MasterIndexBlock (allocateNextBlock ());
+      for (int i = 0; i <= (dataBlocks - 1) / 0x100; i++)
+        masterIndexBlock.set (i, new IndexBlock (allocateNextBlock ()));
+
+      keyPointer = masterIndexBlock.blockNo;
+      storageType = TREE;
+    }
+    else if (dataBlocks > 1)
+    {
+      indexBlock = new IndexBlock (allocateNextBlock ());
+
+      keyPointer = indexBlock.blockNo;
+      storageType = SAPLING;
+    }
+  }
+
+  // blocks needed by a file of this size, including its index blocks
+  // ---------------------------------------------------------------------------------//
+  static int getTotalBlocks (int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    int dataBlocks = (eof + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+    if (dataBlocks > 0x100)
+      return dataBlocks + (dataBlocks - 1) / 0x100 + 2;
+    if (dataBlocks > 1)
+      return dataBlocks + 1;
+    return 1;
+  }
+
   // ---------------------------------------------------------------------------------//
   void writeRecord (int recordNo, byte[] dataBuffer, int recordLength)
       throws DiskFullException
@@ -0,0 +1,391 @@
+package com.bytezone.diskbrowser.prodos.write;
+
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.BLOCK_SIZE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Builds a ProDOS image (.po, .hdv or .2mg) from a folder on the host. The folder is
+// walked once to map the names and file types and to count the blocks needed, so the
+// image is created at its final size. File contents are only read while the image is
+// being built, one file at a time, directly into the image buffer.
+//
+// File types come from a CiderPress style suffix (NAME#TTAAAA), or from an AppleDouble
+// file (._NAME) in the same folder, which may also contain a resource fork. Anything
+// else is stored as BIN.
+// -----------------------------------------------------------------------------------//
+public class FolderPacker
+// -----------------------------------------------------------------------------------//
+{
+  private static final Pattern TYPE_SUFFIX =
+      Pattern.compile ("(.+)#([0-9A-Fa-f]{2})([0-9A-Fa-f]{4})");
+  private static final int APPLE_DOUBLE = 0x00051607;
+  private static final int MAX_EOF = 0xFFFFFF;
+  private static final int HEADER_2MG = 64;
+  private static final int MAX_SKIPPED_LISTED = 20;
+
+  private final Path folder;
+  private final String volumeName;
+  private final List<String> directories = new ArrayList<> ();
+  private final List<NewFile> files = new ArrayList<> ();
+  private final List<ResourceFork> resourceForks = new ArrayList<> ();
+  private final List<String> skipped = new ArrayList<> ();
+  private final VolumePlan plan = new VolumePlan ();
+
+  private int blocksNeeded;
+  private int totalBlocks;
+
+  // ---------------------------------------------------------------------------------//
+  public FolderPacker (Path folder) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    this.folder = folder;
+    Path folderName = folder.getFileName ();              // null for a root folder
+    volumeName = getProdosName (folderName == null ? "ROOT" : folderName.toString (),
+        new HashSet<> ());
+
+    addFolder (folder, "");
+    if (plan.getVolumeEntries () > VolumePlan.VOLUME_ENTRIES)
+      throw new IOException (String.format ("%,d entries in %s, the maximum is %d",
+          plan.getVolumeEntries (), folder, VolumePlan.VOLUME_ENTRIES));
+
+    blocksNeeded = plan.getBlocksNeeded ();
+    if (blocksNeeded > VolumePlan.MAX_BLOCKS)
+      throw new IOException (String.format ("%,d blocks needed, the maximum is %,d",
+          blocksNeeded, VolumePlan.MAX_BLOCKS));
+
+    totalBlocks = plan.getDiskSize ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addFolder (Path hostFolder, String prodosPath) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    List<Path> hostPaths = new ArrayList<> ();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream (hostFolder))
+    {
+      for (Path path : stream)
+        if (!path.getFileName ().toString ().startsWith ("."))    // includes AppleDouble
+          hostPaths.add (path);
+    }
+    hostPaths.sort (null);
+
+    Set<String> names = new HashSet<> ();
+
+    for (Path path : hostPaths)
+    {
+      if (Files.isDirectory (path))
+      {
+        String name = getProdosName (path.getFileName ().toString (), names);
+        String subdirectory = prodosPath + name;
+        directories.add (subdirectory);
+        plan.addDirectory (subdirectory);
+        addFolder (path, subdirectory + "/");
+      }
+      else if (Files.isRegularFile (path))
+        addFile (path, prodosPath, names);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addFile (Path path, String prodosPath, Set<String> names)
+      throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    long size = Files.size (path);
+    if (size > MAX_EOF)
+    {
+      skipped.add (path.toString ());
+      return;
+    }
+
+    String hostName = path.getFileName ().toString ();
+    byte fileType = 0x06;                     // BIN
+    int auxType = 0;
+
+    Matcher matcher = TYPE_SUFFIX.matcher (hostName);
+    boolean hasTypeSuffix = matcher.matches ();
+    if (hasTypeSuffix)
+    {
+      hostName = matcher.group (1);
+      fileType = (byte) Integer.parseInt (matcher.group (2), 16);
+      auxType = Integer.parseInt (matcher.group (3), 16);
+    }
+
+    String fileName = prodosPath + getProdosName (hostName, names);
+    LocalDateTime modified = LocalDateTime.ofInstant (
+        Files.getLastModifiedTime (path).toInstant (), ZoneId.systemDefault ());
+
+    Path appleDouble = path.resolveSibling ("._" + path.getFileName ());
+    if (!hasTypeSuffix && Files.isRegularFile (appleDouble))
+    {
+      AppleDouble header = new AppleDouble (appleDouble);
+      if (header.fileType >= 0)
+      {
+        fileType = (byte) header.fileType;
+        auxType = header.auxType;
+      }
+
+      if (header.resourceLength > 0)
+      {
+        resourceForks.add (new ResourceFork (files.size (), appleDouble,
+            header.resourceOffset, header.resourceLength));
+        plan.addResourceFork (header.resourceLength);
+      }
+    }
+
+    files.add (new NewFile (fileName, fileType, auxType, modified, modified, path,
+        (int) size));
+    plan.addFile (fileName, (int) size);
+  }
+
+  // Names start with a letter, and contain only letters, digits and full stops. Names
+  // that are the same once they have been converted have a number added.
+  // ---------------------------------------------------------------------------------//
+  private String getProdosName (String hostName, Set<String> names)
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder ();
+
+    for (char c : hostName.toUpperCase ().toCharArray ())
+      text.append ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ? c : '.');
+
+    if (text.length () == 0 || text.charAt (0) < 'A')
+      text.insert (0, 'A');
+    if (text.length () > 15)
+      text.setLength (15);
+
+    String name = text.toString ();
+    for (int i = 2; !names.add (name); i++)
+    {
+      String suffix = "." + i;
+      int length = Math.min (text.length (), 15 - suffix.length ());
+      name = text.substring (0, length) + suffix;
+    }
+
+    return name;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public String getVolumeName ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return volumeName;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getTotalFiles ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return files.size ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getTotalBlocks ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return totalBlocks;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getBlocksNeeded ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return blocksNeeded;
+  }
+
+  // files that are too large for ProDOS
+  // ---------------------------------------------------------------------------------//
+  public List<String> getSkippedFiles ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return skipped;
+  }
+
+  // The image type is taken from the suffix, a 2mg image gets a header, anything else
+  // is written in ProDOS block order. An existing file is replaced.
+  // ---------------------------------------------------------------------------------//
+  public void pack (Path image) throws IOException, DiskFullException,
+      VolumeCatalogFullException, FileAlreadyExistsException
+  // ---------------------------------------------------------------------------------//
+  {
+    ProdosDisk disk = new ProdosDisk (totalBlocks, volumeName);
+
+    for (String directory : directories)
+      disk.createDirectory (directory);
+
+    List<FileEntry> fileEntries = disk.addFiles (files);
+
+    for (ResourceFork resourceFork : resourceForks)
+      disk.addResourceFork (fileEntries.get (resourceFork.fileNo), resourceFork.read (),
+          resourceFork.length);
+
+    disk.close ();
+
+    try (FileChannel channel = FileChannel.open (image, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+    {
+      if (image.getFileName ().toString ().toLowerCase ().endsWith (".2mg"))
+        write (channel, get2mgHeader ());
+      write (channel, ByteBuffer.wrap (disk.getBuffer ()));
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void write (FileChannel channel, ByteBuffer buffer) throws IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    while (buffer.hasRemaining ())
+      channel.write (buffer);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private ByteBuffer get2mgHeader ()
+  // ---------------------------------------------------------------------------------//
+  {
+    ByteBuffer header = ByteBuffer.allocate (HEADER_2MG).order (ByteOrder.LITTLE_ENDIAN);
+
+    header.put ("2IMG".getBytes ());
+    header.put ("DSKB".getBytes ());                  // creator
+    header.putShort ((short) HEADER_2MG);
+    header.putShort ((short) 1);                      // version
+    header.putInt (1);                                // ProDOS order
+    header.putInt (0);                                // flags
+    header.putInt (totalBlocks);
+    header.putInt (HEADER_2MG);                       // offset to the data
+    header.putInt (totalBlocks * BLOCK_SIZE);
+    header.clear ();                                  // comments and creator data unused
+
+    return header;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    StringBuilder text = new StringBuilder ();
+
+    text.append (String.format ("Folder ........ %s%n", folder));
+    text.append (String.format ("Volume ........ %s%n", volumeName));
+    text.append (String.format ("Directories ... %,d%n", directories.size ()));
+    text.append (String.format ("Files ......... %,d%n", files.size ()));
+    text.append (String.format ("Resources ..... %,d%n", resourceForks.size ()));
+    text.append (String.format ("Skipped ....... %,d%n", skipped.size ()));
+    text.append (String.format ("Blocks used ... %,d%n", blocksNeeded));
+    text.append (String.format ("Disk size ..... %,d", totalBlocks));
+
+    if (skipped.size () > 0)
+    {
+      text.append ("\n\nSkipped, too large for ProDOS:");
+      for (int i = 0; i < skipped.size () && i < MAX_SKIPPED_LISTED; i++)
+        text.append ("\n  " + folder.relativize (Path.of (skipped.get (i))));
+      if (skipped.size () > MAX_SKIPPED_LISTED)
+        text.append (String.format ("%n  ... and %,d more",
+            skipped.size () - MAX_SKIPPED_LISTED));
+    }
+
+    return text.toString ();
+  }
+
+  // AppleDouble header (RFC 1740), only the entries that ProDOS can use are read
+  // ---------------------------------------------------------------------------------//
+  private static class AppleDouble
+  // ---------------------------------------------------------------------------------//
+  {
+    int fileType = -1;
+    int auxType;
+    int resourceOffset;
+    int resourceLength;
+
+    AppleDouble (Path path) throws IOException
+    {
+      byte[] buffer;
+      try (FileChannel channel = FileChannel.open (path))
+      {
+        ByteBuffer header = ByteBuffer.allocate ((int) Math.min (channel.size (), 1024));
+        channel.read (header);
+        buffer = header.array ();
+      }
+
+      ByteBuffer header = ByteBuffer.wrap (buffer);         // big-endian
+      if (buffer.length < 26 || header.getInt (0) != APPLE_DOUBLE)
+        return;
+
+      int entries = header.getShort (24) & 0xFFFF;
+      for (int i = 0, ptr = 26; i < entries && ptr + 12 <= buffer.length; i++, ptr += 12)
+      {
+        int id = header.getInt (ptr);
+        int offset = header.getInt (ptr + 4);
+        int length = header.getInt (ptr + 8);
+
+        if (id == 2)                                        // resource fork
+        {
+          resourceOffset = offset;
+          resourceLength = Math.min (length, MAX_EOF);
+        }
+        else if (id == 11 && offset + 8 <= buffer.length)   // ProDOS file info
+        {
+          fileType = header.getShort (offset + 2) & 0xFF;
+          auxType = header.getInt (offset + 4) & 0xFFFF;
+        }
+        else if (id == 9 && offset + 8 <= buffer.length && fileType < 0)   // Finder info
+        {
+          // ProDOS types are stored as type 'pTAA', creator 'pdos'
+          String creator = new String (buffer, offset + 4, 4);
+          if ("pdos".equals (creator) && buffer[offset] == 'p')
+          {
+            fileType = buffer[offset + 1] & 0xFF;
+            auxType = header.getShort (offset + 2) & 0xFFFF;
+          }
+          else if ("TEXT".equals (new String (buffer, offset, 4)))
+            fileType = 0x04;
+        }
+      }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static class ResourceFork
+  // ---------------------------------------------------------------------------------//
+  {
+    final int fileNo;
+    final Path path;
+    final int offset;
+    final int length;
+
+    ResourceFork (int fileNo, Path path, int offset, int length)
+    {
+      this.fileNo = fileNo;
+      this.path = path;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    byte[] read () throws IOException
+    {
+      ByteBuffer buffer = ByteBuffer.allocate (length);
+      try (FileChannel channel = FileChannel.open (path))
+      {
+        while (buffer.hasRemaining ())
+          if (channel.read (buffer, offset + buffer.position ()) < 0)
+            break;
+      }
+      return buffer.array ();
+    }
+  }
+}
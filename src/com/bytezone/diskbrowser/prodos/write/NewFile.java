@@ -0,0 +1,62 @@
+package com.bytezone.diskbrowser.prodos.write;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+// A file waiting to be added by ProdosDisk.addFiles (). The contents are either in a
+// buffer, starting at offset, or in a host file that is only read when the file is
+// written to the disk.
+// -----------------------------------------------------------------------------------//
+public class NewFile
+// -----------------------------------------------------------------------------------//
+{
+  final String path;
+  final byte type;
+  final int auxType;
+  final LocalDateTime created;
+  final LocalDateTime modified;
+  final byte[] buffer;
+  final int offset;
+  final Path source;
+  final int eof;
+
+  // ---------------------------------------------------------------------------------//
+  public NewFile (String path, byte type, int auxType, LocalDateTime created,
+      LocalDateTime modified, byte[] buffer, int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    this (path, type, auxType, created, modified, buffer, 0, eof);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public NewFile (String path, byte type, int auxType, LocalDateTime created,
+      LocalDateTime modified, byte[] buffer, int offset, int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.path = path;
+    this.type = type;
+    this.auxType = auxType;
+    this.created = created;
+    this.modified = modified;
+    this.buffer = buffer;
+    this.offset = offset;
+    this.source = null;
+    this.eof = eof;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public NewFile (String path, byte type, int auxType, LocalDateTime created,
+      LocalDateTime modified, Path source, int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.path = path;
+    this.type = type;
+    this.auxType = auxType;
+    this.created = created;
+    this.modified = modified;
+    this.buffer = null;
+    this.offset = 0;
+    this.source = source;
+    this.eof = eof;
+  }
+}
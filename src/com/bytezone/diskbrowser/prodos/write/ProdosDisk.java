@@ -1,22 +1,24 @@
 package com.bytezone.diskbrowser.prodos.write;
 
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.BLOCK_SIZE;
-import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRIES_PER_BLOCK;
-import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRY_SIZE;
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.FILE_TYPE_DIRECTORY;
 import static com.bytezone.diskbrowser.prodos.ProdosConstants.SUBDIRECTORY;
-import static com.bytezone.diskbrowser.prodos.ProdosConstants.SUBDIRECTORY_HEADER;
 import static com.bytezone.diskbrowser.utilities.Utility.getShort;
 import static com.bytezone.diskbrowser.utilities.Utility.writeShort;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 
 import com.bytezone.diskbrowser.prodos.write.ExtendedKeyBlock.ForkType;
@@ -36,6 +38,7 @@ public class ProdosDisk
         "Subdirectory", "Subdirectory Header", "Volume Directory Header" };
 
   private BitSet volumeBitMap;
+  private int nextBlock;                  // blocks are never freed, so search from here
   private final int maxBlocks;
   private final byte[] buffer;
   private final byte[] bootSector = new byte[BLOCK_SIZE];
@@ -43,6 +46,7 @@ public class ProdosDisk
   private VolumeDirectoryHeader volumeDirectoryHeader;
   private Map<Integer, SubdirectoryHeader> subdirectoryHeaders = new TreeMap<> ();
   private List<String> paths = new ArrayList<> ();
+  private Map<Integer, DirectoryIndex> directories = new HashMap<> ();   // by key block
 
   // ---------------------------------------------------------------------------------//
   public ProdosDisk (int blocks, String volumeName) throws IOException, DiskFullException
@@ -109,6 +113,8 @@ public class ProdosDisk
       }
     }
 
+    directories.put (2, new DirectoryIndex (buffer, 2));
+
     // reserve the bitmap blocks
     int indexBlocks = (maxBlocks - 1) / BITS_PER_BLOCK + 1;
     for (int i = 0; i < indexBlocks; i++)
@@ -136,21 +142,8 @@ public class ProdosDisk
     // save path for verification
     paths.add (path);
 
-    // split the full path into an array of subdirectories and a file name
-    String[] subdirectories;
-    String fileName;
-
-    int pos = path.lastIndexOf ('/');
-    if (pos > 0)
-    {
-      subdirectories = path.substring (0, pos).split ("/");
-      fileName = path.substring (pos + 1);
-    }
-    else
-    {
-      subdirectories = new String[0];
-      fileName = path;
-    }
+    String[] subdirectories = getSubdirectories (path);
+    String fileName = getFileName (path);
 
     // search for each subdirectory, create any that don't exist
     int catalogBlockNo = createPath (subdirectories);
@@ -164,6 +157,102 @@ public class ProdosDisk
       throw new FileAlreadyExistsException (fileName);
     }
 
+    try
+    {
+      return writeFileEntry (catalogBlockNo, fileName,
+          new NewFile (path, type, auxType, created, modified, fileBuffer, eof), false);
+    }
+    catch (IOException e)                 // only possible when reading a host file
+    {
+      throw new UncheckedIOException (e);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void createDirectory (String path)
+      throws DiskFullException, VolumeCatalogFullException, FileAlreadyExistsException
+  // ---------------------------------------------------------------------------------//
+  {
+    createPath (path.split ("/"));
+  }
+
+  // Adds a list of files in one go. All the subdirectories are created, and every
+  // directory is extended to its final size before any file is written, so each
+  // directory's blocks are together. Each file's index blocks are followed by its data
+  // blocks. Nothing is written if any of the files already exists.
+  // ---------------------------------------------------------------------------------//
+  public List<FileEntry> addFiles (List<NewFile> files) throws DiskFullException,
+      VolumeCatalogFullException, FileAlreadyExistsException, IOException
+  // ---------------------------------------------------------------------------------//
+  {
+    // check every path before any subdirectory is created
+    Set<String> newPaths = new HashSet<> (files.size () * 2);
+    Set<String> newDirectories = new HashSet<> ();
+
+    for (NewFile file : files)
+    {
+      if (file.path.isBlank ())
+        throw new IllegalArgumentException ("Path is empty");
+
+      String[] subdirectories = getSubdirectories (file.path);
+      if (pathExists (subdirectories, getFileName (file.path))
+          || !newPaths.add (file.path))
+      {
+        System.out.println ("File already exists: " + file.path);
+        throw new FileAlreadyExistsException (file.path);
+      }
+
+      String directory = "";
+      for (String subdirectory : subdirectories)
+      {
+        directory = directory.isEmpty () ? subdirectory : directory + "/" + subdirectory;
+        newDirectories.add (directory);
+      }
+    }
+
+    for (String path : newPaths)
+      if (newDirectories.contains (path))         // a file and a directory
+      {
+        System.out.println ("File already exists: " + path);
+        throw new FileAlreadyExistsException (path);
+      }
+
+    int[] catalogBlocks = new int[files.size ()];
+    String[] fileNames = new String[files.size ()];
+    Map<Integer, Integer> newEntries = new LinkedHashMap<> ();
+
+    for (int i = 0; i < files.size (); i++)
+    {
+      NewFile file = files.get (i);
+      catalogBlocks[i] = createPath (getSubdirectories (file.path));
+      fileNames[i] = getFileName (file.path);
+      newEntries.merge (catalogBlocks[i], 1, Integer::sum);
+    }
+
+    for (Map.Entry<Integer, Integer> entry : newEntries.entrySet ())
+    {
+      DirectoryIndex directory = directories.get (entry.getKey ());
+      while (directory.freeSlots < entry.getValue ())
+        extendDirectory (entry.getKey ());
+    }
+
+    List<FileEntry> fileEntries = new ArrayList<> (files.size ());
+    for (int i = 0; i < files.size (); i++)
+    {
+      NewFile file = files.get (i);
+      paths.add (file.path);
+      fileEntries.add (writeFileEntry (catalogBlocks[i], fileNames[i], file, true));
+    }
+
+    return fileEntries;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private FileEntry writeFileEntry (int catalogBlockNo, String fileName, NewFile file,
+      boolean contiguous)
+      throws DiskFullException, VolumeCatalogFullException, IOException
+  // ---------------------------------------------------------------------------------//
+  {
     // create a file entry in the current catalog block
     FileEntry fileEntry = findFreeSlot (catalogBlockNo);
 
@@ -173,13 +262,18 @@ public class ProdosDisk
       fileEntry.version = 0x00;
       fileEntry.minVersion = 0x00;
       fileEntry.headerPointer = catalogBlockNo;     // block containing catalog header
-      fileEntry.fileType = type;
-      fileEntry.auxType = auxType;
-      fileEntry.creationDate = created;
-      fileEntry.modifiedDate = modified;
+      fileEntry.fileType = file.type;
+      fileEntry.auxType = file.auxType;
+      fileEntry.creationDate = file.created;
+      fileEntry.modifiedDate = file.modified;
 
       FileWriter fileWriter = new FileWriter (this);
-      fileWriter.writeFile (fileBuffer, eof);
+      if (file.source != null)
+        fileWriter.writeContiguousFile (file.source, file.eof);
+      else if (contiguous)
+        fileWriter.writeContiguousFile (file.buffer, file.offset, file.eof);
+      else
+        fileWriter.writeFile (file.buffer, file.offset, file.eof);
 
       fileEntry.storageType = fileWriter.storageType;
       fileEntry.keyPointer = fileWriter.keyPointer;
@@ -187,31 +281,68 @@ public class ProdosDisk
       fileEntry.eof = fileWriter.eof;
 
       fileEntry.write ();
+      directories.get (catalogBlockNo).add (fileEntry.ptr);
       updateFileCount (fileEntry.headerPointer);
     }
 
     return fileEntry;
   }
 
+  // ---------------------------------------------------------------------------------//
+  private String[] getSubdirectories (String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = path.lastIndexOf ('/');
+    return pos > 0 ? path.substring (0, pos).split ("/") : new String[0];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private String getFileName (String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = path.lastIndexOf ('/');
+    return pos > 0 ? path.substring (pos + 1) : path;
+  }
+
+  // true if the file is already there, or if one of its subdirectories is a file
+  // ---------------------------------------------------------------------------------//
+  private boolean pathExists (String[] subdirectories, String fileName)
+  // ---------------------------------------------------------------------------------//
+  {
+    int catalogBlockNo = 2;
+
+    for (String subdirectory : subdirectories)
+    {
+      Integer ptr = directories.get (catalogBlockNo).get (subdirectory);
+      if (ptr == null)
+        return false;                                         // it will be created
+
+      catalogBlockNo = getShort (buffer, ptr + 0x11);         // key pointer
+      if (!directories.containsKey (catalogBlockNo))          // it's a file
+        return true;
+    }
+
+    return directories.get (catalogBlockNo).get (fileName) != null;
+  }
+
   // ---------------------------------------------------------------------------------//
   private int createPath (String[] subdirectories)
-      throws DiskFullException, VolumeCatalogFullException
+      throws DiskFullException, VolumeCatalogFullException, FileAlreadyExistsException
   // ---------------------------------------------------------------------------------//
   {
     // search for each subdirectory, create any that don't exist
     int catalogBlockNo = 2;
 
-    FileEntry fileEntry = null;
     for (int i = 0; i < subdirectories.length; i++)
     {
-      Optional<FileEntry> fileEntryOpt =
-          searchDirectory (catalogBlockNo, subdirectories[i]);
-      if (fileEntryOpt.isEmpty ())
-        fileEntry = createSubdirectory (catalogBlockNo, subdirectories[i]);
+      Integer ptr = directories.get (catalogBlockNo).get (subdirectories[i]);
+      if (ptr == null)
+        catalogBlockNo = createSubdirectory (catalogBlockNo, subdirectories[i]).keyPointer;
       else
-        fileEntry = fileEntryOpt.get ();
+        catalogBlockNo = getShort (buffer, ptr + 0x11);       // key pointer
 
-      catalogBlockNo = fileEntry.keyPointer;
+      if (!directories.containsKey (catalogBlockNo))          // it's a file
+        throw new FileAlreadyExistsException (subdirectories[i]);
     }
 
     return catalogBlockNo;
@@ -245,21 +376,8 @@ public class ProdosDisk
   private boolean verify (String path)
   // ---------------------------------------------------------------------------------//
   {
-    // split the full path into an array of subdirectories and a file name
-    String[] subdirectories;
-    String fileName;
-
-    int pos = path.lastIndexOf ('/');
-    if (pos > 0)
-    {
-      subdirectories = path.substring (0, pos).split ("/");
-      fileName = path.substring (pos + 1);
-    }
-    else
-    {
-      subdirectories = new String[0];
-      fileName = path;
-    }
+    String[] subdirectories = getSubdirectories (path);
+    String fileName = getFileName (path);
 
     // search for each subdirectory, fail any that don't exist
     int catalogBlockNo = 2;
@@ -340,40 +458,13 @@ public class ProdosDisk
   private Optional<FileEntry> searchDirectory (int blockNo, String fileName)
   // ---------------------------------------------------------------------------------//
   {
-    int emptySlotPtr = 0;
-
-    do
-    {
-      int offset = blockNo * BLOCK_SIZE;
-      int ptr = offset + 4;
-      for (int i = 0; i < ENTRIES_PER_BLOCK; i++)
-      {
-        int storageTypeNameLength = buffer[ptr] & 0xFF;
-        if (storageTypeNameLength == 0)
-        {
-          if (emptySlotPtr == 0)
-            emptySlotPtr = ptr;
-        }
-        else
-        {
-          int nameLength = buffer[ptr] & 0x0F;
-          int storageType = (buffer[ptr] & 0xF0) >>> 4;
-
-          if (storageType < SUBDIRECTORY_HEADER
-              && fileName.equals (new String (buffer, ptr + 1, nameLength)))
-          {
-            FileEntry fileEntry = new FileEntry (this, ptr);
-            fileEntry.read ();
-            return Optional.of (fileEntry);
-          }
-        }
-
-        ptr += ENTRY_SIZE;
-      }
-      blockNo = getShort (buffer, offset + 2);
-    } while (blockNo > 0);
+    Integer ptr = directories.get (blockNo).get (fileName);
+    if (ptr == null)
+      return Optional.empty ();
 
-    return Optional.empty ();
+    FileEntry fileEntry = new FileEntry (this, ptr);
+    fileEntry.read ();
+    return Optional.of (fileEntry);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -401,6 +492,7 @@ public class ProdosDisk
     fileEntry.modifiedDate = LocalDateTime.now ();
 
     fileEntry.write ();
+    directories.get (blockNo).add (fileEntry.ptr);
 
     updateFileCount (fileEntry.headerPointer);
 
@@ -415,6 +507,8 @@ public class ProdosDisk
     subdirectoryHeader.write ();
 
     subdirectoryHeaders.put (fileEntry.keyPointer, subdirectoryHeader);
+    directories.put (fileEntry.keyPointer,
+        new DirectoryIndex (buffer, fileEntry.keyPointer));
 
     return fileEntry;
   }
@@ -440,13 +534,14 @@ public class ProdosDisk
   int allocateNextBlock () throws DiskFullException
   // ---------------------------------------------------------------------------------//
   {
-    int nextBlock = volumeBitMap.nextSetBit (0);
-    if (nextBlock < 0)
+    int blockNo = volumeBitMap.nextSetBit (nextBlock);
+    if (blockNo < 0)
       throw new DiskFullException ("Disk Full");
 
-    volumeBitMap.set (nextBlock, false);      // mark as unavailable
+    volumeBitMap.set (blockNo, false);        // mark as unavailable
+    nextBlock = blockNo + 1;
 
-    return nextBlock;
+    return blockNo;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -458,33 +553,27 @@ public class ProdosDisk
     if (blockNo == 2 && volumeDirectoryHeader.fileCount == 51)
       throw new VolumeCatalogFullException ("Volume Directory is full");   // stupid
 
-    // get the subdirectory header before the blockNo can change
-    SubdirectoryHeader subdirectoryHeader = subdirectoryHeaders.get (blockNo);
+    DirectoryIndex directory = directories.get (blockNo);
+    if (directory.freePtr == 0)                 // no free slots
+      extendDirectory (blockNo);
 
-    int lastBlockNo = 0;      // used for linking directory blocks
-
-    do
-    {
-      int offset = blockNo * BLOCK_SIZE;
-      int ptr = offset + 4;
-
-      for (int i = 0; i < ENTRIES_PER_BLOCK; i++)
-      {
-        if (buffer[ptr] == 0)         // free slot
-          return new FileEntry (this, ptr);
-
-        ptr += ENTRY_SIZE;
-      }
-
-      lastBlockNo = blockNo;
-      blockNo = getShort (buffer, offset + 2);      // next block
-    } while (blockNo > 0);
+    return new FileEntry (this, directory.freePtr);
+  }
 
-    if (subdirectoryHeader == null)         // this should be impossible
+  // ---------------------------------------------------------------------------------//
+  private void extendDirectory (int keyBlockNo)
+      throws DiskFullException, VolumeCatalogFullException
+  // ---------------------------------------------------------------------------------//
+  {
+    SubdirectoryHeader subdirectoryHeader = subdirectoryHeaders.get (keyBlockNo);
+    if (subdirectoryHeader == null)
       throw new VolumeCatalogFullException ("Volume Directory is full");
 
-    // no free slots, so add a new catalog block
-    blockNo = allocateNextBlock ();
+    DirectoryIndex directory = directories.get (keyBlockNo);
+    int lastBlockNo = directory.lastBlockNo;
+
+    // add a new catalog block
+    int blockNo = allocateNextBlock ();
 
     // update links
     int ptr = blockNo * BLOCK_SIZE;
@@ -494,7 +583,7 @@ public class ProdosDisk
     // update parent's file entry size (this is the subdirectory file entry
     subdirectoryHeader.updateParentFileEntry ();
 
-    return new FileEntry (this, ptr + 4);      // first slot in new block
+    directory.addBlock (blockNo);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -0,0 +1,121 @@
+package com.bytezone.diskbrowser.prodos.write;
+
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.BLOCK_SIZE;
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.ENTRIES_PER_BLOCK;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Counts the blocks that ProdosDisk will use for a set of files, so that the disk can
+// be created at its final size before any file is read or unpacked. Paths must be the
+// same as the ones that will be passed to ProdosDisk.
+// -----------------------------------------------------------------------------------//
+public class VolumePlan
+// -----------------------------------------------------------------------------------//
+{
+  public static final int MAX_BLOCKS = 65535;
+  public static final int VOLUME_ENTRIES = 51;
+
+  private final Map<String, Integer> directories = new HashMap<> ();   // -> entries
+  private int fileBlocks;
+
+  // ---------------------------------------------------------------------------------//
+  public VolumePlan ()
+  // ---------------------------------------------------------------------------------//
+  {
+    directories.put ("", 0);                          // volume directory
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void addDirectory (String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (directories.containsKey (path))
+      return;
+
+    directories.put (path, 0);
+    addEntry (path);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public void addFile (String path, int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    addEntry (path);
+    fileBlocks += FileWriter.getTotalBlocks (eof);
+  }
+
+  // a resource fork also needs an extended key block
+  // ---------------------------------------------------------------------------------//
+  public void addResourceFork (int eof)
+  // ---------------------------------------------------------------------------------//
+  {
+    fileBlocks += FileWriter.getTotalBlocks (eof) + 1;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addEntry (String path)
+  // ---------------------------------------------------------------------------------//
+  {
+    int pos = path.lastIndexOf ('/');
+    String parent = pos > 0 ? path.substring (0, pos) : "";
+
+    addDirectory (parent);
+    directories.merge (parent, 1, Integer::sum);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getVolumeEntries ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return directories.get ("");
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getTotalDirectories ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return directories.size () - 1;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public int getBlocksNeeded ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int blocks = fileBlocks + 2 + 4;                  // boot blocks and volume directory
+
+    for (Map.Entry<String, Integer> entry : directories.entrySet ())
+      if (!entry.getKey ().isEmpty ())
+      {
+        // the key block has room for the header and 12 entries
+        int extraEntries = Math.max (0, entry.getValue () - (ENTRIES_PER_BLOCK - 1));
+        blocks += 1 + (extraEntries + ENTRIES_PER_BLOCK - 1) / ENTRIES_PER_BLOCK;
+      }
+
+    int bitmapBlocks = 0;
+    while (true)                              // the bitmap size depends on the total
+    {
+      int needed = (blocks + bitmapBlocks - 1) / (8 * BLOCK_SIZE) + 1;
+      if (needed == bitmapBlocks)
+        break;
+      bitmapBlocks = needed;
+    }
+
+    return blocks + bitmapBlocks;
+  }
+
+  // floppy sizes if the files fit, otherwise whole tracks
+  // ---------------------------------------------------------------------------------//
+  public int getDiskSize ()
+  // ---------------------------------------------------------------------------------//
+  {
+    int blocksNeeded = getBlocksNeeded ();
+
+    if (blocksNeeded <= 280)
+      return 280;
+    if (blocksNeeded <= 1600)
+      return 1600;
+
+    return Math.min (MAX_BLOCKS, (blocksNeeded + 7) / 8 * 8);
+  }
+}
@@ -1,5 +1,7 @@
 package com.bytezone.diskbrowser.utilities;
 
+import static com.bytezone.diskbrowser.prodos.ProdosConstants.SUBDIRECTORY;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -8,8 +10,10 @@ import java.util.List;
 
 import com.bytezone.diskbrowser.prodos.write.DiskFullException;
 import com.bytezone.diskbrowser.prodos.write.FileAlreadyExistsException;
+import com.bytezone.diskbrowser.prodos.write.NewFile;
 import com.bytezone.diskbrowser.prodos.write.ProdosDisk;
 import com.bytezone.diskbrowser.prodos.write.VolumeCatalogFullException;
+import com.bytezone.diskbrowser.prodos.write.VolumePlan;
 
 // -----------------------------------------------------------------------------------//
 public class Binary2
@@ -50,17 +54,30 @@ public class Binary2
       FileAlreadyExistsException, IOException
   // ---------------------------------------------------------------------------------//
   {
-    ProdosDisk disk = new ProdosDisk (800, "DiskBrowser");
-
+    VolumePlan plan = new VolumePlan ();
     for (Binary2Header header : headers)
-    {
-      byte[] dataBuffer = new byte[header.eof];       // this sux
-      System.arraycopy (buffer, header.ptr + 128, dataBuffer, 0, dataBuffer.length);
+      if (header.storageType == SUBDIRECTORY)
+        plan.addDirectory (header.fileName);
+      else
+        plan.addFile (header.fileName, header.eof);
 
-      disk.addFile (header.fileName, header.fileType, header.auxType, header.created,
-          header.modified, dataBuffer, header.eof);
+    ProdosDisk disk = new ProdosDisk (plan.getDiskSize (), "DiskBrowser");
+    List<NewFile> files = new ArrayList<> (headers.size ());
 
+    for (Binary2Header header : headers)
+    {
+      if (header.storageType == SUBDIRECTORY)
+      {
+        disk.createDirectory (header.fileName);
+        continue;
+      }
+
+      // the data follows the header, so it is copied straight from the archive
+      files.add (new NewFile (header.fileName, header.fileType, header.auxType,
+          header.created, header.modified, buffer, header.ptr + 128, header.eof));
     }
+
+    disk.addFiles (files);
     disk.close ();
 
     return disk.getBuffer ();
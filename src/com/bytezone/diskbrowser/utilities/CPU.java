@@ -1,402 +1,861 @@
 package com.bytezone.diskbrowser.utilities;
 
+// A 65c02 interpreter. Memory is a flat 64K array, the status register is kept in an
+// int, and each instruction is decoded from the Opcode table. Nothing is formatted
+// unless debug is on. Subclasses load a routine and its data, call it, and copy the
+// results back out of memory.
 // -----------------------------------------------------------------------------------//
-public abstract class CPU
+public class CPU
 // -----------------------------------------------------------------------------------//
 {
+  // status register
+  public static final int CARRY = 0x01;
+  public static final int ZERO = 0x02;
+  public static final int INTERRUPT = 0x04;
+  public static final int DECIMAL = 0x08;
+  public static final int BREAK = 0x10;
+  public static final int UNUSED = 0x20;
+  public static final int OVERFLOW = 0x40;
+  public static final int NEGATIVE = 0x80;
+
+  private static final int[] modes = new int[256];
+  private static final int[] sizes = new int[256];
+  private static final int[] cycleCounts = new int[256];
+  private static final boolean[] pagePenalty = new boolean[256];
+
+  static
+  {
+    for (int i = 0; i < 256; i++)
+    {
+      Opcode opcode = Opcode.get (i);
+      modes[i] = opcode.mode;
+      sizes[i] = opcode.size;
+      cycleCounts[i] = opcode.cycles;
+
+      // indexed reads take an extra cycle when they cross a page, and so do the
+      // 65c02 shifts and rotates. Stores, INC and DEC always take it.
+      String mnemonic = opcode.mnemonic;
+      pagePenalty[i] = (opcode.mode == Opcode.ABSOLUTE_X
+          || opcode.mode == Opcode.ABSOLUTE_Y || opcode.mode == Opcode.INDIRECT_Y)
+          && !mnemonic.startsWith ("ST") && !mnemonic.equals ("INC")
+          && !mnemonic.equals ("DEC");
+    }
+  }
+
+  protected final byte[] memory = new byte[0x10000];
+
   // registers
-  private byte xReg;
-  private byte yReg;
-  private byte aReg;
+  protected int aReg;
+  protected int xReg;
+  protected int yReg;
+  protected int sp = 0xFF;
+  protected int pc;
+  protected int status = UNUSED;
 
-  // status register
-  protected boolean carry;
-  protected boolean zero;
-  protected boolean interrupt;
-  protected boolean decimal;
-  protected boolean breakFlag;
-  protected boolean overflow;       // Clancy
-  protected boolean negative;
-
-  // stack
-  private final byte[] stack = new byte[0x100];
-  private int sp = stack.length;
+  private long cycles;
+  private long instructions;
+
+  private Hook[] hooks;               // indexed by address
+  private int stackBase;              // where call() returns to
+  private boolean running;
+  private boolean halted;
 
   private boolean debug = false;
 
+  // Runs before the instruction at the hook's address. It can change the registers,
+  // memory or pc, or call rts() to replace a subroutine.
   // ---------------------------------------------------------------------------------//
-  protected void setDebug (boolean value)
+  public interface Hook
   // ---------------------------------------------------------------------------------//
   {
-    debug = value;
+    void execute (CPU cpu);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void and (byte mask)              // AND
+  protected void setDebug (boolean value)
   // ---------------------------------------------------------------------------------//
   {
-    aReg &= mask;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("AND");
+    debug = value;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void asl ()                       // ASL
+  public void setHook (int address, Hook hook)
   // ---------------------------------------------------------------------------------//
   {
-    carry = (aReg & 0x80) != 0;       // move bit 7 into the carry flag
-    aReg = (byte) (aReg << 1);        // shift left
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("ASL");
-  }
+    if (hooks == null)
+      hooks = new Hook[0x10000];
 
-  // unfinished
-  // ---------------------------------------------------------------------------------//
-  protected void bit (byte value)             // BIT
-  // ---------------------------------------------------------------------------------//
-  {
-    byte b = (byte) (aReg & value);
-    zero = b == 0;
-    overflow = (value & 0x40) != 0;
-    negative = (value & 0x80) != 0;
-    debug ("BIT");
+    hooks[address & 0xFFFF] = hook;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void clc ()                       // CLC
+  public void load (byte[] buffer, int address)
   // ---------------------------------------------------------------------------------//
   {
-    carry = false;
-    debug ("CLC");
+    System.arraycopy (buffer, 0, memory, address, buffer.length);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void cli ()                       // CLI
+  public byte[] getMemory (int address, int length)
   // ---------------------------------------------------------------------------------//
   {
-    interrupt = false;
-    debug ("CLI");
+    byte[] buffer = new byte[length];
+    System.arraycopy (memory, address, buffer, 0, length);
+    return buffer;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void clv ()                       // CLV
+  public long getCycles ()
   // ---------------------------------------------------------------------------------//
   {
-    overflow = false;
-    debug ("CLV");
+    return cycles;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void cmp (byte value)             // CMP
+  public long getInstructions ()
   // ---------------------------------------------------------------------------------//
   {
-    int tmp = (aReg & 0xFF) - (value & 0xFF);
-    zero = tmp == 0;
-    negative = (tmp & 0x80) != 0;
-    carry = (aReg & 0xFF) >= (value & 0xFF);
-    debug ("CMP");
+    return instructions;
   }
 
+  // Runs the subroutine at address until it returns. Returns false if it hits a BRK
+  // or an invalid opcode, or if it is still running after maxCycles.
   // ---------------------------------------------------------------------------------//
-  protected void cpx (byte value)             // CPX
+  public boolean call (int address, long maxCycles)
   // ---------------------------------------------------------------------------------//
   {
-    int tmp = (xReg & 0xFF) - (value & 0xFF);
-    zero = tmp == 0;
-    negative = (tmp & 0x80) != 0;
-    carry = (xReg & 0xFF) >= (value & 0xFF);
-    debug ("CPX");
-  }
+    stackBase = sp;
+    push ((address - 1) >>> 8);         // any return address, it is never used
+    push (address - 1);
+    pc = address & 0xFFFF;
 
-  // ---------------------------------------------------------------------------------//
-  protected void cpy (byte value)             // CPY
-  // ---------------------------------------------------------------------------------//
-  {
-    int tmp = (yReg & 0xFF) - (value & 0xFF);
-    zero = tmp == 0;
-    negative = (tmp & 0x80) != 0;
-    carry = (yReg & 0xFF) >= (value & 0xFF);
-    debug ("CPY");
-  }
+    running = true;
+    halted = false;
+    long limit = cycles + maxCycles;
 
-  // ---------------------------------------------------------------------------------//
-  protected byte dec (byte value)             // DEC
-  // ---------------------------------------------------------------------------------//
-  {
-    value = (byte) ((value & 0xFF) - 1);
-    zero = value == 0;
-    negative = (value & 0x80) != 0;
-    debug ("DEC");
-    return value;
-  }
+    while (running && cycles < limit)
+    {
+      if (hooks != null && hooks[pc] != null)
+      {
+        hooks[pc].execute (this);
+        if (!running)
+          break;
+      }
 
-  // ---------------------------------------------------------------------------------//
-  protected byte inc (byte value)             // INC
-  // ---------------------------------------------------------------------------------//
-  {
-    value = (byte) ((value & 0xFF) + 1);
-    zero = value == 0;
-    negative = (value & 0x80) != 0;
-    debug ("INC");
-    return value;
-  }
+      if (debug)
+        debug ();
 
-  // ---------------------------------------------------------------------------------//
-  protected void inx ()                       // INX
-  // ---------------------------------------------------------------------------------//
-  {
-    xReg = (byte) ((xReg & 0xFF) + 1);
-    xReg &= 0xFF;
-    zero = xReg == 0;
-    negative = (xReg & 0x80) != 0;
-    debug ("INX");
-  }
+      step ();
+    }
 
-  // ---------------------------------------------------------------------------------//
-  protected void lda (byte value)             // LDA
-  // ---------------------------------------------------------------------------------//
-  {
-    aReg = value;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("LDA");
+    boolean finished = !running && !halted;
+    running = false;
+
+    return finished;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void lda (byte[] buffer, int offset)        // LDA
+  private void step ()
   // ---------------------------------------------------------------------------------//
   {
-    aReg = buffer[offset];
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("LDA");
+    int opcode = memory[pc] & 0xFF;
+    int operand = (pc + 1) & 0xFFFF;
+    int address = 0;                      // effective address
+    int value;
+
+    switch (modes[opcode])
+    {
+      case Opcode.IMPLIED:
+      case Opcode.ACCUMULATOR:
+        break;
+
+      case Opcode.IMMEDIATE:
+        address = operand;
+        break;
+
+      case Opcode.ABSOLUTE:
+        address = readWord (operand);
+        break;
+
+      case Opcode.ABSOLUTE_X:
+        address = indexed (readWord (operand), xReg, opcode);
+        break;
+
+      case Opcode.ABSOLUTE_Y:
+        address = indexed (readWord (operand), yReg, opcode);
+        break;
+
+      case Opcode.INDIRECT_ABSOLUTE_X:
+        address = readWord ((readWord (operand) + xReg) & 0xFFFF);
+        break;
+
+      case Opcode.INDIRECT_ABSOLUTE:
+        address = readWord (readWord (operand));
+        break;
+
+      case Opcode.ZERO_PAGE:
+        address = memory[operand] & 0xFF;
+        break;
+
+      case Opcode.ZERO_PAGE_X:
+        address = (memory[operand] + xReg) & 0xFF;
+        break;
+
+      case Opcode.ZERO_PAGE_Y:
+        address = (memory[operand] + yReg) & 0xFF;
+        break;
+
+      case Opcode.INDIRECT_X:
+        address = readZeroPageWord (memory[operand] + xReg);
+        break;
+
+      case Opcode.INDIRECT_Y:
+        address = indexed (readZeroPageWord (memory[operand]), yReg, opcode);
+        break;
+
+      case Opcode.INDIRECT_ZERO_PAGE:
+        address = readZeroPageWord (memory[operand]);
+        break;
+
+      case Opcode.RELATIVE:
+        address = (pc + 2 + memory[operand]) & 0xFFFF;
+        break;
+
+      default:                            // not an instruction
+        System.out.printf ("Invalid opcode %02X at %04X%n", opcode, pc);
+        halt ();
+        return;
+    }
+
+    pc = (pc + sizes[opcode]) & 0xFFFF;
+    cycles += cycleCounts[opcode];
+    instructions++;
+
+    switch (opcode)
+    {
+      // loads and stores
+
+      case 0xA1:                                                      // LDA
+      case 0xA5:
+      case 0xA9:
+      case 0xAD:
+      case 0xB1:
+      case 0xB2:
+      case 0xB5:
+      case 0xB9:
+      case 0xBD:
+        aReg = setNZ (read (address));
+        break;
+
+      case 0xA2:                                                      // LDX
+      case 0xA6:
+      case 0xAE:
+      case 0xB6:
+      case 0xBE:
+        xReg = setNZ (read (address));
+        break;
+
+      case 0xA0:                                                      // LDY
+      case 0xA4:
+      case 0xAC:
+      case 0xB4:
+      case 0xBC:
+        yReg = setNZ (read (address));
+        break;
+
+      case 0x81:                                                      // STA
+      case 0x85:
+      case 0x8D:
+      case 0x91:
+      case 0x92:
+      case 0x95:
+      case 0x99:
+      case 0x9D:
+        write (address, aReg);
+        break;
+
+      case 0x86:                                                      // STX
+      case 0x8E:
+      case 0x96:
+        write (address, xReg);
+        break;
+
+      case 0x84:                                                      // STY
+      case 0x8C:
+      case 0x94:
+        write (address, yReg);
+        break;
+
+      case 0x64:                                                      // STZ
+      case 0x74:
+      case 0x9C:
+      case 0x9E:
+        write (address, 0);
+        break;
+
+      // arithmetic and logic
+
+      case 0x01:                                                      // ORA
+      case 0x05:
+      case 0x09:
+      case 0x0D:
+      case 0x11:
+      case 0x12:
+      case 0x15:
+      case 0x19:
+      case 0x1D:
+        aReg = setNZ (aReg | read (address));
+        break;
+
+      case 0x21:                                                      // AND
+      case 0x25:
+      case 0x29:
+      case 0x2D:
+      case 0x31:
+      case 0x32:
+      case 0x35:
+      case 0x39:
+      case 0x3D:
+        aReg = setNZ (aReg & read (address));
+        break;
+
+      case 0x41:                                                      // EOR
+      case 0x45:
+      case 0x49:
+      case 0x4D:
+      case 0x51:
+      case 0x52:
+      case 0x55:
+      case 0x59:
+      case 0x5D:
+        aReg = setNZ (aReg ^ read (address));
+        break;
+
+      case 0x61:                                                      // ADC
+      case 0x65:
+      case 0x69:
+      case 0x6D:
+      case 0x71:
+      case 0x72:
+      case 0x75:
+      case 0x79:
+      case 0x7D:
+        adc (read (address));
+        break;
+
+      case 0xE1:                                                      // SBC
+      case 0xE5:
+      case 0xE9:
+      case 0xED:
+      case 0xF1:
+      case 0xF2:
+      case 0xF5:
+      case 0xF9:
+      case 0xFD:
+        sbc (read (address));
+        break;
+
+      case 0xC1:                                                      // CMP
+      case 0xC5:
+      case 0xC9:
+      case 0xCD:
+      case 0xD1:
+      case 0xD2:
+      case 0xD5:
+      case 0xD9:
+      case 0xDD:
+        compare (aReg, read (address));
+        break;
+
+      case 0xE0:                                                      // CPX
+      case 0xE4:
+      case 0xEC:
+        compare (xReg, read (address));
+        break;
+
+      case 0xC0:                                                      // CPY
+      case 0xC4:
+      case 0xCC:
+        compare (yReg, read (address));
+        break;
+
+      case 0x24:                                                      // BIT
+      case 0x2C:
+      case 0x34:
+      case 0x3C:
+        value = read (address);
+        status = (status & ~(NEGATIVE | OVERFLOW | ZERO))
+            | (value & (NEGATIVE | OVERFLOW)) | ((aReg & value) == 0 ? ZERO : 0);
+        break;
+
+      case 0x89:                                                      // BIT #
+        setFlag (ZERO, (aReg & read (address)) == 0);
+        break;
+
+      case 0x04:                                                      // TSB
+      case 0x0C:
+        value = read (address);
+        setFlag (ZERO, (aReg & value) == 0);
+        write (address, value | aReg);
+        break;
+
+      case 0x14:                                                      // TRB
+      case 0x1C:
+        value = read (address);
+        setFlag (ZERO, (aReg & value) == 0);
+        write (address, value & ~aReg);
+        break;
+
+      // shifts, increments and decrements
+
+      case 0x0A:                                                      // ASL A
+        aReg = asl (aReg);
+        break;
+
+      case 0x06:                                                      // ASL
+      case 0x0E:
+      case 0x16:
+      case 0x1E:
+        write (address, asl (read (address)));
+        break;
+
+      case 0x4A:                                                      // LSR A
+        aReg = lsr (aReg);
+        break;
+
+      case 0x46:                                                      // LSR
+      case 0x4E:
+      case 0x56:
+      case 0x5E:
+        write (address, lsr (read (address)));
+        break;
+
+      case 0x2A:                                                      // ROL A
+        aReg = rol (aReg);
+        break;
+
+      case 0x26:                                                      // ROL
+      case 0x2E:
+      case 0x36:
+      case 0x3E:
+        write (address, rol (read (address)));
+        break;
+
+      case 0x6A:                                                      // ROR A
+        aReg = ror (aReg);
+        break;
+
+      case 0x66:                                                      // ROR
+      case 0x6E:
+      case 0x76:
+      case 0x7E:
+        write (address, ror (read (address)));
+        break;
+
+      case 0x1A:                                                      // INC A
+        aReg = setNZ ((aReg + 1) & 0xFF);
+        break;
+
+      case 0xE6:                                                      // INC
+      case 0xEE:
+      case 0xF6:
+      case 0xFE:
+        write (address, setNZ ((read (address) + 1) & 0xFF));
+        break;
+
+      case 0x3A:                                                      // DEC A
+        aReg = setNZ ((aReg - 1) & 0xFF);
+        break;
+
+      case 0xC6:                                                      // DEC
+      case 0xCE:
+      case 0xD6:
+      case 0xDE:
+        write (address, setNZ ((read (address) - 1) & 0xFF));
+        break;
+
+      case 0xE8:                                                      // INX
+        xReg = setNZ ((xReg + 1) & 0xFF);
+        break;
+
+      case 0xCA:                                                      // DEX
+        xReg = setNZ ((xReg - 1) & 0xFF);
+        break;
+
+      case 0xC8:                                                      // INY
+        yReg = setNZ ((yReg + 1) & 0xFF);
+        break;
+
+      case 0x88:                                                      // DEY
+        yReg = setNZ ((yReg - 1) & 0xFF);
+        break;
+
+      // transfers and the stack
+
+      case 0xAA:                                                      // TAX
+        xReg = setNZ (aReg);
+        break;
+
+      case 0xA8:                                                      // TAY
+        yReg = setNZ (aReg);
+        break;
+
+      case 0x8A:                                                      // TXA
+        aReg = setNZ (xReg);
+        break;
+
+      case 0x98:                                                      // TYA
+        aReg = setNZ (yReg);
+        break;
+
+      case 0xBA:                                                      // TSX
+        xReg = setNZ (sp);
+        break;
+
+      case 0x9A:                                                      // TXS
+        sp = xReg;
+        break;
+
+      case 0x48:                                                      // PHA
+        push (aReg);
+        break;
+
+      case 0xDA:                                                      // PHX
+        push (xReg);
+        break;
+
+      case 0x5A:                                                      // PHY
+        push (yReg);
+        break;
+
+      case 0x08:                                                      // PHP
+        push (status | BREAK | UNUSED);
+        break;
+
+      case 0x68:                                                      // PLA
+        aReg = setNZ (pull ());
+        break;
+
+      case 0xFA:                                                      // PLX
+        xReg = setNZ (pull ());
+        break;
+
+      case 0x7A:                                                      // PLY
+        yReg = setNZ (pull ());
+        break;
+
+      case 0x28:                                                      // PLP
+        status = pull () | UNUSED;
+        break;
+
+      // flags
+
+      case 0x18:                                                      // CLC
+        status &= ~CARRY;
+        break;
+
+      case 0x38:                                                      // SEC
+        status |= CARRY;
+        break;
+
+      case 0x58:                                                      // CLI
+        status &= ~INTERRUPT;
+        break;
+
+      case 0x78:                                                      // SEI
+        status |= INTERRUPT;
+        break;
+
+      case 0xB8:                                                      // CLV
+        status &= ~OVERFLOW;
+        break;
+
+      case 0xD8:                                                      // CLD
+        status &= ~DECIMAL;
+        break;
+
+      case 0xF8:                                                      // SED
+        status |= DECIMAL;
+        break;
+
+      // branches and jumps
+
+      case 0x10:                                                      // BPL
+        branch ((status & NEGATIVE) == 0, address);
+        break;
+
+      case 0x30:                                                      // BMI
+        branch ((status & NEGATIVE) != 0, address);
+        break;
+
+      case 0x50:                                                      // BVC
+        branch ((status & OVERFLOW) == 0, address);
+        break;
+
+      case 0x70:                                                      // BVS
+        branch ((status & OVERFLOW) != 0, address);
+        break;
+
+      case 0x90:                                                      // BCC
+        branch ((status & CARRY) == 0, address);
+        break;
+
+      case 0xB0:                                                      // BCS
+        branch ((status & CARRY) != 0, address);
+        break;
+
+      case 0xD0:                                                      // BNE
+        branch ((status & ZERO) == 0, address);
+        break;
+
+      case 0xF0:                                                      // BEQ
+        branch ((status & ZERO) != 0, address);
+        break;
+
+      case 0x80:                                                      // BRA
+        branch (true, address);
+        break;
+
+      case 0x4C:                                                      // JMP
+      case 0x6C:
+      case 0x7C:
+        pc = address;
+        break;
+
+      case 0x20:                                                      // JSR
+        push ((pc - 1) >>> 8);
+        push (pc - 1);
+        pc = address;
+        break;
+
+      case 0x60:                                                      // RTS
+        rts ();
+        break;
+
+      case 0x40:                                                      // RTI
+        status = pull () | UNUSED;
+        pc = pull ();
+        pc |= pull () << 8;
+        break;
+
+      case 0x00:                                                      // BRK
+        System.out.printf ("BRK at %04X%n", (pc - 1) & 0xFFFF);
+        halt ();
+        break;
+
+      case 0xEA:                                                      // NOP
+        break;
+    }
   }
 
+  // returns from the current subroutine, and from call() if it is the outermost one
   // ---------------------------------------------------------------------------------//
-  protected void ldx (byte value)             // LDX
+  public void rts ()
   // ---------------------------------------------------------------------------------//
   {
-    xReg = value;
-    zero = xReg == 0;
-    negative = (xReg & 0x80) != 0;
-    debug ("LDX");
+    pc = pull ();
+    pc = ((pull () << 8) | pc) + 1 & 0xFFFF;
+
+    if (sp == stackBase)
+      running = false;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void ldy (byte value)             // LDY
+  private void halt ()
   // ---------------------------------------------------------------------------------//
   {
-    yReg = value;
-    zero = yReg == 0;
-    negative = (yReg & 0x80) != 0;
-    debug ("LDY");
+    running = false;
+    halted = true;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void lsr ()                       // LSR
+  protected int read (int address)
   // ---------------------------------------------------------------------------------//
   {
-    negative = false;
-    carry = (aReg & 0x01) != 0;
-    aReg = (byte) ((aReg & 0xFF) >>> 1);
-    zero = aReg == 0;
-    debug ("LSR");
+    return memory[address] & 0xFF;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void ora (byte mask)              // ORA
+  protected void write (int address, int value)
   // ---------------------------------------------------------------------------------//
   {
-    aReg |= mask;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("ORA");
+    memory[address] = (byte) value;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void php ()                       // PHP
+  private int readWord (int address)
   // ---------------------------------------------------------------------------------//
   {
-    byte flags = 0;
-    if (negative)
-      flags |= 0x80;
-    if (overflow)
-      flags |= 0x40;
-    if (breakFlag)
-      flags |= 0x10;
-    if (decimal)
-      flags |= 0x08;
-    if (interrupt)
-      flags |= 0x04;
-    if (zero)
-      flags |= 0x02;
-    if (carry)
-      flags |= 0x01;
-    stack[--sp] = flags;
-    debug ("PHP");
+    return (memory[address] & 0xFF) | (memory[(address + 1) & 0xFFFF] & 0xFF) << 8;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void plp ()                       // PLP
+  private int readZeroPageWord (int address)
   // ---------------------------------------------------------------------------------//
   {
-    byte flags = stack[sp++];
-    negative = (flags & 0x80) != 0;
-    overflow = (flags & 0x40) != 0;
-    breakFlag = (flags & 0x10) != 0;
-    decimal = (flags & 0x08) != 0;
-    interrupt = (flags & 0x04) != 0;
-    zero = (flags & 0x02) != 0;
-    carry = (flags & 0x01) != 0;
-    debug ("PLP");
+    return (memory[address & 0xFF] & 0xFF) | (memory[(address + 1) & 0xFF] & 0xFF) << 8;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void pha ()                       // PHA
+  private int indexed (int base, int index, int opcode)
   // ---------------------------------------------------------------------------------//
   {
-    stack[--sp] = aReg;
-    debug ("PHA");
+    int address = (base + index) & 0xFFFF;
+
+    if (pagePenalty[opcode] && ((base ^ address) & 0xFF00) != 0)
+      cycles++;
+
+    return address;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void pla ()                       // PLA
+  private void branch (boolean condition, int address)
   // ---------------------------------------------------------------------------------//
   {
-    aReg = stack[sp++];
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("PLA");
+    if (condition)
+    {
+      cycles += ((pc ^ address) & 0xFF00) == 0 ? 1 : 2;
+      pc = address;
+    }
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void rol ()                       // ROL
+  protected void push (int value)
   // ---------------------------------------------------------------------------------//
   {
-    boolean tempCarry = carry;
-    carry = (aReg & 0x80) != 0;       // move bit 7 into the carry flag
-    aReg = (byte) (aReg << 1);        // shift left
-    if (tempCarry)
-      aReg |= 0x01;                   // move old carry into bit 0
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("ROL");
+    memory[0x100 + sp] = (byte) value;
+    sp = (sp - 1) & 0xFF;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected byte rol (byte value)             // ROL
+  protected int pull ()
   // ---------------------------------------------------------------------------------//
   {
-    boolean tempCarry = carry;
-    carry = (value & 0x80) != 0;      // move bit 7 into the carry flag
-    value = (byte) (value << 1);
-    if (tempCarry)
-      value |= 0x01;                  // move old carry into bit 0
-    zero = value == 0;
-    negative = (value & 0x80) != 0;
-    debug ("ROL");
-
-    return value;
+    sp = (sp + 1) & 0xFF;
+    return memory[0x100 + sp] & 0xFF;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected byte ror (byte value)             // ROR
+  private int setNZ (int value)
   // ---------------------------------------------------------------------------------//
   {
-    boolean tempCarry = carry;
-    carry = (value & 0x01) != 0;      // move bit 0 into the carry flag
-    value = (byte) ((value & 0xFF) >>> 1);
-    if (tempCarry)
-      value |= 0x80;                  // move old carry into bit 7
-    zero = value == 0;
-    negative = (value & 0x80) != 0;
-    debug ("ROR");
-
+    status = (status & ~(NEGATIVE | ZERO)) | (value & NEGATIVE) | (value == 0 ? ZERO : 0);
     return value;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected byte sta ()                       // STA
+  private void setFlag (int flag, boolean value)
   // ---------------------------------------------------------------------------------//
   {
-    debug ("STA");
-    return aReg;
+    if (value)
+      status |= flag;
+    else
+      status &= ~flag;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void sta (byte[] buffer, int offset)        // STA
+  private void compare (int register, int value)
   // ---------------------------------------------------------------------------------//
   {
-    buffer[offset] = aReg;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("STA");
+    setNZ ((register - value) & 0xFF);
+    setFlag (CARRY, register >= value);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected byte stx ()                       // STX
+  private int asl (int value)
   // ---------------------------------------------------------------------------------//
   {
-    debug ("STX");
-    return xReg;
+    setFlag (CARRY, (value & 0x80) != 0);
+    return setNZ ((value << 1) & 0xFF);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected byte sty ()                       // STY
+  private int lsr (int value)
   // ---------------------------------------------------------------------------------//
   {
-    debug ("STY");
-    return yReg;
+    setFlag (CARRY, (value & 0x01) != 0);
+    return setNZ (value >>> 1);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void txa ()                       // TXA
+  private int rol (int value)
   // ---------------------------------------------------------------------------------//
   {
-    aReg = xReg;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("TXA");
+    int carry = status & CARRY;
+    setFlag (CARRY, (value & 0x80) != 0);
+    return setNZ (((value << 1) | carry) & 0xFF);
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void tya ()                       // TYA
+  private int ror (int value)
   // ---------------------------------------------------------------------------------//
   {
-    aReg = yReg;
-    zero = aReg == 0;
-    negative = (aReg & 0x80) != 0;
-    debug ("TYA");
+    int carry = status & CARRY;
+    setFlag (CARRY, (value & 0x01) != 0);
+    return setNZ ((value >>> 1) | (carry << 7));
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void tax ()                       // TAX
+  private void adc (int value)
   // ---------------------------------------------------------------------------------//
   {
-    xReg = aReg;
-    zero = xReg == 0;
-    negative = (xReg & 0x80) != 0;
-    debug ("TAX");
-  }
+    int carry = status & CARRY;
 
-  // ---------------------------------------------------------------------------------//
-  protected void tay ()                       // TAY
-  // ---------------------------------------------------------------------------------//
-  {
-    yReg = aReg;
-    zero = yReg == 0;
-    negative = (yReg & 0x80) != 0;
-    debug ("TAY");
+    if ((status & DECIMAL) == 0)
+    {
+      int sum = aReg + value + carry;
+      setFlag (OVERFLOW, (~(aReg ^ value) & (aReg ^ sum) & 0x80) != 0);
+      setFlag (CARRY, sum > 0xFF);
+      aReg = setNZ (sum & 0xFF);
+      return;
+    }
+
+    int lo = (aReg & 0x0F) + (value & 0x0F) + carry;
+    int hi = (aReg >>> 4) + (value >>> 4);
+    if (lo > 9)
+    {
+      lo += 6;
+      hi++;
+    }
+
+    int sum = (hi << 4) | (lo & 0x0F);
+    setFlag (OVERFLOW, (~(aReg ^ value) & (aReg ^ sum) & 0x80) != 0);
+
+    if (hi > 9)
+      hi += 6;
+
+    setFlag (CARRY, hi > 0x0F);
+    aReg = setNZ (((hi << 4) | (lo & 0x0F)) & 0xFF);
+    cycles++;
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void sei ()                       // SEI
+  private void sbc (int value)
   // ---------------------------------------------------------------------------------//
   {
-    interrupt = true;
-    debug ("SEI");
+    if ((status & DECIMAL) == 0)
+    {
+      adc (value ^ 0xFF);
+      return;
+    }
+
+    int borrow = 1 - (status & CARRY);
+    int difference = aReg - value - borrow;
+
+    int lo = (aReg & 0x0F) - (value & 0x0F) - borrow;
+    int hi = (aReg >>> 4) - (value >>> 4);
+    if (lo < 0)
+    {
+      lo -= 6;
+      hi--;
+    }
+    if (hi < 0)
+      hi -= 6;
+
+    setFlag (OVERFLOW, ((aReg ^ value) & (aReg ^ difference) & 0x80) != 0);
+    setFlag (CARRY, difference >= 0);
+    aReg = setNZ (((hi << 4) | (lo & 0x0F)) & 0xFF);
+    cycles++;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -407,27 +866,22 @@ public abstract class CPU
   }
 
   // ---------------------------------------------------------------------------------//
-  protected void debug (String cmd)
+  private void debug ()
   // ---------------------------------------------------------------------------------//
   {
-    if (debug)
-    {
-      String flags = String.format ("%s %s - %s %s %s %s %s", negative ? "1" : ".",
-          overflow ? "1" : ".", breakFlag ? "1" : ".", decimal ? "1" : ".",
-          interrupt ? "1" : ".", zero ? "1" : ".", carry ? "1" : ".");
-      System.out.printf ("%3s  A: %02X  X: %02X  Y: %02X  %s  %s%n", cmd, aReg, xReg,
-          yReg, flags, debugString ());
-    }
-  }
+    Opcode opcode = Opcode.get (memory[pc]);
 
-  // ---------------------------------------------------------------------------------//
-  protected int indirectY (int base, byte offset, byte page)
-  // ---------------------------------------------------------------------------------//
-  {
-    if (debug)
-      System.out.printf ("base: %,6d, page: %02X, offset: %02X, yReg: %02X%n", base, page,
-          offset, yReg);
+    StringBuilder bytes = new StringBuilder ();
+    for (int i = 0; i < Math.max (opcode.size, 1); i++)
+      bytes.append (String.format ("%02X ", memory[(pc + i) & 0xFFFF]));
+
+    String flags = String.format ("%s %s - %s %s %s %s %s",
+        (status & NEGATIVE) != 0 ? "1" : ".", (status & OVERFLOW) != 0 ? "1" : ".",
+        (status & BREAK) != 0 ? "1" : ".", (status & DECIMAL) != 0 ? "1" : ".",
+        (status & INTERRUPT) != 0 ? "1" : ".", (status & ZERO) != 0 ? "1" : ".",
+        (status & CARRY) != 0 ? "1" : ".");
 
-    return ((page & 0xFF) * 256 + (offset & 0xFF)) - base + (yReg & 0xFF);
+    System.out.printf ("%04X: %-9s %3s  A: %02X  X: %02X  Y: %02X  S: %02X  %s  %s%n",
+        pc, bytes, opcode.mnemonic, aReg, xReg, yReg, sp, flags, debugString ());
   }
-}
\ No newline at end of file
+}
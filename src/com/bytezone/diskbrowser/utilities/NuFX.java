@@ -1,7 +1,5 @@
 package com.bytezone.diskbrowser.utilities;
 
-import static com.bytezone.diskbrowser.prodos.ProdosConstants.BLOCK_SIZE;
-
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,6 +12,7 @@ import com.bytezone.diskbrowser.prodos.write.FileAlreadyExistsException;
 import com.bytezone.diskbrowser.prodos.write.FileEntry;
 import com.bytezone.diskbrowser.prodos.write.ProdosDisk;
 import com.bytezone.diskbrowser.prodos.write.VolumeCatalogFullException;
+import com.bytezone.diskbrowser.prodos.write.VolumePlan;
 
 // -----------------------------------------------------------------------------------//
 public class NuFX
@@ -82,24 +81,25 @@ public class NuFX
     }
   }
 
+  // Works out the exact disk size from the thread sizes, so each file is only unpacked
+  // once, directly into a disk that is known to be big enough.
   // ---------------------------------------------------------------------------------//
-  private void calculateTotalBlocks ()        // not exact
+  private VolumePlan getPlan ()
   // ---------------------------------------------------------------------------------//
   {
-    totalBlocks = 0;
+    VolumePlan plan = new VolumePlan ();
 
     for (Record record : records)
-      if (record.hasFile () || record.hasResource ())
+      if (record.hasFile () && record.isValidFileSystem ())
       {
-        // note: total blocks does not include subdirectory blocks
-        int blocks = (record.getUncompressedSize () - 1) / BLOCK_SIZE + 1;
-        if (blocks == 1)                      // seedling
-          totalBlocks += blocks;
-        else if (blocks <= 0x100)               // sapling
-          totalBlocks += blocks + 1;
-        else                                  // tree
-          totalBlocks += blocks + (blocks / 0x100) + 2;
+        plan.addFile (volumeName.convert (record.getFileName ()), record.getDataEOF ());
+        if (record.hasResource ())
+          plan.addResourceFork (record.getResourceEOF ());
       }
+
+    totalBlocks = plan.getBlocksNeeded ();
+
+    return plan;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -123,100 +123,99 @@ public class NuFX
     if (debug)
       System.out.println ("Reading files");
 
-    calculateTotalBlocks ();
-    int[] diskSizes = { 280, 800, 1600, 3200, 6400, 65536 };
-    for (int diskSize : diskSizes)      // in case we choose a size that is too small
+    String diskName = volumeName.getVolumeName ();      // sets the path offset
+    VolumePlan plan = getPlan ();
+    if (totalBlocks > VolumePlan.MAX_BLOCKS)
     {
-      if (diskSize < (totalBlocks + 10))
-        continue;
+      System.out.printf ("%,d blocks needed, the maximum is %,d%n", totalBlocks,
+          VolumePlan.MAX_BLOCKS);
+      return null;
+    }
 
-      try
-      {
-        ProdosDisk disk = new ProdosDisk (diskSize, volumeName.getVolumeName ());
-        int count = 0;
+    try
+    {
+      ProdosDisk disk = new ProdosDisk (plan.getDiskSize (), diskName);
+      int count = 0;
 
-        for (Record record : records)
+      for (Record record : records)
+      {
+        if (record.hasFile ())
         {
-          if (record.hasFile ())
+          String fileName = volumeName.convert (record.getFileName ());
+
+          if (!record.isValidFileSystem ())
           {
-            String fileName = volumeName.convert (record.getFileName ());
+            System.out.printf ("File %s is file system %s%n", fileName,
+                record.getFileSystemName ());
+            continue;
+          }
 
-            if (!record.isValidFileSystem ())
-            {
-              System.out.printf ("File %s is file system %s%n", fileName,
-                  record.getFileSystemName ());
-              continue;
-            }
+          byte fileType = (byte) record.getFileType ();
+          int eof = record.getDataEOF ();
+          int auxType = record.getAuxType ();
+          LocalDateTime created = record.getCreated ();
+          LocalDateTime modified = record.getModified ();
+          byte[] buffer;
+          try
+          {
+            buffer = record.getData ();
+          }
+          catch (Exception e)
+          {
+            System.out.println (e.getMessage ());
+            System.out.printf ("Failed to unpack: %s%n", fileName);
+            continue;
+          }
 
-            //              int fileSize = record.getFileSize ();
-            byte fileType = (byte) record.getFileType ();
-            int eof = record.getUncompressedSize ();
-            int auxType = record.getAuxType ();
-            LocalDateTime created = record.getCreated ();
-            LocalDateTime modified = record.getModified ();
-            byte[] buffer;
-            try
-            {
-              buffer = record.getData ();
-            }
-            catch (Exception e)
-            {
-              System.out.println (e.getMessage ());
-              System.out.printf ("Failed to unpack: %s%n", fileName);
-              continue;
-            }
+          if (debug)
+            System.out.printf ("%3d %-35s %02X %,7d %,7d %,7d  %s  %s%n", ++count,
+                fileName, fileType, auxType, eof, buffer.length, created, modified);
 
-            if (debug)
-              System.out.printf ("%3d %-35s %02X %,7d %,7d %,7d  %s  %s%n", ++count,
-                  fileName, fileType, auxType, eof, buffer.length, created, modified);
+          FileEntry fileEntry;
+          try
+          {
+            fileEntry = disk.addFile (fileName, fileType, auxType, created, modified,
+                buffer, eof);
+          }
+          catch (FileAlreadyExistsException e)
+          {
+            System.out.printf ("File %s not added%n", fileName);
+            break;
+          }
 
-            FileEntry fileEntry;
+          if (record.hasResource ())
+          {
             try
             {
-              fileEntry = disk.addFile (fileName, fileType, auxType, created, modified,
-                  buffer, eof);
-            }
-            catch (FileAlreadyExistsException e)
-            {
-              System.out.printf ("File %s not added%n", fileName);
-              break;
+              buffer = record.getResourceData ();
+              disk.addResourceFork (fileEntry, buffer, record.getResourceEOF ());
             }
-
-            if (record.hasResource ())
+            catch (RuntimeException e)
             {
-              try
-              {
-                buffer = record.getResourceData ();
-                disk.addResourceFork (fileEntry, buffer, buffer.length);
-              }
-              catch (Exception e)
-              {
-                System.out.println (e.getMessage ());
-                System.out.printf ("Failed to unpack resource fork: %s%n", fileName);
-              }
+              System.out.println (e.getMessage ());
+              System.out.printf ("Failed to unpack resource fork: %s%n", fileName);
             }
           }
         }
+      }
 
-        disk.close ();
+      disk.close ();
 
-        return disk.getBuffer ();
-      }
-      catch (DiskFullException e)
-      {
-        System.out.println ("disk full: " + diskSize);    // go round again
-      }
-      catch (VolumeCatalogFullException e)
-      {
-        e.printStackTrace ();
-        return null;
-      }
-      catch (IOException e)
-      {
-        e.printStackTrace ();
-        return null;
-      }
+      return disk.getBuffer ();
+    }
+    catch (DiskFullException e)                 // the plan was wrong
+    {
+      System.out.printf ("Disk full: %,d blocks%n", plan.getDiskSize ());
+    }
+    catch (VolumeCatalogFullException e)
+    {
+      e.printStackTrace ();
     }
+    catch (IOException e)
+    {
+      e.printStackTrace ();
+    }
+
     return null;
   }
 
@@ -0,0 +1,200 @@
+package com.bytezone.diskbrowser.utilities;
+
+// Everything that is known about each 65c02 opcode, built once and never changed.
+// The disassembler and the CPU emulation both decode from this table.
+// -----------------------------------------------------------------------------------//
+public final class Opcode
+// -----------------------------------------------------------------------------------//
+{
+  // addressing modes
+  public static final int IMPLIED = 0;
+  public static final int ACCUMULATOR = 1;
+  public static final int IMMEDIATE = 2;
+  public static final int ABSOLUTE = 3;
+  public static final int ABSOLUTE_X = 4;
+  public static final int ABSOLUTE_Y = 5;
+  public static final int INDIRECT_ABSOLUTE_X = 6;
+  public static final int INDIRECT_ABSOLUTE = 7;
+  public static final int ZERO_PAGE = 8;
+  public static final int ZERO_PAGE_X = 9;
+  public static final int ZERO_PAGE_Y = 10;
+  public static final int INDIRECT_X = 11;
+  public static final int INDIRECT_Y = 12;
+  public static final int INDIRECT_ZERO_PAGE = 13;
+  public static final int RELATIVE = 14;
+
+  // what the instruction does to the program counter
+  public static final int FLOW_NEXT = 0;            // falls through
+  public static final int FLOW_BRANCH = 1;          // conditional, relative
+  public static final int FLOW_JUMP = 2;            // JMP abs, BRA
+  public static final int FLOW_CALL = 3;            // JSR
+  public static final int FLOW_RETURN = 4;          // RTS, RTI
+  public static final int FLOW_INDIRECT = 5;        // JMP (abs), JMP (abs,X)
+  public static final int FLOW_BREAK = 6;           // BRK
+  public static final int FLOW_INVALID = 7;
+
+  public static final String[] modeNames =
+      { "Implied", "Accumulator", "Immediate", "Absolute", "Absolute, X", "Absolute, Y",
+        "(Absolute, X)", "(Absolute)", "Zero page", "Zero page, X", "Zero page, Y",
+        "(Zero page, X)", "(Zero page), Y", "(Zero page)", "Relative" };
+
+  private static final int[] modeSizes = { 1, 1, 2, 3, 3, 3, 3, 3, 2, 2, 2, 2, 2, 2, 2 };
+
+  // 1A = INC A, 3A = DEC A
+  private static final String[] mnemonics =
+      { "BRK", "ORA", "???", "???", "TSB", "ORA", "ASL", "???", // 00
+        "PHP", "ORA", "ASL", "???", "TSB", "ORA", "ASL", "???", // 08
+        "BPL", "ORA", "ORA", "???", "TRB", "ORA", "ASL", "???", // 10
+        "CLC", "ORA", "INC", "???", "TRB", "ORA", "ASL", "???", // 18
+        "JSR", "AND", "???", "???", "BIT", "AND", "ROL", "???", // 20
+        "PLP", "AND", "ROL", "???", "BIT", "AND", "ROL", "???", // 28
+        "BMI", "AND", "AND", "???", "BIT", "AND", "ROL", "???", // 30
+        "SEC", "AND", "DEC", "???", "BIT", "AND", "ROL", "???", // 38
+        "RTI", "EOR", "???", "???", "???", "EOR", "LSR", "???", // 40
+        "PHA", "EOR", "LSR", "???", "JMP", "EOR", "LSR", "???", // 48
+        "BVC", "EOR", "EOR", "???", "???", "EOR", "LSR", "???", // 50
+        "CLI", "EOR", "PHY", "???", "???", "EOR", "LSR", "???", // 58
+        "RTS", "ADC", "???", "???", "STZ", "ADC", "ROR", "???", // 60
+        "PLA", "ADC", "ROR", "???", "JMP", "ADC", "ROR", "???", // 68
+        "BVS", "ADC", "ADC", "???", "STZ", "ADC", "ROR", "???", // 70
+        "SEI", "ADC", "PLY", "???", "JMP", "ADC", "ROR", "???", // 78
+        "BRA", "STA", "???", "???", "STY", "STA", "STX", "???", // 80
+        "DEY", "BIT", "TXA", "???", "STY", "STA", "STX", "???", // 88
+        "BCC", "STA", "STA", "???", "STY", "STA", "STX", "???", // 90
+        "TYA", "STA", "TXS", "???", "STZ", "STA", "STZ", "???", // 98
+        "LDY", "LDA", "LDX", "???", "LDY", "LDA", "LDX", "???", // A0
+        "TAY", "LDA", "TAX", "???", "LDY", "LDA", "LDX", "???", // A8
+        "BCS", "LDA", "LDA", "???", "LDY", "LDA", "LDX", "???", // B0
+        "CLV", "LDA", "TSX", "???", "LDY", "LDA", "LDX", "???", // B8
+        "CPY", "CMP", "???", "???", "CPY", "CMP", "DEC", "???", // C0
+        "INY", "CMP", "DEX", "???", "CPY", "CMP", "DEC", "???", // C8
+        "BNE", "CMP", "CMP", "???", "???", "CMP", "DEC", "???", // D0
+        "CLD", "CMP", "PHX", "???", "???", "CMP", "DEC", "???", // D8
+        "CPX", "SBC", "???", "???", "CPX", "SBC", "INC", "???", // E0
+        "INX", "SBC", "NOP", "???", "CPX", "SBC", "INC", "???", // E8
+        "BEQ", "SBC", "SBC", "???", "???", "SBC", "INC", "???", // F0
+        "SED", "SBC", "PLX", "???", "???", "SBC", "INC", "???" }; // F8
+
+  // -1 = not an instruction
+  private static final byte[] modes =
+      { 0, 11, -1, -1, 8, 8, 8, -1, 0, 2, 1, -1, 3, 3, 3, -1,           // 00 - 0F
+        14, 12, 13, -1, 8, 9, 9, -1, 0, 5, 1, -1, 3, 4, 4, -1,          // 10 - 1F
+        3, 11, -1, -1, 8, 8, 8, -1, 0, 2, 1, -1, 3, 3, 3, -1,           // 20 - 2F
+        14, 12, 13, -1, 9, 9, 9, -1, 0, 5, 1, -1, 4, 4, 4, -1,          // 30 - 3F
+        0, 11, -1, -1, -1, 8, 8, -1, 0, 2, 1, -1, 3, 3, 3, -1,          // 40 - 4F
+        14, 12, 13, -1, -1, 9, 9, -1, 0, 5, 0, -1, -1, 4, 4, -1,        // 50 - 5F
+        0, 11, -1, -1, 8, 8, 8, -1, 0, 2, 1, -1, 7, 3, 3, -1,           // 60 - 6F
+        14, 12, 13, -1, 9, 9, 9, -1, 0, 5, 0, -1, 6, 4, 4, -1,          // 70 - 7F
+        14, 11, -1, -1, 8, 8, 8, -1, 0, 2, 0, -1, 3, 3, 3, -1,          // 80 - 8F
+        14, 12, 13, -1, 9, 9, 10, -1, 0, 5, 0, -1, 3, 4, 4, -1,         // 90 - 9F
+        2, 11, 2, -1, 8, 8, 8, -1, 0, 2, 0, -1, 3, 3, 3, -1,            // A0 - AF
+        14, 12, 13, -1, 9, 9, 10, -1, 0, 5, 0, -1, 4, 4, 5, -1,         // B0 - BF
+        2, 11, -1, -1, 8, 8, 8, -1, 0, 2, 0, -1, 3, 3, 3, -1,           // C0 - CF
+        14, 12, 13, -1, -1, 9, 9, -1, 0, 5, 0, -1, -1, 4, 4, -1,        // D0 - DF
+        2, 11, -1, -1, 8, 8, 8, -1, 0, 2, 0, -1, 3, 3, 3, -1,           // E0 - EF
+        14, 12, 13, -1, -1, 9, 9, -1, 0, 5, 0, -1, -1, 4, 4, -1 };      // F0 - FF
+
+  // 65c02 cycles, not counting page crossings or branches taken
+  private static final byte[] cycleCounts =
+      { 7, 6, 0, 0, 5, 3, 5, 0, 3, 2, 2, 0, 6, 4, 6, 0,     // 00 - 0F
+        2, 5, 5, 0, 5, 4, 6, 0, 2, 4, 2, 0, 6, 4, 6, 0,     // 10 - 1F
+        6, 6, 0, 0, 3, 3, 5, 0, 4, 2, 2, 0, 4, 4, 6, 0,     // 20 - 2F
+        2, 5, 5, 0, 4, 4, 6, 0, 2, 4, 2, 0, 4, 4, 6, 0,     // 30 - 3F
+        6, 6, 0, 0, 0, 3, 5, 0, 3, 2, 2, 0, 3, 4, 6, 0,     // 40 - 4F
+        2, 5, 5, 0, 0, 4, 6, 0, 2, 4, 3, 0, 0, 4, 6, 0,     // 50 - 5F
+        6, 6, 0, 0, 3, 3, 5, 0, 4, 2, 2, 0, 6, 4, 6, 0,     // 60 - 6F
+        2, 5, 5, 0, 4, 4, 6, 0, 2, 4, 4, 0, 6, 4, 6, 0,     // 70 - 7F
+        3, 6, 0, 0, 3, 3, 3, 0, 2, 2, 2, 0, 4, 4, 4, 0,     // 80 - 8F
+        2, 6, 5, 0, 4, 4, 4, 0, 2, 5, 2, 0, 4, 5, 5, 0,     // 90 - 9F
+        2, 6, 2, 0, 3, 3, 3, 0, 2, 2, 2, 0, 4, 4, 4, 0,     // A0 - AF
+        2, 5, 5, 0, 4, 4, 4, 0, 2, 4, 2, 0, 4, 4, 4, 0,     // B0 - BF
+        2, 6, 0, 0, 3, 3, 5, 0, 2, 2, 2, 0, 4, 4, 6, 0,     // C0 - CF
+        2, 5, 5, 0, 0, 4, 6, 0, 2, 4, 3, 0, 0, 4, 7, 0,     // D0 - DF
+        2, 6, 0, 0, 3, 3, 5, 0, 2, 2, 2, 0, 4, 4, 6, 0,     // E0 - EF
+        2, 5, 5, 0, 0, 4, 6, 0, 2, 4, 4, 0, 0, 4, 7, 0 };   // F0 - FF
+
+  private static final Opcode[] opcodes = new Opcode[256];
+
+  static
+  {
+    for (int i = 0; i < opcodes.length; i++)
+      opcodes[i] = new Opcode (i);
+  }
+
+  public final int value;
+  public final String mnemonic;
+  public final int mode;                // -1 if not an instruction
+  public final int size;                // 0 if not an instruction
+  public final int cycles;
+  public final int flow;
+
+  // ---------------------------------------------------------------------------------//
+  private Opcode (int value)
+  // ---------------------------------------------------------------------------------//
+  {
+    this.value = value;
+    this.mnemonic = mnemonics[value];
+    this.mode = modes[value];
+    this.size = mode < 0 ? 0 : modeSizes[mode];
+    this.cycles = cycleCounts[value];
+    this.flow = getFlow (value, mode);
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private static int getFlow (int value, int mode)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (mode < 0)
+      return FLOW_INVALID;
+
+    switch (value)
+    {
+      case 0x00:
+        return FLOW_BREAK;
+      case 0x20:
+        return FLOW_CALL;
+      case 0x40:
+      case 0x60:
+        return FLOW_RETURN;
+      case 0x4C:
+      case 0x80:
+        return FLOW_JUMP;
+      case 0x6C:
+      case 0x7C:
+        return FLOW_INDIRECT;
+    }
+
+    return mode == RELATIVE ? FLOW_BRANCH : FLOW_NEXT;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public static Opcode get (int value)
+  // ---------------------------------------------------------------------------------//
+  {
+    return opcodes[value & 0xFF];
+  }
+
+  // ---------------------------------------------------------------------------------//
+  public boolean isValid ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return size > 0;
+  }
+
+  // execution cannot continue with the next instruction
+  // ---------------------------------------------------------------------------------//
+  public boolean endsBlock ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return flow != FLOW_NEXT && flow != FLOW_BRANCH && flow != FLOW_CALL;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  @Override
+  public String toString ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return String.format ("%02X  %s  %-15s  %d  %d", value, mnemonic,
+        mode < 0 ? "" : modeNames[mode], size, cycles);
+  }
+}
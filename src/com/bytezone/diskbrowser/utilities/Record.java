@@ -279,6 +279,29 @@ class Record
     return size;
   }
 
+  // the size of the data fork, known without unpacking it
+  // ---------------------------------------------------------------------------------//
+  int getDataEOF ()
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Thread thread : threads)
+      if (thread.hasFile ())
+        return thread.getUncompressedEOF ();
+
+    return 0;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int getResourceEOF ()
+  // ---------------------------------------------------------------------------------//
+  {
+    for (Thread thread : threads)
+      if (thread.hasResource ())
+        return thread.getUncompressedEOF ();
+
+    return 0;
+  }
+
   // ---------------------------------------------------------------------------------//
   byte[] getData ()
   // ---------------------------------------------------------------------------------//
@@ -51,6 +51,32 @@ class Address implements Comparable<Address>
       set (address.substring (0, 2), address.substring (2));
   }
 
+  // length of the [A-B]?[A-Z][0-9]{1,3} cell address at start, or 0 if there isn't one
+  // ---------------------------------------------------------------------------------//
+  static int getAddressLength (String text, int start)
+  // ---------------------------------------------------------------------------------//
+  {
+    int ptr = start;
+    int max = text.length ();
+
+    if (ptr < max - 1 && text.charAt (ptr) >= 'A' && text.charAt (ptr) <= 'B'
+        && text.charAt (ptr + 1) >= 'A' && text.charAt (ptr + 1) <= 'Z')
+      ptr += 2;
+    else if (ptr < max && text.charAt (ptr) >= 'A' && text.charAt (ptr) <= 'Z')
+      ptr++;
+    else
+      return 0;
+
+    int digits = 0;
+    while (ptr < max && digits < 3 && text.charAt (ptr) >= '0' && text.charAt (ptr) <= '9')
+    {
+      ptr++;
+      digits++;
+    }
+
+    return digits == 0 ? 0 : ptr - start;
+  }
+
   // ---------------------------------------------------------------------------------//
   public boolean matches (String addressText)
   // ---------------------------------------------------------------------------------//
@@ -77,7 +77,6 @@ class Cell implements Value, Comparable<Cell>
     else
     {
       fullText = valueText;
-      cellType = CellType.VALUE;
       try
       {
         value = new Expression (this, fullText).reduce ();
@@ -86,6 +85,7 @@ class Cell implements Value, Comparable<Cell>
       {
         value = new Error (this, "@ERROR");
       }
+      cellType = CellType.VALUE;      // not before - a circular reference could see it
     }
 
     if (false)
@@ -99,6 +99,23 @@ class Cell implements Value, Comparable<Cell>
     calculated = false;
   }
 
+  // ---------------------------------------------------------------------------------//
+  void setCircular ()
+  // ---------------------------------------------------------------------------------//
+  {
+    assert cellType == CellType.VALUE;
+
+    value = new Error (this, "@ERROR");
+    calculated = true;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  Value getValue ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return value;
+  }
+
   // ---------------------------------------------------------------------------------//
   Value getExpressionValue (String text)
   // ---------------------------------------------------------------------------------//
@@ -195,6 +212,13 @@ class Cell implements Value, Comparable<Cell>
     return parent.getCell (addressText);
   }
 
+  // ---------------------------------------------------------------------------------//
+  Range getRange (String rangeText)
+  // ---------------------------------------------------------------------------------//
+  {
+    return parent.getRange (this, rangeText);
+  }
+
   // ---------------------------------------------------------------------------------//
   boolean cellExists (Address address)
   // ---------------------------------------------------------------------------------//
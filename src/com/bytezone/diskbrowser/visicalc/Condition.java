@@ -1,14 +1,12 @@
 package com.bytezone.diskbrowser.visicalc;
 
 import java.util.Iterator;
-import java.util.regex.Pattern;
 
 // Predicate
 // -----------------------------------------------------------------------------------//
 class Condition extends AbstractValue implements Iterable<Value>
 // -----------------------------------------------------------------------------------//
 {
-  private static final Pattern cellAddress = Pattern.compile ("[A-B]?[A-Z][0-9]{1,3}");
   private static final String[] comparators = { "<>", "<=", ">=", "=", "<", ">" };
 
   private String comparator;
@@ -45,7 +43,7 @@ class Condition extends AbstractValue implements Iterable<Value>
     }
 
     if (comparator == null)
-      if (text.startsWith ("@") || cellAddress.matcher (text).matches ())
+      if (text.startsWith ("@") || Address.getAddressLength (text, 0) == text.length ())
       {
         conditionText = text;
         conditionExpression = new Expression (cell, text).reduce ();
@@ -14,23 +14,22 @@ class ConditionList implements Iterable<Value>
   ConditionList (Cell cell, String text)
   // ---------------------------------------------------------------------------------//
   {
-    String remainder = text;
+    int ptr = 0;
 
     while (true)
     {
-      String parameter = Expression.getParameter (remainder);
+      int end = Expression.getParameterEnd (text, ptr);
+      String parameter = text.substring (ptr, end);
+
       if (Range.isRange (parameter))
-        for (Address address : new Range (cell, parameter))
-        {
-          Cell target = cell.getCell (address);
-          conditions.add (target);
-        }
+        conditions.addAll (cell.getRange (parameter).getCells ());
       else
         conditions.add (new Condition (cell, parameter));
 
-      if (remainder.length () == parameter.length ())
+      if (end == text.length ())
         break;
-      remainder = remainder.substring (parameter.length () + 1);
+
+      ptr = end + 1;                            // skip the comma
     }
   }
 
@@ -0,0 +1,134 @@
+package com.bytezone.diskbrowser.visicalc;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.bytezone.diskbrowser.visicalc.Cell.CellType;
+
+// Orders the cells so that every cell is calculated after all of the cells it refers
+// to. Cells that are part of (or depend on) a circular reference become @ERROR.
+// -----------------------------------------------------------------------------------//
+class DependencyGraph
+// -----------------------------------------------------------------------------------//
+{
+  private final Cell[] cells;
+  private final Map<Cell, Integer> cellIndex = new HashMap<> ();
+
+  private final int[][] dependents;       // cells that refer to each cell
+  private final int[] order;              // cell indexes in calculation order
+  private final BitSet circular;
+
+  // ---------------------------------------------------------------------------------//
+  DependencyGraph (Collection<Cell> sheetCells)
+  // ---------------------------------------------------------------------------------//
+  {
+    int totalCells = sheetCells.size ();
+    cells = sheetCells.toArray (new Cell[totalCells]);
+    for (int i = 0; i < totalCells; i++)
+      cellIndex.put (cells[i], i);
+
+    circular = new BitSet (totalCells);
+
+    // build the edges from each referenced cell to the cells that use it
+    int[] totalPrecedents = new int[totalCells];
+    int[] totalDependents = new int[totalCells];
+    int[][] precedents = new int[totalCells][];
+
+    for (int i = 0; i < totalCells; i++)
+    {
+      Set<Cell> references = getReferences (cells[i]);
+      precedents[i] = new int[references.size ()];
+      int ptr = 0;
+      for (Cell reference : references)
+      {
+        int index = cellIndex.get (reference);
+        precedents[i][ptr++] = index;
+        totalDependents[index]++;
+      }
+      totalPrecedents[i] = ptr;
+    }
+
+    dependents = new int[totalCells][];
+    for (int i = 0; i < totalCells; i++)
+      dependents[i] = new int[totalDependents[i]];
+
+    int[] ptr = new int[totalCells];
+    for (int i = 0; i < totalCells; i++)
+      for (int index : precedents[i])
+        dependents[index][ptr[index]++] = i;
+
+    // topological sort - cells with no outstanding precedents go first
+    order = new int[totalCells];
+    int head = 0;
+    int tail = 0;
+
+    for (int i = 0; i < totalCells; i++)
+      if (totalPrecedents[i] == 0)
+        order[tail++] = i;
+
+    while (head < tail)
+      for (int dependent : dependents[order[head++]])
+        if (--totalPrecedents[dependent] == 0)
+          order[tail++] = dependent;
+
+    // anything left over is in a cycle, or relies on a cell that is
+    if (tail < totalCells)
+      for (int i = 0; i < totalCells; i++)
+        if (totalPrecedents[i] > 0)
+        {
+          circular.set (i);
+          cells[i].setCircular ();
+          order[tail++] = i;
+        }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  void recalculate ()
+  // ---------------------------------------------------------------------------------//
+  {
+    for (int index : order)
+      if (!circular.get (index))
+      {
+        cells[index].reset ();
+        cells[index].calculate ();
+      }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  int totalCircular ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return circular.cardinality ();
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private Set<Cell> getReferences (Cell cell)
+  // ---------------------------------------------------------------------------------//
+  {
+    Set<Cell> references = new LinkedHashSet<> ();
+    if (cell.isCellType (CellType.VALUE))
+      addReferences (cell.getValue (), references);
+    return references;
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void addReferences (Value value, Set<Cell> references)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (value instanceof Cell)
+    {
+      references.add ((Cell) value);
+      return;
+    }
+
+    if (value instanceof Lookup)                // result comes from an adjacent cell
+      ((Lookup) value).addAdjacentCells (references);
+
+    for (Value v : value)
+      addReferences (v, references);
+  }
+}
@@ -1,14 +1,33 @@
 package com.bytezone.diskbrowser.visicalc;
 
-import java.util.ArrayList;
-import java.util.List;
-
 // -----------------------------------------------------------------------------------//
 class Expression extends AbstractValue
 // -----------------------------------------------------------------------------------//
 {
-  private final List<String> operators = new ArrayList<> ();
-  private final List<String> signs = new ArrayList<> ();
+  // instructions in the compiled program, the low 16 bits hold the operand index
+  private static final int PUSH_CONSTANT = 0x10000;
+  private static final int PUSH_VALUE = 0x20000;
+  private static final int NEGATE = 0x30000;
+  private static final int ADD = 0x40000;
+  private static final int SUBTRACT = 0x50000;
+  private static final int MULTIPLY = 0x60000;
+  private static final int DIVIDE = 0x70000;
+  private static final int POWER = 0x80000;
+
+  private final char[] signs;                 // '+' or '-' for each value
+  private final char[] operators;             // between each pair of values
+  private int totalOperators;
+
+  // A NUMBER expression is compiled to a postfix program when it is parsed, so
+  // calculate() walks flat arrays instead of the value list. Constants are folded
+  // into the program, and cells, functions and bracketed expressions are operands.
+  private int[] program;
+  private int programSize;
+  private double[] constants;
+  private int totalConstants;
+  private Value[] operands;
+  private int totalOperands;
+  private double[] stack;
 
   // ---------------------------------------------------------------------------------//
   Expression (Cell cell, String text)
@@ -17,45 +36,49 @@ class Expression extends AbstractValue
     super (cell, text);
 
     String line = balanceBrackets (text);   // add trailing right brackets if necessary
+    int max = line.length ();
+
+    signs = new char[max + 1];
+    operators = new char[max];
 
     if (Condition.isCondition (text))
     {
       values.add (new Condition (cell, text));
-      signs.add ("(+)");                        // reduce() needs this
+      signs[0] = '+';                         // reduce() needs this
       return;
     }
 
     int ptr = 0;
-    while (ptr < line.length ())
+    while (ptr < max)
     {
       // check for optional leading + or -
       char ch = line.charAt (ptr);
       if (ch == '-')
       {
-        signs.add ("(-)");
+        signs[values.size ()] = '-';
         ch = line.charAt (++ptr);
       }
       else
       {
-        signs.add ("(+)");
+        signs[values.size ()] = '+';
         if (ch == '+')
           ch = line.charAt (++ptr);
       }
 
       // check for mandatory function/sub-expression/number/cell reference
+      int end;
       switch (ch)
       {
         case '@':                                           // function
-          String functionText = getFunctionCall (line.substring (ptr));
-          ptr += functionText.length ();
-          values.add (cell.getFunction (functionText));
+          end = getFunctionEnd (line, ptr);
+          values.add (cell.getFunction (line.substring (ptr, end)));
+          ptr = end;
           break;
 
         case '(':                                           // parentheses block
-          String bracketText = getBalancedText (line.substring (ptr));
-          ptr += bracketText.length ();
-          values.add (new Expression (cell,
-              bracketText.substring (1, bracketText.length () - 1)));
+          end = getBalancedEnd (line, ptr);
+          values.add (new Expression (cell, line.substring (ptr + 1, end - 1)));
+          ptr = end;
           break;
 
         case '#':                                           // no idea
@@ -66,15 +89,15 @@ class Expression extends AbstractValue
         default:
           if (ch == '.' || (ch >= '0' && ch <= '9'))        // number
           {
-            String numberText = getNumberText (line.substring (ptr));
-            ptr += numberText.length ();
-            values.add (new Number (cell, numberText));
+            end = getNumberEnd (line, ptr);
+            values.add (new Number (cell, line.substring (ptr, end)));
+            ptr = end;
           }
           else if (ch >= 'A' && ch <= 'Z')                  // cell address
           {
-            String addressText = getAddressText (line.substring (ptr));
-            ptr += addressText.length ();
-            values.add (cell.getCell (addressText));
+            end = getAddressEnd (line, ptr);
+            values.add (cell.getCell (line.substring (ptr, end)));
+            ptr = end;
           }
           else
           {
@@ -84,11 +107,14 @@ class Expression extends AbstractValue
       }
 
       // check for possible continuation operator
-      if (ptr < line.length ())
+      if (ptr < max)
       {
         ch = line.charAt (ptr);
         if (ch == '+' || ch == '-' || ch == '*' || ch == '/' || ch == '^')
-          operators.add (line.substring (ptr, ++ptr));
+        {
+          operators[totalOperators++] = ch;
+          ptr++;
+        }
         else
         {
           System.out.printf ("Unknown operator [%s] in [%s]%n", ch, line);
@@ -99,13 +125,79 @@ class Expression extends AbstractValue
 
     assert values.size () > 0;
     valueType = values.get (0).getValueType ();
+
+    if (valueType == ValueType.NUMBER)
+      compile ();
+  }
+
+  // VisiCalc has no operator precedence, so a op1 b op2 c becomes a b op1 c op2, and
+  // the stack never holds more than two values.
+  // ---------------------------------------------------------------------------------//
+  private void compile ()
+  // ---------------------------------------------------------------------------------//
+  {
+    program = new int[values.size () * 3];
+    constants = new double[values.size ()];
+    operands = new Value[values.size ()];
+    stack = new double[2];
+
+    for (int i = 0; i < values.size (); i++)
+    {
+      compileValue (values.get (i));
+
+      if (signs[i] == '-')
+        emit (NEGATE);
+
+      if (i > 0)
+        switch (operators[i - 1])
+        {
+          case '+':
+            emit (ADD);
+            break;
+          case '-':
+            emit (SUBTRACT);
+            break;
+          case '*':
+            emit (MULTIPLY);
+            break;
+          case '/':
+            emit (DIVIDE);
+            break;
+          case '^':
+            emit (POWER);
+            break;
+        }
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void compileValue (Value value)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (value instanceof Number && value.isValid ())
+    {
+      constants[totalConstants] = value.getDouble ();
+      emit (PUSH_CONSTANT | totalConstants++);
+    }
+    else
+    {
+      operands[totalOperands] = value;          // cell, function or (expression)
+      emit (PUSH_VALUE | totalOperands++);
+    }
+  }
+
+  // ---------------------------------------------------------------------------------//
+  private void emit (int instruction)
+  // ---------------------------------------------------------------------------------//
+  {
+    program[programSize++] = instruction;
   }
 
   // ---------------------------------------------------------------------------------//
   Value reduce ()
   // ---------------------------------------------------------------------------------//
   {
-    return values.size () == 1 && signs.get (0).equals ("(+)") ? values.get (0) : this;
+    return values.size () == 1 && signs[0] == '+' ? values.get (0) : this;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -132,74 +224,93 @@ class Expression extends AbstractValue
   {
     assert values.size () > 0;
 
-    try
+    if (program == null)                    // BOOLEAN or a condition
     {
       Value thisValue = values.get (0);
       thisValue.calculate ();
+      bool = thisValue.getBoolean ();
+      if (!thisValue.isValid ())
+        valueResult = thisValue.getValueResult ();
+      return;
+    }
 
-      if (valueType == ValueType.NUMBER)
-        value = thisValue.getDouble ();
-      else
-        bool = thisValue.getBoolean ();
+    valueResult = ValueResult.VALID;
 
-      if (!thisValue.isValid ())            // ERROR / NA
-      {
-        valueType = thisValue.getValueType ();
-        return;
-      }
-
-      String sign = signs.get (0);
-      if (sign.equals ("(-)"))
-        value *= -1;
+    try
+    {
+      int sp = 0;
 
-      for (int i = 1; i < values.size (); i++)      // only NUMBER will enter here
+      for (int pc = 0; pc < programSize; pc++)
       {
-        thisValue = values.get (i);
-        thisValue.calculate ();
-
-        if (!thisValue.isValid ())
-        {
-          valueType = thisValue.getValueType ();
-          return;
-        }
+        int instruction = program[pc];
+        int index = instruction & 0xFFFF;
 
-        double nextValue = thisValue.getDouble ();
-
-        sign = signs.get (i);
-        if (sign.equals ("(-)"))
-          nextValue *= -1;
-
-        String operator = operators.get (i - 1);
-        if (operator.equals ("+"))
-          value += nextValue;
-        else if (operator.equals ("-"))
-          value -= nextValue;
-        else if (operator.equals ("*"))
-          value *= nextValue;
-        else if (operator.equals ("/"))
+        switch (instruction & 0xFFFF0000)
         {
-          if (nextValue == 0)
-          {
-            valueResult = ValueResult.ERROR;
-            return;
-          }
-          value /= nextValue;
+          case PUSH_CONSTANT:
+            stack[sp++] = constants[index];
+            continue;
+
+          case PUSH_VALUE:
+            Value operand = operands[index];
+            operand.calculate ();
+            if (!operand.isValid ())            // ERROR / NA
+            {
+              valueResult = operand.getValueResult ();
+              return;
+            }
+            stack[sp++] = operand.getDouble ();
+            continue;
+
+          case NEGATE:
+            stack[sp - 1] = -stack[sp - 1];
+            continue;
+
+          case ADD:
+            --sp;
+            stack[sp - 1] += stack[sp];
+            break;
+
+          case SUBTRACT:
+            --sp;
+            stack[sp - 1] -= stack[sp];
+            break;
+
+          case MULTIPLY:
+            --sp;
+            stack[sp - 1] *= stack[sp];
+            break;
+
+          case DIVIDE:
+            --sp;
+            if (stack[sp] == 0)
+            {
+              value = stack[sp - 1];
+              valueResult = ValueResult.ERROR;
+              return;
+            }
+            stack[sp - 1] /= stack[sp];
+            break;
+
+          case POWER:
+            --sp;
+            stack[sp - 1] = Math.pow (stack[sp - 1], stack[sp]);
+            break;
         }
-        else if (operator.equals ("^"))
-          value = Math.pow (value, nextValue);
 
-        if (Double.isNaN (value))
+        if (Double.isNaN (stack[sp - 1]))
         {
           valueResult = ValueResult.ERROR;
           return;
         }
       }
+
+      value = stack[0];
     }
     catch (Exception e)
     {
       valueResult = ValueResult.ERROR;
       e.printStackTrace ();
-      return;
     }
   }
 
@@ -237,14 +348,14 @@ class Expression extends AbstractValue
     return line;
   }
 
-  // called for functions and expressions
+  // called for functions and expressions, returns the index after the closing bracket
   // ---------------------------------------------------------------------------------//
-  private String getBalancedText (String text)
+  private static int getBalancedEnd (String text, int start)
   // ---------------------------------------------------------------------------------//
   {
-    int ptr = text.indexOf ('(');         // find first left parenthesis
+    int ptr = text.indexOf ('(', start);      // find first left parenthesis
     if (ptr < 0)
-      return text;
+      return text.length ();
     int depth = 1;
 
     while (++ptr < text.length ())        // find matching right parenthesis
@@ -259,17 +370,17 @@ class Expression extends AbstractValue
         ++depth;
     }
 
-    return text.substring (0, ptr + 1);   // include closing parenthesis
+    return Math.min (ptr + 1, text.length ());  // include closing parenthesis
   }
 
-  // reads text up to the next comma that is not part of a function
+  // returns the index of the next comma that is not part of a function
   // text does not include the outer brackets or calling function name
   // ---------------------------------------------------------------------------------//
-  static String getParameter (String text)
+  static int getParameterEnd (String text, int start)
   // ---------------------------------------------------------------------------------//
   {
     int depth = 0;
-    int ptr = 0;
+    int ptr = start;
 
     while (ptr < text.length ())
     {
@@ -283,54 +394,54 @@ class Expression extends AbstractValue
       ++ptr;
     }
 
-    return text.substring (0, ptr);
+    return ptr;
   }
 
-  // receives a string starting with the function name
+  // receives a string with the function name at start
   // ---------------------------------------------------------------------------------//
-  private String getFunctionCall (String text)
+  private static int getFunctionEnd (String text, int start)
   // ---------------------------------------------------------------------------------//
   {
-    if (text.charAt (0) != '@')
+    if (text.charAt (start) != '@')
       throw new IllegalArgumentException ("Bad function name: " + text);
 
     for (String functionName : Function.functionList)
-      if (text.startsWith (functionName))
+      if (text.startsWith (functionName, start))
       {
         if (functionName.endsWith ("("))          // if function has parameters
-          return getBalancedText (text);          //   return full function call
-        return functionName;                      // return function name only
+          return getBalancedEnd (text, start);    //   return full function call
+        return start + functionName.length ();    // return function name only
       }
 
     throw new IllegalArgumentException ("Bad function name: " + text);
   }
 
   // ---------------------------------------------------------------------------------//
-  private String getNumberText (String text)
+  private static int getNumberEnd (String text, int start)
   // ---------------------------------------------------------------------------------//
   {
-    int ptr = 0;
+    int ptr = start;
     while (++ptr < text.length ())
     {
       char c = text.charAt (ptr);
       if (c != '.' && (c < '0' || c > '9'))
         break;
     }
-    return text.substring (0, ptr);
+    return ptr;
   }
 
   // ---------------------------------------------------------------------------------//
-  private String getAddressText (String text)
+  private static int getAddressEnd (String text, int start)
   // ---------------------------------------------------------------------------------//
   {
-    int ptr = 0;
+    int ptr = start;
     while (++ptr < text.length ())
     {
       char c = text.charAt (ptr);
       if ((c < '0' || c > '9') && (c < 'A' || c > 'Z'))
         break;
     }
-    return text.substring (0, ptr);
+    return ptr;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -343,15 +454,22 @@ class Expression extends AbstractValue
     for (Value value : values)
     {
       assert value != null;
-      text.append (signs.get (ptr));
+      text.append (getSignText (ptr));
       text.append (value.getDouble ());
-      if (ptr < operators.size ())
-        text.append (operators.get (ptr++));
+      if (ptr < totalOperators)
+        text.append (operators[ptr++]);
     }
 
     return text.toString ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  private String getSignText (int index)
+  // ---------------------------------------------------------------------------------//
+  {
+    return signs[index] == '-' ? "(-)" : "(+)";
+  }
+
   // ---------------------------------------------------------------------------------//
   @Override
   public String toString ()
@@ -364,13 +482,12 @@ class Expression extends AbstractValue
     int index = 0;
     for (Value value : values)
     {
-      String sign = signs.get (index);
-      if (!"(+)".equals (sign))
-        text.append (String.format (FMT2, "sign", sign));
+      if (signs[index] != '+')
+        text.append (String.format (FMT2, "sign", getSignText (index)));
       text.append (String.format (FMT4, value.getType (), value.getFullText (),
           value.getValueType (), getValueText (value)));
-      if (index < operators.size ())
-        text.append (String.format (FMT2, "operator", operators.get (index)));
+      if (index < totalOperators)
+        text.append (String.format (FMT2, "operator", operators[index]));
       ++index;
     }
     return text.toString ();
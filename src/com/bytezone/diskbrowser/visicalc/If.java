@@ -20,19 +20,19 @@ class If extends Function
 
     assert text.startsWith ("@IF(") : text;
 
-    conditionText = Expression.getParameter (functionText);
-
-    int ptr = conditionText.length () + 1;
+    int ptr = Expression.getParameterEnd (functionText, 0);
+    conditionText = functionText.substring (0, ptr++);
     if (ptr >= functionText.length ())
       throw new IllegalArgumentException (text);
 
-    textTrue = Expression.getParameter (functionText.substring (ptr));
+    int end = Expression.getParameterEnd (functionText, ptr);
+    textTrue = functionText.substring (ptr, end);
 
-    ptr = conditionText.length () + textTrue.length () + 2;
+    ptr = end + 1;
     if (ptr >= functionText.length ())
       throw new IllegalArgumentException (text);
 
-    textFalse = Expression.getParameter (functionText.substring (ptr));
+    textFalse = functionText.substring (ptr, Expression.getParameterEnd (functionText, ptr));
 
     condition = new Condition (cell, conditionText);
     values.add (condition);
@@ -1,5 +1,7 @@
 package com.bytezone.diskbrowser.visicalc;
 
+import java.util.Set;
+
 // -----------------------------------------------------------------------------------//
 class Lookup extends ValueListFunction
 // -----------------------------------------------------------------------------------//
@@ -60,6 +62,28 @@ class Lookup extends ValueListFunction
       value = 0;
   }
 
+  // cells that could supply the result
+  // ---------------------------------------------------------------------------------//
+  void addAdjacentCells (Set<Cell> cells)
+  // ---------------------------------------------------------------------------------//
+  {
+    if (list.size () <= 1 || !(list.get (1) instanceof Cell)
+        || !(list.get (list.size () - 1) instanceof Cell))
+      return;
+
+    boolean vertical = isVertical ();
+    for (int i = 1; i < list.size (); i++)
+    {
+      if (!(list.get (i) instanceof Cell))
+        continue;
+
+      Address address = ((Cell) list.get (i)).getAddress ();
+      Address adjacentAddress = vertical ? address.nextColumn () : address.nextRow ();
+      if (cell.cellExists (adjacentAddress))
+        cells.add (cell.getCell (adjacentAddress));
+    }
+  }
+
   // is the range horizontal or vertical?
   // ---------------------------------------------------------------------------------//
   private boolean isVertical ()
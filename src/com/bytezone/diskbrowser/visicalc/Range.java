@@ -3,20 +3,16 @@ package com.bytezone.diskbrowser.visicalc;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 // -----------------------------------------------------------------------------------//
 class Range implements Iterable<Address>
 // -----------------------------------------------------------------------------------//
 {
-  //  private static final Pattern cellAddress = Pattern.compile ("[A-B]?[A-Z][0-9]{1,3}");
-  private static final Pattern rangePattern =
-      Pattern.compile ("([A-B]?[A-Z])([0-9]{1,3})\\.\\.\\.([A-B]?[A-Z])([0-9]{1,3})");
-  //  private static final Pattern addressList = Pattern.compile ("\\(([^,]+(,[^,]+)*)\\)");
+  private static final String SEPARATOR = "...";
 
   private Address from, to;
   private final List<Address> range = new ArrayList<> ();
+  private final List<Cell> cells = new ArrayList<> ();
   private final Cell cell;
 
   private boolean isHorizontal;
@@ -27,16 +23,15 @@ class Range implements Iterable<Address>
   {
     this.cell = cell;
 
-    Matcher m = rangePattern.matcher (rangeText);
-    if (m.find ())
-    {
-      from = new Address (m.group (1), m.group (2));
-      to = new Address (m.group (3), m.group (4));
-      isHorizontal = from.rowMatches (to);
-      populateRange ();
-    }
-    else
+    int length = getRangeLength (rangeText);
+    if (length == 0)
       throw new IllegalArgumentException (rangeText);
+
+    int fromLength = Address.getAddressLength (rangeText, 0);
+    from = new Address (rangeText.substring (0, fromLength));
+    to = new Address (rangeText.substring (fromLength + SEPARATOR.length (), length));
+    isHorizontal = from.rowMatches (to);
+    populateRange ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -44,7 +39,7 @@ class Range implements Iterable<Address>
   // ---------------------------------------------------------------------------------//
   {
     range.add (from);
-    cell.getCell (from);
+    cells.add (cell.getCell (from));
     Address tempFrom = from;
 
     if (from.rowMatches (to))
@@ -52,14 +47,14 @@ class Range implements Iterable<Address>
       {
         from = from.nextColumn ();
         range.add (from);
-        cell.getCell (from);
+        cells.add (cell.getCell (from));
       }
     else if (from.columnMatches (to))
       while (from.compareTo (to) < 0)
       {
         from = from.nextRow ();
         range.add (from);
-        cell.getCell (from);
+        cells.add (cell.getCell (from));
       }
     else
       throw new IllegalArgumentException (
@@ -72,7 +67,22 @@ class Range implements Iterable<Address>
   static boolean isRange (String text)
   // ---------------------------------------------------------------------------------//
   {
-    return rangePattern.matcher (text).matches ();
+    return getRangeLength (text) == text.length ();
+  }
+
+  // length of the <address>...<address> text at the start, or 0 if there isn't one
+  // ---------------------------------------------------------------------------------//
+  private static int getRangeLength (String text)
+  // ---------------------------------------------------------------------------------//
+  {
+    int fromLength = Address.getAddressLength (text, 0);
+    if (fromLength == 0 || !text.startsWith (SEPARATOR, fromLength))
+      return 0;
+
+    int toStart = fromLength + SEPARATOR.length ();
+    int toLength = Address.getAddressLength (text, toStart);
+
+    return toLength == 0 ? 0 : toStart + toLength;
   }
 
   // ---------------------------------------------------------------------------------//
@@ -97,6 +107,13 @@ class Range implements Iterable<Address>
     return range.iterator ();
   }
 
+  // ---------------------------------------------------------------------------------//
+  List<Cell> getCells ()
+  // ---------------------------------------------------------------------------------//
+  {
+    return cells;
+  }
+
   // ---------------------------------------------------------------------------------//
   public int size ()
   // ---------------------------------------------------------------------------------//
@@ -1,6 +1,7 @@
 package com.bytezone.diskbrowser.visicalc;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -8,7 +9,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.bytezone.diskbrowser.utilities.HexFormatter;
-import com.bytezone.diskbrowser.visicalc.Cell.CellType;
 
 // -----------------------------------------------------------------------------------//
 public class Sheet
@@ -22,6 +22,7 @@ public class Sheet
   private final Map<Integer, Cell> rowOrderCells = new TreeMap<Integer, Cell> ();
   private final Map<Integer, Cell> columnOrderCells = new TreeMap<Integer, Cell> ();
   private final List<String> lines = new ArrayList<> ();
+  private final Map<String, Range> ranges = new HashMap<> ();    // shared by all cells
 
   private final Map<Integer, Integer> columnWidths = new TreeMap<Integer, Integer> ();
   private int columnWidth = 9;
@@ -35,6 +36,8 @@ public class Sheet
   private int minRow = 9999;
   private int maxRow;
 
+  private DependencyGraph dependencyGraph;
+
   int[] functionTotals = new int[Function.functionList.length];
 
   // Maximum cell = BK254
@@ -176,24 +179,17 @@ public class Sheet
       ptr += length + 1;            // +1 for end-of-line token
     }
 
-    // might have to keep recalculating until nothing changes??
     calculate (recalculationOrder);
-    if (false)
-    {
-      for (Cell cell : rowOrderCells.values ())
-        cell.reset ();
-      calculate (recalculationOrder);
-    }
   }
 
   // ---------------------------------------------------------------------------------//
   private void calculate (char order)
   // ---------------------------------------------------------------------------------//
   {
+    // the recalculation order only decides the sequence of unrelated cells
     Map<Integer, Cell> cells = order == 'R' ? rowOrderCells : columnOrderCells;
-    for (Cell cell : cells.values ())
-      if (cell.isCellType (CellType.VALUE))
-        cell.calculate ();
+    dependencyGraph = new DependencyGraph (cells.values ());
+    dependencyGraph.recalculate ();
   }
 
   // ---------------------------------------------------------------------------------//
@@ -303,6 +299,19 @@ public class Sheet
     return cell;
   }
 
+  // ---------------------------------------------------------------------------------//
+  Range getRange (Cell cell, String rangeText)
+  // ---------------------------------------------------------------------------------//
+  {
+    Range range = ranges.get (rangeText);
+    if (range == null)
+    {
+      range = new Range (cell, rangeText);
+      ranges.put (rangeText, range);
+    }
+    return range;
+  }
+
   // ---------------------------------------------------------------------------------//
   boolean cellExists (Address address)
   // ---------------------------------------------------------------------------------//
@@ -438,8 +447,10 @@ public class Sheet
       text.append (String.format ("| Recalculation : %-18s %-14s %-14s %-14s   |%n",
           recalculation == 'A' ? "Automatic" : "Manual", counts.get (3), counts.get (9),
           counts.get (15)));
+      int circular = dependencyGraph.totalCircular ();
       text.append (String.format ("| Cells         : %-5d  %-11s %-14s %-14s %-14s   |%n",
-          size (), "", counts.get (4), counts.get (10), counts.get (16)));
+          size (), circular > 0 ? "Circular " + circular : "", counts.get (4),
+          counts.get (10), counts.get (16)));
 
       String rangeText = size () > 0 ? Address.getCellName (minRow + 1, minColumn) + ":"
           + Address.getCellName (maxRow + 1, maxColumn) : "";
@@ -15,25 +15,25 @@ class ValueList implements Iterable<Value>
   ValueList (Cell cell, String text)
   // ---------------------------------------------------------------------------------//
   {
-    String remainder = text;
+    int ptr = 0;
 
     while (true)
     {
-      String parameter = Expression.getParameter (remainder);
+      int end = Expression.getParameterEnd (text, ptr);
+      String parameter = text.substring (ptr, end);
 
       if (Range.isRange (parameter))
       {
         hasRange = true;
-        for (Address address : new Range (cell, parameter))
-          values.add (cell.getCell (address));
+        values.addAll (cell.getRange (parameter).getCells ());
       }
       else
         values.add (new Expression (cell, parameter).reduce ());
 
-      if (remainder.length () == parameter.length ())
+      if (end == text.length ())
         break;
 
-      remainder = remainder.substring (parameter.length () + 1);
+      ptr = end + 1;                            // skip the comma
     }
   }
 
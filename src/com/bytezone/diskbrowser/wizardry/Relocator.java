@@ -4,9 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.bytezone.diskbrowser.applefile.AbstractFile;
-import com.bytezone.diskbrowser.disk.AppleDisk;
 import com.bytezone.diskbrowser.disk.Disk;
-import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.VirtualDisk;
 import com.bytezone.diskbrowser.utilities.Utility;
 
 // -----------------------------------------------------------------------------------//
@@ -56,34 +55,22 @@ public class Relocator extends AbstractFile
     }
   }
 
+  // Maps the logical blocks onto the data disks in the same order as the table, so a
+  // later segment replaces an earlier one. Disk n is dataDisks[n]. A segment on disk 0
+  // keeps the master's own blocks (the same logical block numbers), just as
+  // addLogicalBlock () records disk 0 for them, so it also undoes any earlier segment.
   // ---------------------------------------------------------------------------------//
-  public void createNewBuffer (Disk[] dataDisks)
+  public void addExtents (VirtualDisk volume, Disk master, Disk[] dataDisks)
   // ---------------------------------------------------------------------------------//
   {
-    AppleDisk master = (AppleDisk) dataDisks[0];
-    //    byte[] key1 = { 0x55, 0x55, 0x15, 0x55 };
-    //    byte[] key2 = { 0x00, 0x00, 0x01, 0x41 };
-    //    byte[] key3 = { 0x01, 0x00, 0x01, 0x41 };
-    //    byte[] key4 = { 0x00, 0x00, 0x15, 0x55 };
-
-    for (int logicalBlock = 0; logicalBlock < diskBlocks.length; logicalBlock++)
-    {
-      int diskNo = diskBlocks[logicalBlock];
-      if (diskNo > 0)
-      {
-        Disk disk = dataDisks[diskNo];
-        byte[] temp = disk.readBlock (diskOffsets[logicalBlock]);
-        DiskAddress da = master.getDiskAddress (logicalBlock);
-        master.writeBlock (da, temp);
-        //        if (da.getBlock () == 0x126)
-        //          System.out.println (HexFormatter.format (buffer));
-        //        if (Utility.find (temp, key1))
-        //          if (Utility.find (temp, key2))
-        //            if (Utility.find (temp, key3))
-        //              if (Utility.find (temp, key4))
-        //                System.out.println (da);
-      }
-    }
+    for (DiskRecord diskRecord : diskRecords)
+      for (DiskSegment diskSegment : diskRecord.diskSegments)
+        if (diskRecord.diskNumber > 0)
+          volume.addExtent (diskSegment.logicalBlock, dataDisks[diskRecord.diskNumber],
+              diskSegment.physicalBlock, diskSegment.segmentLength);
+        else
+          volume.addExtent (diskSegment.logicalBlock, master, diskSegment.logicalBlock,
+              diskSegment.segmentLength);
   }
 
   // ---------------------------------------------------------------------------------//
@@ -11,6 +11,7 @@ import com.bytezone.diskbrowser.disk.AppleDisk;
 import com.bytezone.diskbrowser.disk.DefaultAppleFileSource;
 import com.bytezone.diskbrowser.disk.Disk;
 import com.bytezone.diskbrowser.disk.DiskAddress;
+import com.bytezone.diskbrowser.disk.VirtualDisk;
 import com.bytezone.diskbrowser.pascal.FileEntry;
 import com.bytezone.diskbrowser.pascal.PascalDisk;
 import com.bytezone.diskbrowser.utilities.HexFormatter;
@@ -21,6 +22,8 @@ import com.bytezone.diskbrowser.wizardry.Header.ScenarioData;
 public class Wizardry4BootDisk extends PascalDisk
 // -----------------------------------------------------------------------------------//
 {
+  private static final int VOLUME_BLOCKS = 0x800;
+
   public Header scenarioHeader;
   //  private final List<AppleDisk> disks = new ArrayList<> ();
   private Relocator relocator;
@@ -32,7 +35,7 @@ public class Wizardry4BootDisk extends PascalDisk
   public Wizardry4BootDisk (AppleDisk[] dataDisks)
   // ---------------------------------------------------------------------------------//
   {
-    super (dataDisks[0]);
+    super (createVolume (dataDisks[1]));
 
     version = dataDisks.length == 6 ? 4 : dataDisks.length == 10 ? 5 : 0;
 
@@ -46,7 +49,7 @@ public class Wizardry4BootDisk extends PascalDisk
     {
       relocator =
           new Relocator (fileEntry.getUniqueName (), fileEntry.getDataSource ().buffer);
-      relocator.createNewBuffer (dataDisks);    // create new data buffer
+      relocator.addExtents ((VirtualDisk) getDisk (), dataDisks[1], dataDisks);
       fileEntry.setFile (relocator);
     }
 
@@ -137,6 +140,18 @@ public class Wizardry4BootDisk extends PascalDisk
     }
   }
 
+  // The boot disk holds the catalog, the relocation table then moves the rest of the
+  // logical volume onto the data disks.
+  // ---------------------------------------------------------------------------------//
+  private static VirtualDisk createVolume (AppleDisk bootDisk)
+  // ---------------------------------------------------------------------------------//
+  {
+    VirtualDisk volume =
+        new VirtualDisk (bootDisk.getFile (), VOLUME_BLOCKS, bootDisk.getBlockSize ());
+    volume.addExtent (0, bootDisk, 0, bootDisk.getTotalBlocks ());
+    return volume;
+  }
+
   // ---------------------------------------------------------------------------------//
   private void linkMonsterImages4 (DefaultMutableTreeNode monstersNode,
       FileEntry fileEntry)